@@ -0,0 +1,94 @@
+package com.cosmicrover.cassini;
+
+import java.lang.management.ManagementFactory;
+
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.math.Vector3;
+import com.cosmicrover.cassini.components.LocationComponent;
+
+/**
+ * Measures the time and bytes allocated per LocationComponent coordinate
+ * conversion, for the allocating variants, the out parameter variants,
+ * and the packed int key variants.
+ *
+ * Run it as a Java application from this project. Allocations are read
+ * with com.sun.management.ThreadMXBean, so it needs a HotSpot based JVM.
+ */
+public class LocationBenchmark {
+	private static final int WARMUP_ROUNDS = 5;
+	private static final int CALLS = 200000;
+
+	private interface Case {
+		int run(LocationComponent location, int i);
+	}
+
+	public static void main(String[] args) {
+		LocationComponent location = new LocationComponent();
+		location.setMapName("benchmark.tmx");
+		location.getContext().setSize(256, 256, 32, 32);
+		location.setMap(10, 10);
+
+		final Vector2 anOut2 = new Vector2();
+		final Vector3 anOut3 = new Vector3();
+
+		Case[] anCases = {
+			new Case() {
+				public int run(LocationComponent location, int i) {
+					Vector3 anLevel = location.getLevelLimit(i & 8191, i & 4095, 0, new Vector3());
+					Vector2 anMap = location.getLevelAsMap(anLevel.x, anLevel.y, new Vector2());
+					return (int)anMap.x + (int)location.getMapAsLevel((int)anMap.x, (int)anMap.y, new Vector3()).y;
+				}
+				public String toString() { return "allocating getLevelAsMap/getMapAsLevel"; }
+			},
+			new Case() {
+				public int run(LocationComponent location, int i) {
+					location.getLevelLimit(i & 8191, i & 4095, 0, anOut3);
+					location.getLevelAsMap(anOut3.x, anOut3.y, anOut2);
+					return (int)anOut2.x + (int)location.getMapAsLevel((int)anOut2.x, (int)anOut2.y, anOut3).y;
+				}
+				public String toString() { return "out parameter getLevelAsMap/getMapAsLevel"; }
+			},
+			new Case() {
+				public int run(LocationComponent location, int i) {
+					int anKey = location.getLevelAsMapKey(i & 8191, i & 4095);
+					return anKey + (int)location.getMapKeyAsLevel(anKey, anOut3).y;
+				}
+				public String toString() { return "packed getLevelAsMapKey/getMapKeyAsLevel"; }
+			},
+			new Case() {
+				public int run(LocationComponent location, int i) {
+					return location.getMapKey() + location.getContextTag().length();
+				}
+				public String toString() { return "getMapKey/getContextTag"; }
+			},
+		};
+
+		for(int c = 0; anCases.length > c; c++) {
+			measure(anCases[c], location);
+		}
+	}
+
+	private static void measure(Case theCase, LocationComponent location) {
+		com.sun.management.ThreadMXBean anThreads = (com.sun.management.ThreadMXBean)ManagementFactory.getThreadMXBean();
+		long anThreadId = Thread.currentThread().getId();
+		int anSink = 0;
+
+		// Let the JIT compile the case before measuring it
+		for(int r = 0; WARMUP_ROUNDS > r; r++) {
+			for(int i = 0; CALLS > i; i++) {
+				anSink += theCase.run(location, i);
+			}
+		}
+
+		long anBytes = anThreads.getThreadAllocatedBytes(anThreadId);
+		long anStart = System.nanoTime();
+		for(int i = 0; CALLS > i; i++) {
+			anSink += theCase.run(location, i);
+		}
+		long anNanos = System.nanoTime() - anStart;
+		anBytes = anThreads.getThreadAllocatedBytes(anThreadId) - anBytes;
+
+		System.out.println(String.format("%-45s %8.2f ns/call %8.2f bytes/call (%d)",
+				theCase, anNanos / (double)CALLS, anBytes / (double)CALLS, anSink));
+	}
+}
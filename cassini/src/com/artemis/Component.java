@@ -6,4 +6,18 @@ package com.artemis;
  * @author Arni Arent
  */
 public abstract class Component {
+
+	/**
+	 * Create a copy of this component for a world snapshot. The default
+	 * returns the component itself, so its state is shared between the world
+	 * and all snapshots. Override this in components that are changed after
+	 * being added to an entity so that restoring a snapshot rolls them back,
+	 * and change them through ComponentMapper.getForWrite() or after calling
+	 * ComponentMapper.markDirty() so snapshots see the change.
+	 * 
+	 * @return a copy of this component, or this if it can be shared.
+	 */
+	public Component copy() {
+		return this;
+	}
 }
@@ -8,9 +8,19 @@ public class ComponentManager extends Manager {
 	private Bag<Bag<Component>> componentsByType;
 	private Bag<Entity> deleted;
 
+	// Snapshot pages touched since the last snapshot, per type and for entities
+	private Bag<BitSet> dirtyPagesByType;
+	private BitSet dirtyEntityPages;
+
+	// Highest component type index with storage plus one, Bag.size() can't
+	// be used since Bag.set() shrinks it when a lower index is set later
+	private int typeCount;
+
 	public ComponentManager() {
 		componentsByType = new Bag<Bag<Component>>();
 		deleted = new Bag<Entity>();
+		dirtyPagesByType = new Bag<BitSet>();
+		dirtyEntityPages = new BitSet();
 	}
 	
 	@Override
@@ -21,36 +31,49 @@ public class ComponentManager extends Manager {
 		BitSet componentBits = e.getComponentBits();
 		for (int i = componentBits.nextSetBit(0); i >= 0; i = componentBits.nextSetBit(i+1)) {
 			componentsByType.get(i).set(e.getId(), null);
+			getDirtyPages(i).set(page(e));
 		}
 		componentBits.clear();
+		dirtyEntityPages.set(page(e));
 	}
 	
 	protected void addComponent(Entity e, ComponentType type, Component component) {
-		componentsByType.ensureCapacity(type.getIndex());
-		
-		Bag<Component> components = componentsByType.get(type.getIndex());
-		if(components == null) {
-			components = new Bag<Component>();
-			componentsByType.set(type.getIndex(), components);
-		}
-		
-		components.set(e.getId(), component);
-
-		e.getComponentBits().set(type.getIndex());
+		setComponent(e, type.getIndex(), component);
 	}
 
 	protected void removeComponent(Entity e, ComponentType type) {
-		if(e.getComponentBits().get(type.getIndex())) {
-			componentsByType.get(type.getIndex()).set(e.getId(), null);
-			e.getComponentBits().clear(type.getIndex());
+		removeComponent(e, type.getIndex());
+	}
+
+	void setComponent(Entity e, int typeIndex, Component component) {
+		getComponentsByIndex(typeIndex).set(e.getId(), component);
+
+		e.getComponentBits().set(typeIndex);
+		getDirtyPages(typeIndex).set(page(e));
+		dirtyEntityPages.set(page(e));
+	}
+
+	void removeComponent(Entity e, int typeIndex) {
+		if(e.getComponentBits().get(typeIndex)) {
+			componentsByType.get(typeIndex).set(e.getId(), null);
+			e.getComponentBits().clear(typeIndex);
+			getDirtyPages(typeIndex).set(page(e));
+			dirtyEntityPages.set(page(e));
 		}
 	}
 	
 	protected Bag<Component> getComponentsByType(ComponentType type) {
-		Bag<Component> components = componentsByType.get(type.getIndex());
+		return getComponentsByIndex(type.getIndex());
+	}
+
+	Bag<Component> getComponentsByIndex(int typeIndex) {
+		componentsByType.ensureCapacity(typeIndex);
+
+		Bag<Component> components = componentsByType.get(typeIndex);
 		if(components == null) {
 			components = new Bag<Component>();
-			componentsByType.set(type.getIndex(), components);
+			componentsByType.set(typeIndex, components);
+			typeCount = Math.max(typeCount, typeIndex + 1);
 		}
 		return components;
 	}
@@ -73,10 +96,98 @@ public class ComponentManager extends Manager {
 		return fillBag;
 	}
 
+	/**
+	 * Number of component types that have storage in this manager.
+	 * 
+	 * @return highest component type index plus one.
+	 */
+	int getTypeCount() {
+		return typeCount;
+	}
+
+	/**
+	 * Snapshot pages holding components of this type that have been touched
+	 * since the last snapshot. Only writes mark a page, ComponentMapper sets
+	 * these bits directly from getForWrite() and markDirty().
+	 * 
+	 * @param typeIndex index of the component type.
+	 * @return the dirty pages, never null.
+	 */
+	BitSet getDirtyPages(int typeIndex) {
+		dirtyPagesByType.ensureCapacity(typeIndex);
+
+		BitSet dirty = dirtyPagesByType.get(typeIndex);
+		if(dirty == null) {
+			dirty = new BitSet();
+			dirtyPagesByType.set(typeIndex, dirty);
+			typeCount = Math.max(typeCount, typeIndex + 1);
+		}
+		return dirty;
+	}
+
+	BitSet getDirtyEntityPages() {
+		return dirtyEntityPages;
+	}
+
+	/**
+	 * Check if anything on the snapshot page was touched since the last
+	 * snapshot.
+	 * 
+	 * @param page index of the page.
+	 * @return true if the page has to be captured again.
+	 */
+	boolean isPageDirty(int page) {
+		if(dirtyEntityPages.get(page)) {
+			return true;
+		}
+		for(int i = 0, s = dirtyPagesByType.getCapacity(); s > i; i++) {
+			BitSet dirty = dirtyPagesByType.get(i);
+			if(dirty != null && dirty.get(page)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Collect every snapshot page touched since the last snapshot.
+	 * 
+	 * @return new set of the dirty pages of every type and of the entities.
+	 */
+	BitSet getTouchedPages() {
+		BitSet touched = (BitSet)dirtyEntityPages.clone();
+		for(int i = 0, s = dirtyPagesByType.getCapacity(); s > i; i++) {
+			BitSet dirty = dirtyPagesByType.get(i);
+			if(dirty != null) {
+				touched.or(dirty);
+			}
+		}
+		return touched;
+	}
+
+	void clearDirtyPages() {
+		for(int i = 0, s = dirtyPagesByType.getCapacity(); s > i; i++) {
+			BitSet dirty = dirtyPagesByType.get(i);
+			if(dirty != null) {
+				dirty.clear();
+			}
+		}
+		dirtyEntityPages.clear();
+	}
+
+	private static int page(Entity e) {
+		return e.getId() >>> WorldSnapshot.PAGE_SHIFT;
+	}
+
+	@Override
+	public void added(Entity e) {
+		dirtyEntityPages.set(page(e));
+	}
 	
 	@Override
 	public void deleted(Entity e) {
 		deleted.add(e);
+		dirtyEntityPages.set(page(e));
 	}
 	
 	protected void clean() {
@@ -1,5 +1,7 @@
 package com.artemis;
 
+import java.util.BitSet;
+
 import com.artemis.utils.Bag;
 
 /**
@@ -14,10 +16,12 @@ public class ComponentMapper<A extends Component> {
 	private ComponentType type;
 	private Class<A> classType;
 	private Bag<Component> components;
+	private BitSet dirtyPages;
 
 	private ComponentMapper(Class<A> type, World world) {
 		this.type = ComponentType.getTypeFor(type);
 		components = world.getComponentManager().getComponentsByType(this.type);
+		dirtyPages = world.getComponentManager().getDirtyPages(this.type.getIndex());
 		this.classType = type;
 	}
 
@@ -26,6 +30,13 @@ public class ComponentMapper<A extends Component> {
 	 * No bounding checks, so this could throw an ArrayIndexOutOfBoundsExeption,
 	 * however in most scenarios you already know the entity possesses this component.
 	 * 
+	 * The component is only meant to be read. Changes made in place to a
+	 * component retrieved this way aren't seen by World.snapshot(), so the
+	 * next snapshot keeps an older copy and World.restore() doesn't roll them
+	 * back. Use getForWrite() or markDirty() for changes that matter to
+	 * snapshots. Restoring also puts new component instances in place, so
+	 * don't hold on to the component across a World.restore().
+	 * 
 	 * @param e the entity that should possess the component
 	 * @return the instance of the component
 	 */
@@ -33,6 +44,30 @@ public class ComponentMapper<A extends Component> {
 		return classType.cast(components.get(e.getId()));
 	}
 
+	/**
+	 * Fast but unsafe retrieval of a component for this entity that the
+	 * caller is going to change in place. Same as get(), but the component
+	 * is also marked dirty so the next World.snapshot() copies it again.
+	 * 
+	 * @param e the entity that should possess the component
+	 * @return the instance of the component
+	 */
+	public A getForWrite(Entity e) {
+		markDirty(e);
+		return classType.cast(components.get(e.getId()));
+	}
+
+	/**
+	 * Mark the component of this entity dirty, call this before changing a
+	 * component retrieved with get() or getSafe() in place, otherwise the
+	 * next World.snapshot() keeps sharing the copy it took before.
+	 * 
+	 * @param e the entity whose component is about to change
+	 */
+	public void markDirty(Entity e) {
+		dirtyPages.set(e.getId() >>> WorldSnapshot.PAGE_SHIFT);
+	}
+
 	/**
 	 * Fast and safe retrieval of a component for this entity.
 	 * If the entity does not have this component then null is returned.
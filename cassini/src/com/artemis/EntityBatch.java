@@ -0,0 +1,123 @@
+package com.artemis;
+
+import com.artemis.utils.Bag;
+import com.artemis.utils.ImmutableBag;
+
+/**
+ * Detached staging area for building entities away from the world.
+ *
+ * Entities in a batch are identified by a local id in their own id space,
+ * starting at zero, and their components are only kept in the batch. Nothing
+ * touches the world until the batch is merged, so a batch can be filled from
+ * any thread (e.g. a loader thread) while the world is being processed.
+ *
+ * Merging creates a real entity for each local id and adds its components in
+ * a single step, bounded by the size of the batch. It must happen on the
+ * thread that processes the world. The merged entities are not added to the
+ * world yet, so the caller can remap ids stored in components before calling
+ * addToWorld() on each entity.
+ *
+ * A batch is not thread safe, only one thread may fill it at a time.
+ */
+public class EntityBatch {
+	private final Bag<Bag<Component>> components;
+	private int size;
+
+	public EntityBatch() {
+		components = new Bag<Bag<Component>>();
+	}
+
+	/**
+	 * Stage a new entity.
+	 *
+	 * @return local id of the staged entity.
+	 */
+	public int createEntity() {
+		int localId = size++;
+		Bag<Component> entityComponents = components.isIndexWithinBounds(localId) ? components.get(localId) : null;
+		if(entityComponents == null) {
+			entityComponents = new Bag<Component>();
+			components.set(localId, entityComponents);
+		} else {
+			entityComponents.clear();
+		}
+		return localId;
+	}
+
+	/**
+	 * Add a component to a staged entity.
+	 *
+	 * @param localId of the staged entity.
+	 * @param component to add.
+	 * @return this batch for chaining.
+	 */
+	public EntityBatch addComponent(int localId, Component component) {
+		checkLocalId(localId);
+		components.get(localId).add(component);
+		return this;
+	}
+
+	/**
+	 * Get the components staged for an entity.
+	 *
+	 * @param localId of the staged entity.
+	 * @return the staged components.
+	 */
+	public ImmutableBag<Component> getComponents(int localId) {
+		checkLocalId(localId);
+		return components.get(localId);
+	}
+
+	/**
+	 * Get the number of staged entities.
+	 *
+	 * @return number of entities in this batch.
+	 */
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Remove all staged entities, the batch can be filled again afterwards.
+	 */
+	public void clear() {
+		for(int i = 0; size > i; i++) {
+			components.get(i).clear();
+		}
+		size = 0;
+	}
+
+	/**
+	 * Create an entity in the world for each staged entity and add the staged
+	 * components to it, then clear this batch. Must be called from the thread
+	 * processing the world.
+	 *
+	 * @param world to create the entities in.
+	 * @param fillBag receives the created entities, indexed by local id.
+	 * @return the fillBag.
+	 */
+	public Bag<Entity> merge(World world, Bag<Entity> fillBag) {
+		fillBag.clear();
+		fillBag.ensureCapacity(size);
+		for(int i = 0; size > i; i++) {
+			Entity e = world.createEntity();
+			Bag<Component> entityComponents = components.get(i);
+			for(int j = 0, s = entityComponents.size(); s > j; j++) {
+				e.addComponent(entityComponents.get(j));
+			}
+			fillBag.add(e);
+		}
+		clear();
+		return fillBag;
+	}
+
+	private void checkLocalId(int localId) {
+		if(localId < 0 || localId >= size) {
+			throw new IndexOutOfBoundsException("No staged entity with local id " + localId);
+		}
+	}
+}
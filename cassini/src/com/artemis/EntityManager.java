@@ -91,6 +91,16 @@ public class EntityManager extends Manager {
 	protected Entity getEntity(int entityId) {
 		return entities.get(entityId);
 	}
+
+	/**
+	 * Get the number of entity ids that can currently be looked up, all
+	 * active entities have an id below this.
+	 * 
+	 * @return capacity of the entity storage.
+	 */
+	int getEntityCapacity() {
+		return entities.getCapacity();
+	}
 	
 	/**
 	 * Get how many entities are active in this world.
@@ -53,9 +53,11 @@ public abstract class EntitySystem implements EntityObserver {
 
 	public final void process() {
 		if(checkProcessing()) {
-			begin();
-			processEntities(actives);
-			end();
+			do {
+				begin();
+				processEntities(actives);
+				end();
+			} while(checkProcessingAgain());
 		}
 	}
 	
@@ -79,6 +81,17 @@ public abstract class EntitySystem implements EntityObserver {
 	 */
 	protected abstract boolean checkProcessing();
 
+	/**
+	 * Called after each processing of entities to check if the system should
+	 * be processed again within the same call to process, e.g. to catch up
+	 * on missed fixed time steps.
+	 * 
+	 * @return true if the system should be processed again, false if not.
+	 */
+	protected boolean checkProcessingAgain() {
+		return false;
+	}
+
 	/**
 	 * Override to implement code that gets executed when systems are initialized.
 	 */
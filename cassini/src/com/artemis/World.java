@@ -2,6 +2,7 @@ package com.artemis;
 
 import java.lang.reflect.Field;
 import java.lang.reflect.ParameterizedType;
+import java.util.BitSet;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -36,6 +37,8 @@ public class World {
 	private Map<Class<?>, EntitySystem> systems;
 	private Bag<EntitySystem> systemsBag;
 
+	private WorldSnapshot lastSnapshot;
+
 	public World() {
 		managers = new HashMap<Class<? extends Manager>, Manager>();
 		managersBag = new Bag<Manager>();
@@ -222,6 +225,46 @@ public class World {
 	
 
 
+	/**
+	 * Take an in memory snapshot of all entities and their components. Only
+	 * the components on pages touched since the last snapshot are copied, the
+	 * rest is shared with it (see WorldSnapshot for the costs). Take snapshots
+	 * between world processes, entities that haven't been processed into the
+	 * world yet are not included.
+	 * 
+	 * @return the snapshot.
+	 */
+	public WorldSnapshot snapshot() {
+		lastSnapshot = WorldSnapshot.capture(this, lastSnapshot);
+		cm.clearDirtyPages();
+		return lastSnapshot;
+	}
+
+	/**
+	 * Restore the entities and components captured by a snapshot of this
+	 * world. Entities created since are deleted on the next process, entities
+	 * deleted since can't be restored. Managers and systems are told about
+	 * every restored entity on the next process as well.
+	 * 
+	 * @param snapshot taken from this world.
+	 * @return number of entities that could not be restored, zero if the
+	 *         world now matches the snapshot.
+	 */
+	public int restore(WorldSnapshot snapshot) {
+		if(snapshot.getWorld() != this) {
+			throw new IllegalArgumentException("Snapshot was taken from another world");
+		}
+
+		BitSet mismatched = new BitSet();
+		int lost = snapshot.restore(snapshot == lastSnapshot, mismatched);
+
+		// The world now matches the snapshot, except for the mismatched pages
+		lastSnapshot = snapshot;
+		cm.clearDirtyPages();
+		cm.getDirtyEntityPages().or(mismatched);
+		return lost;
+	}
+
 	/**
 	 * Gives you all the systems in this world for possible iteration.
 	 * 
@@ -308,15 +351,26 @@ public class World {
 
 	
 	/**
-	 * Process all non-passive systems.
+	 * Tell managers and systems about the entities added since this was last
+	 * called, without processing anything else. Lets a caller adding many
+	 * entities spread the work of their observers over several frames
+	 * instead of leaving all of it to the next call to process().
 	 */
-	public void process() {
+	public void processAdded() {
 		check(added, new Performer() {
 			@Override
 			public void perform(EntityObserver observer, Entity e) {
 				observer.added(e);
 			}
 		});
+	}
+
+	
+	/**
+	 * Process all non-passive systems.
+	 */
+	public void process() {
+		processAdded();
 		
 		check(changed, new Performer() {
 			@Override
@@ -0,0 +1,243 @@
+package com.artemis;
+
+import java.util.BitSet;
+import java.util.UUID;
+
+import com.artemis.utils.Bag;
+
+/**
+ * In memory copy of the entities and components of a world, taken with
+ * World.snapshot() and put back with World.restore(WorldSnapshot).
+ * 
+ * Entities are grouped in pages of PAGE_SIZE ids. The world tracks which
+ * pages were touched since its last snapshot (components written through
+ * ComponentMapper.getForWrite() or marked with ComponentMapper.markDirty(),
+ * added or removed, entities added or deleted) and a new snapshot
+ * only copies the components of those pages, every other page is shared
+ * with the previous snapshot. Taking a snapshot costs a copy of the page
+ * tables, one reference per page and component type (a plain array copy of
+ * the size of the world divided by PAGE_SIZE), plus copying the components
+ * of the pages touched. Restoring the last snapshot only visits the pages
+ * touched since. Snapshots are never changed once taken, so they can be
+ * restored any number of times.
+ * 
+ * Components are copied with Component.copy(), components that don't
+ * override it are shared with the world and are not rolled back. Neither
+ * are changes made in place to components retrieved with
+ * ComponentMapper.get() without marking them dirty, see there.
+ * 
+ * Restoring puts back the components of every entity that is still alive and
+ * deletes entities created after the snapshot was taken. Every entity put
+ * back is reported as changed, so managers and systems catch up with it on
+ * the next world process. Entities deleted
+ * after the snapshot was taken can't be brought back, since their ids may
+ * already be in use again, they are counted and reported instead.
+ */
+public final class WorldSnapshot {
+	/// Number of entity ids per page is 1 << PAGE_SHIFT
+	public static final int PAGE_SHIFT = 6;
+	public static final int PAGE_SIZE = 1 << PAGE_SHIFT;
+	private static final int PAGE_MASK = PAGE_SIZE - 1;
+
+	private final World world;
+	private final int pageCount;
+
+	// Entity uuids and component bits per page, null for pages without entities
+	private final EntityPage[] entityPages;
+
+	// Component copies per type and page, null for pages without components
+	private final Component[][][] componentPages;
+
+	private static final class EntityPage {
+		final UUID[] uuids = new UUID[PAGE_SIZE];
+		final BitSet[] componentBits = new BitSet[PAGE_SIZE];
+	}
+
+	private WorldSnapshot(World world, int pageCount, EntityPage[] entityPages, Component[][][] componentPages) {
+		this.world = world;
+		this.pageCount = pageCount;
+		this.entityPages = entityPages;
+		this.componentPages = componentPages;
+	}
+
+	/**
+	 * Get the world this snapshot was taken from.
+	 * 
+	 * @return the world.
+	 */
+	public World getWorld() {
+		return world;
+	}
+
+	/**
+	 * Get the number of entity pages in this snapshot.
+	 * 
+	 * @return number of pages.
+	 */
+	public int getPageCount() {
+		return pageCount;
+	}
+
+	/**
+	 * Capture the world, sharing every page that wasn't touched since the
+	 * base snapshot was taken.
+	 * 
+	 * @param world to capture.
+	 * @param base last snapshot taken of or restored into the world, or null.
+	 * @return the new snapshot.
+	 */
+	static WorldSnapshot capture(World world, WorldSnapshot base) {
+		ComponentManager cm = world.getComponentManager();
+		EntityManager em = world.getEntityManager();
+
+		int capacity = em.getEntityCapacity();
+		int pageCount = (capacity + PAGE_MASK) >>> PAGE_SHIFT;
+		int typeCount = cm.getTypeCount();
+		BitSet dirtyEntities = cm.getDirtyEntityPages();
+
+		// Pages the base snapshot has can be shared unless they were touched
+		int shared = base != null ? Math.min(base.pageCount, pageCount) : 0;
+
+		EntityPage[] entityPages = new EntityPage[pageCount];
+		if(shared > 0) {
+			System.arraycopy(base.entityPages, 0, entityPages, 0, shared);
+		}
+		for(int p = shared; pageCount > p; p++) {
+			entityPages[p] = captureEntities(em, capacity, p);
+		}
+		for(int p = dirtyEntities.nextSetBit(0); p >= 0 && shared > p; p = dirtyEntities.nextSetBit(p+1)) {
+			entityPages[p] = captureEntities(em, capacity, p);
+		}
+
+		Component[][][] componentPages = new Component[typeCount][][];
+		for(int t = 0; typeCount > t; t++) {
+			Bag<Component> components = cm.getComponentsByIndex(t);
+			BitSet dirty = cm.getDirtyPages(t);
+			Component[][] pages = new Component[pageCount][];
+			int sharedPages = base != null && base.componentPages.length > t ? shared : 0;
+			if(sharedPages > 0) {
+				System.arraycopy(base.componentPages[t], 0, pages, 0, sharedPages);
+			}
+			for(int p = sharedPages; pageCount > p; p++) {
+				pages[p] = captureComponents(em, capacity, components, p);
+			}
+			for(int p = dirty.nextSetBit(0); p >= 0 && sharedPages > p; p = dirty.nextSetBit(p+1)) {
+				pages[p] = captureComponents(em, capacity, components, p);
+			}
+			// Entities coming or going change which components are captured
+			for(int p = dirtyEntities.nextSetBit(0); p >= 0 && sharedPages > p; p = dirtyEntities.nextSetBit(p+1)) {
+				if(!dirty.get(p)) {
+					pages[p] = captureComponents(em, capacity, components, p);
+				}
+			}
+			componentPages[t] = pages;
+		}
+
+		return new WorldSnapshot(world, pageCount, entityPages, componentPages);
+	}
+
+	private static EntityPage captureEntities(EntityManager em, int capacity, int p) {
+		EntityPage page = null;
+		for(int slot = 0; PAGE_SIZE > slot; slot++) {
+			int id = (p << PAGE_SHIFT) | slot;
+			Entity e = capacity > id ? em.getEntity(id) : null;
+			if(e != null) {
+				if(page == null) {
+					page = new EntityPage();
+				}
+				page.uuids[slot] = e.getUuid();
+				page.componentBits[slot] = (BitSet)e.getComponentBits().clone();
+			}
+		}
+		return page;
+	}
+
+	private static Component[] captureComponents(EntityManager em, int capacity, Bag<Component> components, int p) {
+		Component[] page = null;
+		for(int slot = 0; PAGE_SIZE > slot; slot++) {
+			int id = (p << PAGE_SHIFT) | slot;
+			// Only capture components of entities in the world
+			if(capacity > id && em.getEntity(id) != null && components.isIndexWithinBounds(id)) {
+				Component component = components.get(id);
+				if(component != null) {
+					if(page == null) {
+						page = new Component[PAGE_SIZE];
+					}
+					page[slot] = component.copy();
+				}
+			}
+		}
+		return page;
+	}
+
+	/**
+	 * Put the state of this snapshot back into its world.
+	 * 
+	 * @param isBase true if this is the last snapshot taken of or restored
+	 *        into the world, pages not touched since then are skipped.
+	 * @param mismatched receives the pages that couldn't be fully restored.
+	 * @return number of entities that couldn't be restored.
+	 */
+	int restore(boolean isBase, BitSet mismatched) {
+		ComponentManager cm = world.getComponentManager();
+		EntityManager em = world.getEntityManager();
+
+		int capacity = em.getEntityCapacity();
+		int pages = Math.max(pageCount, (capacity + PAGE_MASK) >>> PAGE_SHIFT);
+		int typeCount = cm.getTypeCount();
+		int lost = 0;
+
+		// Only the pages touched since the base snapshot can differ from it
+		BitSet touched = isBase ? cm.getTouchedPages() : null;
+		for(int p = isBase ? touched.nextSetBit(0) : 0; p >= 0 && pages > p;
+				p = isBase ? touched.nextSetBit(p+1) : p+1) {
+			EntityPage page = pageCount > p ? entityPages[p] : null;
+			for(int slot = 0; PAGE_SIZE > slot; slot++) {
+				int id = (p << PAGE_SHIFT) | slot;
+				Entity e = capacity > id ? em.getEntity(id) : null;
+				UUID uuid = page != null ? page.uuids[slot] : null;
+
+				if(e == null || uuid == null || !uuid.equals(e.getUuid())) {
+					if(e != null) {
+						// Created after the snapshot was taken
+						world.deleteEntity(e);
+					}
+					if(uuid != null) {
+						// Deleted after the snapshot was taken
+						lost++;
+						mismatched.set(p);
+					}
+					continue;
+				}
+
+				restoreEntity(cm, e, page.componentBits[slot], p, slot, typeCount);
+			}
+		}
+		return lost;
+	}
+
+	private void restoreEntity(ComponentManager cm, Entity e, BitSet bits, int p, int slot, int typeCount) {
+		BitSet liveBits = e.getComponentBits();
+		boolean changed = false;
+
+		for(int t = 0; typeCount > t; t++) {
+			if(bits.get(t)) {
+				Component[] page = componentPages.length > t ? componentPages[t][p] : null;
+				if(page != null && page[slot] != null) {
+					// Copy again so this snapshot can be restored more than once
+					cm.setComponent(e, t, page[slot].copy());
+					changed = true;
+				}
+			} else if(liveBits.get(t)) {
+				cm.removeComponent(e, t);
+				changed = true;
+			}
+		}
+
+		if(changed) {
+			// Let managers and systems know about components that came, went
+			// or were put back, e.g. a location moving back to another square
+			world.changedEntity(e);
+		}
+	}
+}
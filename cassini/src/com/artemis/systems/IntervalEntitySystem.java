@@ -7,14 +7,31 @@ import com.artemis.EntitySystem;
 /**
  * A system that processes entities at a interval in milliseconds.
  * A typical usage would be a collision system or physics system.
- * 
+ *
+ * By default the system is processed at most once per world process, so
+ * intervals are lost when a frame takes longer than the interval. In fixed
+ * step mode the system instead catches up on every interval that elapsed,
+ * bounded by a maximum number of steps and a time budget per process. Any
+ * backlog beyond those limits is dropped so a slow frame can't snowball
+ * into ever slower frames.
+ *
  * @author Arni Arent
  *
  */
 public abstract class IntervalEntitySystem extends EntitySystem {
+	/// Default maximum number of catch up steps per process in fixed step mode
+	public static final int DEFAULT_MAX_STEPS = 5;
+
 	private float acc;
 	private float interval;
 
+	private boolean fixedStep;
+	private int maxSteps = DEFAULT_MAX_STEPS;
+	private long budgetNanos;
+	private int steps;
+	private long startNanos;
+	private int droppedSteps;
+
 	public IntervalEntitySystem(Aspect aspect, float interval) {
 		super(aspect);
 		this.interval = interval;
@@ -22,12 +39,112 @@ public abstract class IntervalEntitySystem extends EntitySystem {
 
 	@Override
 	protected boolean checkProcessing() {
+		steps = 0;
 		acc += world.getDelta();
 		if(acc >= interval) {
 			acc -= interval;
+			steps = 1;
+			if(fixedStep && budgetNanos > 0) {
+				startNanos = System.nanoTime();
+			}
 			return true;
 		}
 		return false;
 	}
 
+	@Override
+	protected boolean checkProcessingAgain() {
+		if(!fixedStep || acc < interval) {
+			return false;
+		}
+
+		// Still within our step count and time budget? then catch up one more step
+		if(steps < maxSteps &&
+		   (budgetNanos <= 0 || System.nanoTime() - startNanos < budgetNanos)) {
+			acc -= interval;
+			steps++;
+			return true;
+		}
+
+		// Out of budget, drop the backlog but keep the partial step for interpolation
+		int dropped = (int)(acc / interval);
+		droppedSteps += dropped;
+		acc -= dropped * interval;
+		return false;
+	}
+
+	/**
+	 * Enable or disable fixed step mode.
+	 *
+	 * @param fixedStep true to catch up on every elapsed interval.
+	 */
+	public void setFixedStep(boolean fixedStep) {
+		this.fixedStep = fixedStep;
+	}
+
+	public boolean isFixedStep() {
+		return fixedStep;
+	}
+
+	/**
+	 * Set the maximum number of steps run by a single process in fixed step
+	 * mode.
+	 *
+	 * @param maxSteps at least one.
+	 */
+	public void setMaxSteps(int maxSteps) {
+		this.maxSteps = Math.max(1, maxSteps);
+	}
+
+	public int getMaxSteps() {
+		return maxSteps;
+	}
+
+	/**
+	 * Set the wall clock time a single process may spend catching up in fixed
+	 * step mode. The first step always runs.
+	 *
+	 * @param budget in seconds, zero or less for no time limit.
+	 */
+	public void setBudget(float budget) {
+		this.budgetNanos = (long)(budget * 1000000000.0);
+	}
+
+	public float getBudget() {
+		return budgetNanos / 1000000000.0f;
+	}
+
+	public float getInterval() {
+		return interval;
+	}
+
+	/**
+	 * Get how far the accumulated time is into the next interval, for
+	 * interpolating rendered state between the last two steps.
+	 *
+	 * @return value between zero and one.
+	 */
+	public float getAlpha() {
+		return Math.min(1.0f, acc / interval);
+	}
+
+	/**
+	 * Get the number of steps run by the last process.
+	 *
+	 * @return steps run, zero if the system was not processed.
+	 */
+	public int getSteps() {
+		return steps;
+	}
+
+	/**
+	 * Get the number of steps dropped since the system was created because
+	 * the step count or time budget ran out.
+	 *
+	 * @return total dropped steps.
+	 */
+	public int getDroppedSteps() {
+		return droppedSteps;
+	}
+
 }
@@ -0,0 +1,138 @@
+package com.artemis.systems;
+
+import com.artemis.Aspect;
+import com.artemis.Entity;
+import com.artemis.EntitySystem;
+import com.artemis.utils.ImmutableBag;
+import com.artemis.utils.TimingWheel;
+
+/**
+ * A system that processes entities only when their own timer expires.
+ *
+ * Unlike the DelayedEntityProcessingSystem, which visits every entity each
+ * time the shortest delay runs out, this system keeps a timer per entity in
+ * a hierarchical timing wheel. Each world process only touches the entities
+ * whose timers are due, which makes it suitable for cooldowns, expirations
+ * and scripted events spread over thousands of entities.
+ *
+ * Implementation notes:
+ * When an entity is inserted, getInitialDelay(Entity e) is used to schedule
+ * it, return zero or less to leave it unscheduled. From processExpired(Entity e)
+ * you can call schedule(Entity e, float delay) to run it again later.
+ *
+ */
+public abstract class ScheduledEntityProcessingSystem extends EntitySystem implements TimingWheel.Listener {
+	/// Default time represented by a single tick of the timing wheel
+	public static final float DEFAULT_TICK_DURATION = 1.0f / 60.0f;
+
+	private final TimingWheel wheel;
+
+	public ScheduledEntityProcessingSystem(Aspect aspect) {
+		this(aspect, DEFAULT_TICK_DURATION);
+	}
+
+	/**
+	 * @param aspect to match against entities
+	 * @param tickDuration resolution of the timers in this system
+	 */
+	public ScheduledEntityProcessingSystem(Aspect aspect, float tickDuration) {
+		super(aspect);
+		wheel = new TimingWheel(tickDuration);
+	}
+
+	/**
+	 * Return the delay until this entity should first be processed.
+	 *
+	 * @param e entity
+	 * @return delay, or zero or less to not schedule the entity.
+	 */
+	protected abstract float getInitialDelay(Entity e);
+
+	/**
+	 * Process a entity whose timer has expired.
+	 *
+	 * @param e the entity to process.
+	 */
+	protected abstract void processExpired(Entity e);
+
+	/**
+	 * Schedule the entity to be processed after delay. Replaces any timer
+	 * already scheduled for the entity.
+	 *
+	 * @param e entity to schedule
+	 * @param delay until processExpired is called for the entity
+	 */
+	public void schedule(Entity e, float delay) {
+		wheel.schedule(e.getId(), delay);
+	}
+
+	/**
+	 * Cancel the timer of the entity, if any.
+	 *
+	 * @param e entity to cancel
+	 */
+	public void cancel(Entity e) {
+		wheel.cancel(e.getId());
+	}
+
+	/**
+	 * Check if the entity is waiting for its timer to expire.
+	 *
+	 * @param e entity to check
+	 * @return true if the entity is scheduled
+	 */
+	public boolean isScheduled(Entity e) {
+		return wheel.isScheduled(e.getId());
+	}
+
+	/**
+	 * Get the time left until the entity is processed.
+	 *
+	 * @param e entity to check
+	 * @return remaining delay, or zero if not scheduled
+	 */
+	public float getRemainingDelay(Entity e) {
+		return wheel.getRemaining(e.getId());
+	}
+
+	/**
+	 * Get the number of entities currently waiting on a timer.
+	 *
+	 * @return number of scheduled entities
+	 */
+	public int getScheduledCount() {
+		return wheel.size();
+	}
+
+	@Override
+	protected void inserted(Entity e) {
+		float delay = getInitialDelay(e);
+		if(delay > 0) {
+			wheel.schedule(e.getId(), delay);
+		}
+	}
+
+	@Override
+	protected void removed(Entity e) {
+		wheel.cancel(e.getId());
+	}
+
+	@Override
+	protected final void processEntities(ImmutableBag<Entity> entities) {
+		wheel.advance(world.getDelta(), this);
+	}
+
+	@Override
+	public final void expired(int id) {
+		Entity e = world.getEntity(id);
+		if(e != null) {
+			processExpired(e);
+		}
+	}
+
+	@Override
+	protected boolean checkProcessing() {
+		return true;
+	}
+
+}
@@ -0,0 +1,169 @@
+package com.artemis.utils;
+
+import com.artemis.Entity;
+
+/**
+ * Level of detail scheduler that lets a system process each entity at its own
+ * rate. A Policy assigns every entity a tick divisor, an entity with a divisor
+ * of 4 is only due every fourth tick of the system. When processed, the system
+ * is told how many ticks elapsed so it can catch up in one go.
+ *
+ * Divisors are re-evaluated every refreshTicks ticks per entity (staggered by
+ * entity id), or right away after invalidate(Entity e) is called.
+ */
+public class TickScheduler {
+	/**
+	 * Decides how often an entity should be processed.
+	 */
+	public interface Policy {
+		/**
+		 * @param e entity to evaluate
+		 * @return number of ticks between processing the entity, 1 for every tick.
+		 */
+		int getTickDivisor(Entity e);
+	}
+
+	/// Default number of ticks between re-evaluating the policy for an entity
+	public static final int DEFAULT_REFRESH_TICKS = 8;
+
+	private final Policy policy;
+	private final int refreshTicks;
+
+	private int tick;
+	private int[] divisors;
+	private int[] evaluatedAt;
+	private int[] lastProcessed;
+
+	public TickScheduler(Policy policy) {
+		this(policy, DEFAULT_REFRESH_TICKS);
+	}
+
+	/**
+	 * @param policy used to assign tick divisors.
+	 * @param refreshTicks ticks between re-evaluating the policy for an entity.
+	 */
+	public TickScheduler(Policy policy, int refreshTicks) {
+		this.policy = policy;
+		this.refreshTicks = Math.max(1, refreshTicks);
+		divisors = new int[64];
+		evaluatedAt = new int[64];
+		lastProcessed = new int[64];
+	}
+
+	/**
+	 * Advance to the next tick, call this once per processing of the system.
+	 */
+	public void nextTick() {
+		tick++;
+	}
+
+	/**
+	 * Get the current tick.
+	 *
+	 * @return number of ticks since the scheduler was created.
+	 */
+	public int getTick() {
+		return tick;
+	}
+
+	/**
+	 * Check if the entity should be processed on this tick.
+	 *
+	 * @param e entity to check
+	 * @return true if the entity is due.
+	 */
+	public boolean isDue(Entity e) {
+		int id = e.getId();
+		ensureCapacity(id);
+
+		if(divisors[id] == 0) {
+			// First time we see this entity, process it right away
+			divisors[id] = evaluate(e);
+			evaluatedAt[id] = tick - (id % refreshTicks);
+			lastProcessed[id] = tick - 1;
+			return true;
+		}
+
+		if(tick - evaluatedAt[id] >= refreshTicks) {
+			divisors[id] = evaluate(e);
+			evaluatedAt[id] = tick;
+		}
+
+		return tick - lastProcessed[id] >= divisors[id];
+	}
+
+	/**
+	 * Mark the entity as processed on this tick.
+	 *
+	 * @param e entity that is being processed
+	 * @return number of ticks elapsed since the entity was last processed.
+	 */
+	public int consume(Entity e) {
+		int id = e.getId();
+		ensureCapacity(id);
+
+		int elapsed = Math.max(1, tick - lastProcessed[id]);
+		lastProcessed[id] = tick;
+		return elapsed;
+	}
+
+	/**
+	 * Force the policy to be re-evaluated and the entity to be processed on
+	 * the next tick, e.g. after an idle entity was given new work to do.
+	 * Ticks elapsed while it was idle are dropped, so its new work doesn't
+	 * start with credit it built up at a slower divisor.
+	 *
+	 * @param e entity to invalidate
+	 */
+	public void invalidate(Entity e) {
+		int id = e.getId();
+		if(id < divisors.length && divisors[id] != 0) {
+			divisors[id] = 1;
+			evaluatedAt[id] = tick - refreshTicks;
+			lastProcessed[id] = tick;
+		}
+	}
+
+	/**
+	 * Forget everything about the entity, call this when it is removed from
+	 * the system since entity ids are reused.
+	 *
+	 * @param e entity to remove
+	 */
+	public void remove(Entity e) {
+		int id = e.getId();
+		if(id < divisors.length) {
+			divisors[id] = 0;
+		}
+	}
+
+	/**
+	 * Get the tick divisor currently assigned to the entity.
+	 *
+	 * @param e entity to check
+	 * @return the divisor, or zero if the entity has not been evaluated yet.
+	 */
+	public int getTickDivisor(Entity e) {
+		int id = e.getId();
+		return id < divisors.length ? divisors[id] : 0;
+	}
+
+	private int evaluate(Entity e) {
+		return Math.max(1, policy.getTickDivisor(e));
+	}
+
+	private void ensureCapacity(int id) {
+		if(id >= divisors.length) {
+			int capacity = Math.max(id + 1, (divisors.length * 3) / 2 + 1);
+			int[] grownDivisors = new int[capacity];
+			int[] grownEvaluatedAt = new int[capacity];
+			int[] grownLastProcessed = new int[capacity];
+			System.arraycopy(divisors, 0, grownDivisors, 0, divisors.length);
+			System.arraycopy(evaluatedAt, 0, grownEvaluatedAt, 0, evaluatedAt.length);
+			System.arraycopy(lastProcessed, 0, grownLastProcessed, 0, lastProcessed.length);
+			divisors = grownDivisors;
+			evaluatedAt = grownEvaluatedAt;
+			lastProcessed = grownLastProcessed;
+		}
+	}
+}
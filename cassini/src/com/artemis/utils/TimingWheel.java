@@ -0,0 +1,334 @@
+package com.artemis.utils;
+
+/**
+ * Hierarchical timing wheel for scheduling large numbers of timers where only
+ * a few expire at any given time.
+ *
+ * Timers are identified by a non-negative integer (typically an entity id) and
+ * are stored in intrusive linked lists inside fixed size slot arrays, so
+ * scheduling, cancelling and expiring a timer is O(1) and does not allocate
+ * once the internal arrays have grown to the highest id in use.
+ *
+ * Time is quantized into ticks of tickDuration. The first level holds timers
+ * expiring within the next 2^bits ticks, each following level covers 2^bits
+ * times the range of the level below it. Timers further away than the range
+ * of the whole wheel are parked in the top level and re-inserted when their
+ * slot comes around.
+ *
+ * Timers are not thread safe and must be scheduled from the thread that calls
+ * advance.
+ */
+public class TimingWheel {
+	/**
+	 * Receives the ids of timers as they expire.
+	 */
+	public interface Listener {
+		/**
+		 * Called when the timer for id has expired. The timer is no longer
+		 * scheduled when this is called, so it can be rescheduled from here.
+		 *
+		 * @param id of the timer that expired
+		 */
+		void expired(int id);
+	}
+
+	private static final int NONE = -1;
+	private static final int FIRING = -2;
+
+	private final float tickDuration;
+	private final int bits;
+	private final int mask;
+	private final int levels;
+	private final long range;
+
+	// Head of the linked list for each slot of each level
+	private final int[] heads;
+
+	// Per timer linked list and scheduling state, indexed by id
+	private int[] next;
+	private int[] prev;
+	private int[] slotOf;
+	private long[] expireTick;
+
+	// Ids collected while expiring a slot
+	private int[] due;
+	private int dueSize;
+
+	private long currentTick;
+	private float acc;
+	private int size;
+
+	/**
+	 * Creates a timing wheel with 64 slots per level and 4 levels, which
+	 * covers 2^24 ticks.
+	 *
+	 * @param tickDuration time represented by a single tick.
+	 */
+	public TimingWheel(float tickDuration) {
+		this(tickDuration, 6, 4);
+	}
+
+	/**
+	 * Creates a timing wheel.
+	 *
+	 * @param tickDuration time represented by a single tick.
+	 * @param bits number of bits per level, each level has 2^bits slots.
+	 * @param levels number of levels in the wheel.
+	 */
+	public TimingWheel(float tickDuration, int bits, int levels) {
+		if(tickDuration <= 0 || bits <= 0 || levels <= 0 || bits * levels > 62) {
+			throw new IllegalArgumentException("Invalid timing wheel configuration");
+		}
+		this.tickDuration = tickDuration;
+		this.bits = bits;
+		this.mask = (1 << bits) - 1;
+		this.levels = levels;
+		this.range = 1L << (bits * levels);
+
+		heads = new int[levels << bits];
+		for(int i = 0; heads.length > i; i++) {
+			heads[i] = NONE;
+		}
+
+		next = new int[0];
+		prev = new int[0];
+		slotOf = new int[0];
+		expireTick = new long[0];
+		due = new int[16];
+	}
+
+	/**
+	 * Schedule the timer for id to expire after delay. If the timer is already
+	 * scheduled it is moved to the new expiry time.
+	 *
+	 * @param id of the timer, must not be negative.
+	 * @param delay until the timer expires.
+	 */
+	public void schedule(int id, float delay) {
+		ensureCapacity(id);
+		if(slotOf[id] >= 0) {
+			unlink(id);
+		} else {
+			size++;
+		}
+
+		long ticks = (long)Math.ceil((acc + delay) / tickDuration);
+		expireTick[id] = currentTick + Math.max(1, ticks);
+		link(id);
+	}
+
+	/**
+	 * Cancel the timer for id if it is scheduled.
+	 *
+	 * @param id of the timer.
+	 */
+	public void cancel(int id) {
+		if(id < slotOf.length) {
+			if(slotOf[id] >= 0) {
+				unlink(id);
+				slotOf[id] = NONE;
+				size--;
+			} else if(slotOf[id] == FIRING) {
+				slotOf[id] = NONE;
+			}
+		}
+	}
+
+	/**
+	 * Check if the timer for id is scheduled.
+	 *
+	 * @param id of the timer.
+	 * @return true if the timer is waiting to expire.
+	 */
+	public boolean isScheduled(int id) {
+		return id < slotOf.length && slotOf[id] >= 0;
+	}
+
+	/**
+	 * Get the time left until the timer for id expires.
+	 *
+	 * @param id of the timer.
+	 * @return time remaining, or zero if the timer is not scheduled.
+	 */
+	public float getRemaining(int id) {
+		if(!isScheduled(id)) {
+			return 0;
+		}
+		return (expireTick[id] - currentTick) * tickDuration - acc;
+	}
+
+	/**
+	 * Get the number of timers currently scheduled.
+	 *
+	 * @return number of scheduled timers.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Check if no timers are scheduled.
+	 *
+	 * @return true if the wheel is empty.
+	 */
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Advance the wheel by delta time and notify listener of every timer that
+	 * expired, in order of expiry tick.
+	 *
+	 * @param delta time since the last advance.
+	 * @param listener to notify of expired timers.
+	 */
+	public void advance(float delta, Listener listener) {
+		acc += delta;
+		while(acc >= tickDuration) {
+			acc -= tickDuration;
+			tick(listener);
+		}
+	}
+
+	/**
+	 * Cancel every timer and reset the wheel back to tick zero.
+	 */
+	public void clear() {
+		for(int i = 0; heads.length > i; i++) {
+			heads[i] = NONE;
+		}
+		for(int i = 0; slotOf.length > i; i++) {
+			slotOf[i] = NONE;
+		}
+		currentTick = 0;
+		acc = 0;
+		size = 0;
+	}
+
+	private void tick(Listener listener) {
+		currentTick++;
+
+		// Cascade higher levels down whenever the level below wraps around
+		int index = (int)(currentTick & mask);
+		if(index == 0) {
+			for(int level = 1; levels > level; level++) {
+				int levelIndex = (int)((currentTick >>> (bits * level)) & mask);
+				cascade(level, levelIndex);
+				if(levelIndex != 0) {
+					break;
+				}
+			}
+		}
+
+		if(heads[index] == NONE) {
+			return;
+		}
+
+		// Detach the slot first so listeners can safely reschedule
+		dueSize = 0;
+		int id = heads[index];
+		heads[index] = NONE;
+		while(id != NONE) {
+			int following = next[id];
+			if(expireTick[id] <= currentTick) {
+				slotOf[id] = FIRING;
+				size--;
+				if(dueSize == due.length) {
+					int[] grown = new int[due.length * 2];
+					System.arraycopy(due, 0, grown, 0, dueSize);
+					due = grown;
+				}
+				due[dueSize++] = id;
+			} else {
+				// Parked beyond the range of the wheel, put it back
+				link(id);
+			}
+			id = following;
+		}
+
+		for(int i = 0; dueSize > i; i++) {
+			int expired = due[i];
+			// Skip timers cancelled by an earlier listener call
+			if(slotOf[expired] == FIRING) {
+				slotOf[expired] = NONE;
+				listener.expired(expired);
+			}
+		}
+		dueSize = 0;
+	}
+
+	private void cascade(int level, int index) {
+		int slot = (level << bits) + index;
+		int id = heads[slot];
+		heads[slot] = NONE;
+		while(id != NONE) {
+			int following = next[id];
+			link(id);
+			id = following;
+		}
+	}
+
+	private void link(int id) {
+		long ticks = expireTick[id] - currentTick;
+		long placed = expireTick[id];
+		if(ticks >= range) {
+			placed = currentTick + range - 1;
+			ticks = range - 1;
+		}
+
+		int level = 0;
+		while(levels - 1 > level && ticks >= (1L << (bits * (level + 1)))) {
+			level++;
+		}
+
+		int slot = (level << bits) + (int)((placed >>> (bits * level)) & mask);
+		int head = heads[slot];
+		next[id] = head;
+		prev[id] = NONE;
+		if(head != NONE) {
+			prev[head] = id;
+		}
+		heads[slot] = id;
+		slotOf[id] = slot;
+	}
+
+	private void unlink(int id) {
+		int slot = slotOf[id];
+		if(prev[id] != NONE) {
+			next[prev[id]] = next[id];
+		} else {
+			heads[slot] = next[id];
+		}
+		if(next[id] != NONE) {
+			prev[next[id]] = prev[id];
+		}
+		next[id] = NONE;
+		prev[id] = NONE;
+	}
+
+	private void ensureCapacity(int id) {
+		if(id < 0) {
+			throw new IllegalArgumentException("Timer id must not be negative: " + id);
+		}
+		if(id >= slotOf.length) {
+			int capacity = Math.max(id + 1, (slotOf.length * 3) / 2 + 1);
+
+			int[] grownNext = new int[capacity];
+			int[] grownPrev = new int[capacity];
+			int[] grownSlotOf = new int[capacity];
+			long[] grownExpire = new long[capacity];
+			System.arraycopy(next, 0, grownNext, 0, next.length);
+			System.arraycopy(prev, 0, grownPrev, 0, prev.length);
+			System.arraycopy(slotOf, 0, grownSlotOf, 0, slotOf.length);
+			System.arraycopy(expireTick, 0, grownExpire, 0, expireTick.length);
+			for(int i = slotOf.length; capacity > i; i++) {
+				grownSlotOf[i] = NONE;
+			}
+
+			next = grownNext;
+			prev = grownPrev;
+			slotOf = grownSlotOf;
+			expireTick = grownExpire;
+		}
+	}
+}
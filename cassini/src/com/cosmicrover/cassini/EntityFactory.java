@@ -4,14 +4,17 @@ import com.artemis.Entity;
 import com.artemis.World;
 import com.badlogic.gdx.maps.tiled.TiledMapTile;
 import com.cosmicrover.cassini.components.CameraComponent;
+import com.cosmicrover.cassini.components.FogComponent;
 import com.cosmicrover.cassini.components.GroupComponent;
-import com.cosmicrover.cassini.components.OwnerComponent;
 import com.cosmicrover.cassini.components.PropertyComponent;
 import com.cosmicrover.cassini.components.PropertyComponent.Color;
+import com.cosmicrover.cassini.components.PropertyComponent.Intensity;
 import com.cosmicrover.cassini.components.PropertyComponent.Shape;
 import com.cosmicrover.cassini.components.PropertyComponent.Size;
+import com.cosmicrover.cassini.components.PropertyComponent.Sound;
 import com.cosmicrover.cassini.components.RoverEventComponent;
 import com.cosmicrover.cassini.components.RoverInputComponent;
+import com.cosmicrover.cassini.components.RoverProgramComponent;
 import com.cosmicrover.cassini.components.LocationComponent;
 import com.cosmicrover.cassini.components.SpriteComponent;
 import com.cosmicrover.cassini.components.MapComponent;
@@ -24,13 +27,14 @@ public class EntityFactory {
 	public static final String ALL_PLAYERS_GROUP = "all_players";
 	public static final String LOCAL_PLAYERS_GROUP = "local_players";
 	public static final String REMOTE_PLAYERS_GROUP = "remote_players";
-	public static final String MASK_GROUP = "map_mask";
+	public static final String BOTS_GROUP = "bots";
 	public static final String SPRITE_GROUP = "sprites";
 	public static final String WIDGET_GROUP = "widgets";
 
 	// List of TagManager tags
 	public static final String BASE_TAG = "BASE_";
 	public static final String PLAYER_TAG = "PLAYER_";
+	public static final String BOT_TAG = "BOT_";
 	public static final String MOVE_INPUT_TAG = "MovePlayer";
 
 	// List of Health appendages for our Rover player
@@ -96,6 +100,9 @@ public class EntityFactory {
 		ViewportComponent viewport = new ViewportComponent();
 		anEntity.addComponent(viewport);
 		
+		// Add the fog of war hiding the unexplored parts of each map
+		anEntity.addComponent(new FogComponent());
+		
 		// Create and add a BoundByRadius component for the player next
 		//BoundByRadiusComponent radiusBound = new BoundByRadiusComponent(43);
 		//anEntity.addComponent(radiusBound);
@@ -121,18 +128,20 @@ public class EntityFactory {
 		anEntity.addComponent(group);
 		
 		// Add Property component for this item
-		PropertyComponent property = new PropertyComponent();
+		PropertyComponent property = new PropertyComponent(new ItemPrototype(
+				0,                         // TODO: We should have rover images be part of the tileset_items
+				PLAYER_TAG + playerId,     // TODO: We should let the player name their rover
+				PLAYER_TAG + playerId,
+				Type.Rover,
+				1000.0f,                   // mass
+				1000.0f,                   // volume
+				0,                         // You can't pick up a rover, but you can collect items inside it
+				Color.Gray,
+				Intensity.Unknown,
+				Shape.Rectangular,
+				Size.Large,
+				Sound.Unknown));
 		property.playerId = playerId;
-		property.name = PLAYER_TAG + playerId; // TODO: We should let the player name their rover
-		property.type = Type.Rover;
-		property.color = Color.Gray;
-		property.mass = 1000.0f;
-		property.volume = 1000.0f;
-		property.shape = Shape.Rectangular;
-		property.size = Size.Large;
-		property.tag = PLAYER_TAG + playerId;
-		property.tileId = 0; // TODO: We should have rover images be part of the tileset_items
-		property.worth = 0; // You can't pick up a rover, but you can collect items inside it
 		anEntity.addComponent(property);
 	
 		// Add this entity to TagManager if its property has a tag
@@ -143,6 +152,66 @@ public class EntityFactory {
 		return anEntity;
 	}
 	
+	/**
+	 * Create a rover run by a RoverProgram instead of a player. It starts at
+	 * the base of its player and keeps its own fog of war, but has no camera,
+	 * viewport or input of its own.
+	 * @param world to create the rover in
+	 * @param playerId of the player owning the rover
+	 * @param botId unique among the bots of the player
+	 * @param code from RoverProgram.assemble(), may be shared between bots
+	 * @return the rover entity, not yet added to the world
+	 */
+	public static Entity createBot(World world, int playerId, int botId, int[] code) {
+		// Create a new Entity for this bot
+		Entity anEntity = world.createEntity();
+		
+		// Add the location, sprite and events like a player rover
+		anEntity.addComponent(new LocationComponent());
+		anEntity.addComponent(new SpriteComponent());
+		anEntity.addComponent(new RoverEventComponent());
+		
+		// Add the map of its player, MapSystem places it at the player's base
+		MapComponent map = new MapComponent();
+		map.mapFilename = "maps/test.tmx";
+		anEntity.addComponent(map);
+		
+		// Add the fog of war of the squares this bot has explored
+		anEntity.addComponent(new FogComponent());
+		
+		// Add the program driving this bot
+		anEntity.addComponent(new RoverProgramComponent(code));
+		
+		// Add Group component to keep track of this entity as a batch
+		GroupComponent group = new GroupComponent();
+		group.add(SPRITE_GROUP);
+		group.add(BOTS_GROUP);
+		anEntity.addComponent(group);
+		
+		// Add Property component for this bot
+		String anTag = BOT_TAG + playerId + "_" + botId;
+		PropertyComponent property = new PropertyComponent(new ItemPrototype(
+				0,                         // TODO: We should have rover images be part of the tileset_items
+				anTag,
+				anTag,
+				Type.Rover,
+				1000.0f,                   // mass
+				1000.0f,                   // volume
+				0,                         // You can't pick up a rover, but you can collect items inside it
+				Color.Gray,
+				Intensity.Unknown,
+				Shape.Rectangular,
+				Size.Large,
+				Sound.Unknown));
+		property.playerId = playerId;
+		anEntity.addComponent(property);
+		
+		// Add this entity to TagManager using its property tag
+		world.getManager(PropertyManager.class).addTag(anEntity, property.tag);
+		
+		return anEntity;
+	}
+	
 	public static Entity createMapItem(World world, LocationComponent location, TiledMapTile tiledMapTile) {
 		// Create a new Entity for this rover
 		Entity anEntity = world.createEntity();
@@ -160,7 +229,8 @@ public class EntityFactory {
 		anEntity.addComponent(group);
 		
 		// Add Property component for this item
-		PropertyComponent property = new PropertyComponent(tiledMapTile);
+		PropertyComponent property = new PropertyComponent(
+				world.getManager(PropertyManager.class).getPrototype(tiledMapTile));
 		anEntity.addComponent(property);
 	
 		// Add this entity to TagManager if its property has a tag
@@ -170,20 +240,4 @@ public class EntityFactory {
 		
 		return anEntity;
 	}
-	
-	public static Entity createMapMask(World world, LocationComponent locationMask, String theOwnerUuid) {
-		// Create a new Entity for this rover
-		Entity anEntity = world.createEntity();
-		
-		// Add Location component provided for this entity
-		anEntity.addComponent(locationMask);
-		
-		// Add Owner component provided for this entity
-		OwnerComponent owner = new OwnerComponent();
-		owner.ownerUuid = theOwnerUuid;
-		owner.groupPrefix = MASK_GROUP + locationMask.getContextTag();
-		anEntity.addComponent(owner);
-		
-		return anEntity;
-	}
 }
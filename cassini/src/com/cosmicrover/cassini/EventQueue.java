@@ -0,0 +1,137 @@
+package com.cosmicrover.cassini;
+
+import com.cosmicrover.cassini.components.RoverEventComponent.RoverEvent;
+
+/**
+ * Queue of rover events kept in a primitive ring buffer, each event packed
+ * into a single int (see RoverEvent.pack()). Events can be added and removed
+ * at both ends in constant time, and nothing is allocated once the buffer has
+ * grown to fit the longest queue.
+ */
+public class EventQueue {
+	/// Packed events, the capacity is always a power of two
+	private int[] events;
+
+	/// Index of the first event and number of events queued
+	private int head = 0;
+	private int size = 0;
+
+	/// Set whenever an event is added, until takeAdded() is called
+	private boolean added = false;
+
+	public EventQueue() {
+		events = new int[16];
+	}
+
+	/**
+	 * Add an event to the back of the queue.
+	 * @param theId RoverEvent.EVENT_* type
+	 * @param theTarget target or destination for the event type
+	 */
+	public void addLast(int theId, int theTarget) {
+		addLastPacked(RoverEvent.pack(theId, theTarget));
+	}
+
+	public void addLastPacked(int theEvent) {
+		ensureCapacity();
+		events[(head + size) & (events.length - 1)] = theEvent;
+		size++;
+		added = true;
+	}
+
+	/**
+	 * Add an event to the front of the queue, it will be processed next.
+	 * @param theId RoverEvent.EVENT_* type
+	 * @param theTarget target or destination for the event type
+	 */
+	public void addFirst(int theId, int theTarget) {
+		addFirstPacked(RoverEvent.pack(theId, theTarget));
+	}
+
+	public void addFirstPacked(int theEvent) {
+		ensureCapacity();
+		head = (head - 1) & (events.length - 1);
+		events[head] = theEvent;
+		size++;
+		added = true;
+	}
+
+	/**
+	 * Remove the event at the front of the queue.
+	 * @return packed event, read it with RoverEvent.getId() and RoverEvent.getTarget()
+	 */
+	public int removeFirst() {
+		if(size == 0) {
+			throw new IllegalStateException("EventQueue is empty");
+		}
+		int anEvent = events[head];
+		head = (head + 1) & (events.length - 1);
+		size--;
+		return anEvent;
+	}
+
+	/**
+	 * @param theIndex from the front of the queue
+	 * @return packed event
+	 */
+	public int get(int theIndex) {
+		return events[(head + theIndex) & (events.length - 1)];
+	}
+
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Check whether events were added since the last call, and clear that.
+	 * Lets the RoverEventSystem wake a rover as soon as anything queues work
+	 * for it, without every producer having to know about the system.
+	 * @return true if an event was added since the last call
+	 */
+	public boolean takeAdded() {
+		boolean anAdded = added;
+		added = false;
+		return anAdded;
+	}
+
+	public void clear() {
+		head = 0;
+		size = 0;
+	}
+
+	/**
+	 * Replace our events with those of theQueue.
+	 * @param theQueue to copy
+	 * @return this queue
+	 */
+	public EventQueue set(EventQueue theQueue) {
+		clear();
+		for(int i = 0, s = theQueue.size; s > i; i++) {
+			addLastPacked(theQueue.get(i));
+		}
+		return this;
+	}
+
+	/**
+	 * @return copy of the packed events from front to back (for saving)
+	 */
+	public int[] toArray() {
+		int[] anEvents = new int[size];
+		for(int i = 0; size > i; i++) {
+			anEvents[i] = get(i);
+		}
+		return anEvents;
+	}
+
+	// Double the buffer when full, unwrapping the events to start at 0
+	private void ensureCapacity() {
+		if(size == events.length) {
+			int[] anEvents = new int[events.length * 2];
+			for(int i = 0; size > i; i++) {
+				anEvents[i] = get(i);
+			}
+			events = anEvents;
+			head = 0;
+		}
+	}
+}
@@ -0,0 +1,281 @@
+package com.cosmicrover.cassini;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import com.badlogic.gdx.utils.IntArray;
+import com.badlogic.gdx.utils.IntMap;
+
+/**
+ * Chooses where a rover should scan next to reveal the most of a FogMap for
+ * the least driving. Candidate scan squares lie on a lattice one stencil
+ * radius apart, and each is scored by the hidden squares its RevealStencil
+ * would show (its gain) divided by the cost of driving there.
+ *
+ * Gains are kept between calls for each FogMap and only counted again for
+ * candidates overlapping a fog chunk whose version changed since the last
+ * call, so choosing again after a scan recounts a handful of candidates.
+ * When many candidates need counting (a new map or a loaded game) they are
+ * counted in parallel on a ForkJoinPool, if the planner was created with one.
+ *
+ * Must only be used from the simulation thread.
+ */
+public class ExplorationPlanner {
+	/// Cost of a straight and a diagonal step, the same as JumpPointSearch
+	private static final int COST_STRAIGHT = 10;
+	private static final int COST_DIAGONAL = 14;
+
+	/// Candidates counted by one task before it stops splitting its work
+	private static final int TASK_CANDIDATES = 64;
+
+	/// Most fog maps gains are kept for, all are dropped when full
+	private static final int MAX_GAINS = 16;
+
+	/**
+	 * Gain of every candidate of one FogMap, and the chunk versions they
+	 * were counted at.
+	 */
+	private static class Gains {
+		int columns = 0;
+		int rows = 0;
+		/// Hidden squares around each candidate, -1 if waiting to be counted
+		int[] hidden = null;
+		/// Candidates a rover scanned from, what is still hidden around them is out of sight
+		boolean[] scanned = null;
+		int[] chunkVersions = null;
+	}
+
+	/// Stencil of a scan and the lattice spacing of candidates
+	private final RevealStencil stencil;
+	private final int stride;
+
+	/// Gains by FogMap id
+	private final IntMap<Gains> gains;
+
+	/// Candidates waiting to be counted
+	private final IntArray pending;
+
+	/// Counts pending candidates in parallel, null to count them here
+	private final ParallelCounter parallelCounter;
+
+	/**
+	 * @param theStencil revealed by a scan
+	 * @param theParallel count candidates on a ForkJoinPool, only where
+	 * java.util.concurrent.ForkJoinPool exists and there is a spare core
+	 */
+	public ExplorationPlanner(RevealStencil theStencil, boolean theParallel) {
+		stencil = theStencil;
+		stride = Math.max(1, theStencil.getRadius());
+		gains = new IntMap<Gains>();
+		pending = new IntArray();
+		parallelCounter = theParallel ? new ParallelCounter() : null;
+	}
+
+	/**
+	 * Choose the square to scan from next.
+	 * @param theFog to reveal
+	 * @param theGrid of the map, null if any square can be reached
+	 * @param x map square the rover is on
+	 * @param y map square the rover is on
+	 * @return square to scan from (see Route.pack()), or -1 if there is
+	 * nothing hidden left the rover can reach
+	 */
+	public int choose(FogMap theFog, NavigationGrid theGrid, int x, int y) {
+		Gains anGains = update(theFog);
+
+		// Pick the candidate revealing the most per cost of driving there
+		int anBest = -1;
+		float anBestScore = 0f;
+		for(int j = 0; anGains.rows > j; j++) {
+			int cy = getCandidateY(theFog, j);
+			for(int i = 0; anGains.columns > i; i++) {
+				int k = j*anGains.columns + i;
+				int anHidden = anGains.hidden[k];
+				if(anHidden <= 0 || anGains.scanned[k]) {
+					continue;
+				}
+				int cx = getCandidateX(theFog, i);
+				if(theGrid != null && !theGrid.isConnected(x, y, cx, cy)) {
+					continue;
+				}
+				// Start from a full stride so nearby candidates don't win on distance alone
+				float anScore = anHidden / (float)(stride*COST_STRAIGHT + getTravelCost(x, y, cx, cy));
+				if(anScore > anBestScore) {
+					anBestScore = anScore;
+					anBest = Route.pack(cx, cy);
+				}
+			}
+		}
+		return anBest;
+	}
+
+	/**
+	 * Tell the planner a scan from square (x, y) was completed. If that is
+	 * a candidate it isn't chosen again, the squares its scan left hidden
+	 * were out of its line of sight. Candidates chosen but never scanned
+	 * from (the rover was given other events) stay available.
+	 * @param theFog the scan revealed
+	 * @param x map square scanned from
+	 * @param y map square scanned from
+	 */
+	public void scanned(FogMap theFog, int x, int y) {
+		Gains anGains = gains.get(theFog.getId());
+		if(anGains == null) {
+			return;
+		}
+		int i = x / stride;
+		int j = y / stride;
+		if(anGains.columns > i && anGains.rows > j &&
+		   getCandidateX(theFog, i) == x && getCandidateY(theFog, j) == y) {
+			anGains.scanned[j*anGains.columns + i] = true;
+		}
+	}
+
+	/**
+	 * Drop the gains of theFog, e.g. when it is no longer used.
+	 * @param theFog to forget
+	 */
+	public void forget(FogMap theFog) {
+		gains.remove(theFog.getId());
+	}
+
+	// Bring the gains of theFog up to date and return them
+	private Gains update(FogMap theFog) {
+		Gains anGains = gains.get(theFog.getId());
+		if(anGains == null) {
+			if(gains.size >= MAX_GAINS) {
+				gains.clear();
+			}
+			anGains = new Gains();
+			anGains.columns = (theFog.getWidth() + stride - 1) / stride;
+			anGains.rows = (theFog.getHeight() + stride - 1) / stride;
+			anGains.hidden = new int[anGains.columns * anGains.rows];
+			anGains.scanned = new boolean[anGains.hidden.length];
+			anGains.chunkVersions = new int[theFog.getChunkCount()];
+			gains.put(theFog.getId(), anGains);
+
+			// Count every candidate the first time
+			pending.clear();
+			for(int k = 0, s = anGains.hidden.length; s > k; k++) {
+				anGains.hidden[k] = -1;
+				pending.add(k);
+			}
+			for(int c = 0, s = anGains.chunkVersions.length; s > c; c++) {
+				anGains.chunkVersions[c] = theFog.getChunkVersion(c);
+			}
+		} else {
+			// Only count candidates overlapping a chunk revealed since last time
+			pending.clear();
+			for(int c = 0, s = anGains.chunkVersions.length; s > c; c++) {
+				int anVersion = theFog.getChunkVersion(c);
+				if(anVersion != anGains.chunkVersions[c]) {
+					anGains.chunkVersions[c] = anVersion;
+					markChunk(theFog, anGains, c);
+				}
+			}
+		}
+
+		if(parallelCounter != null && pending.size > TASK_CANDIDATES) {
+			parallelCounter.count(this, theFog, anGains, pending.items, pending.size);
+		} else {
+			count(theFog, anGains, pending.items, 0, pending.size);
+		}
+		return anGains;
+	}
+
+	// Queue every candidate whose stencil overlaps chunk theChunk
+	private void markChunk(FogMap theFog, Gains theGains, int theChunk) {
+		int anRadius = stencil.getRadius();
+		int x0 = (theChunk % theFog.getChunksX()) << FogMap.CHUNK_SHIFT;
+		int y0 = (theChunk / theFog.getChunksX()) << FogMap.CHUNK_SHIFT;
+		int x1 = x0 + FogMap.CHUNK_SIZE - 1;
+		int y1 = y0 + FogMap.CHUNK_SIZE - 1;
+
+		// One extra candidate each side covers the last ones being clamped to the map
+		int i0 = Math.max(0, (x0 - anRadius - stride/2) / stride - 1);
+		int i1 = Math.min(theGains.columns - 1, (x1 + anRadius - stride/2) / stride + 1);
+		int j0 = Math.max(0, (y0 - anRadius - stride/2) / stride - 1);
+		int j1 = Math.min(theGains.rows - 1, (y1 + anRadius - stride/2) / stride + 1);
+		for(int j = j0; j1 >= j; j++) {
+			for(int i = i0; i1 >= i; i++) {
+				int k = j*theGains.columns + i;
+				if(theGains.hidden[k] >= 0) {
+					theGains.hidden[k] = -1;
+					pending.add(k);
+				}
+			}
+		}
+	}
+
+	// Count the hidden squares around theCandidates from theFrom to theTo (exclusive)
+	private void count(FogMap theFog, Gains theGains, int[] theCandidates, int theFrom, int theTo) {
+		for(int n = theFrom; theTo > n; n++) {
+			int k = theCandidates[n];
+			int cx = getCandidateX(theFog, k % theGains.columns);
+			int cy = getCandidateY(theFog, k / theGains.columns);
+			theGains.hidden[k] = stencil.countHidden(theFog, cx, cy);
+		}
+	}
+
+	private int getCandidateX(FogMap theFog, int i) {
+		return Math.min(i*stride + stride/2, theFog.getWidth() - 1);
+	}
+
+	private int getCandidateY(FogMap theFog, int j) {
+		return Math.min(j*stride + stride/2, theFog.getHeight() - 1);
+	}
+
+	// Cost of the shortest route with nothing in the way
+	private static int getTravelCost(int x0, int y0, int x1, int y1) {
+		int dx = Math.abs(x1 - x0);
+		int dy = Math.abs(y1 - y0);
+		return COST_STRAIGHT*Math.max(dx, dy) + (COST_DIAGONAL - COST_STRAIGHT)*Math.min(dx, dy);
+	}
+
+	/**
+	 * Splits counting over a ForkJoinPool. Kept in its own class so platforms
+	 * without ForkJoinPool never load it.
+	 */
+	private static class ParallelCounter {
+		private final ForkJoinPool pool = new ForkJoinPool();
+
+		void count(ExplorationPlanner thePlanner, FogMap theFog, Gains theGains, int[] theCandidates, int theSize) {
+			pool.invoke(new CountTask(thePlanner, theFog, theGains, theCandidates, 0, theSize));
+		}
+	}
+
+	/**
+	 * Counts a range of candidates, splitting it in half until it is small.
+	 * Each candidate is written by one task only, and nothing changes the
+	 * fog while the simulation thread waits in invoke().
+	 */
+	@SuppressWarnings("serial")
+	private static class CountTask extends RecursiveAction {
+		private final ExplorationPlanner planner;
+		private final FogMap fog;
+		private final Gains gains;
+		private final int[] candidates;
+		private final int from;
+		private final int to;
+
+		CountTask(ExplorationPlanner thePlanner, FogMap theFog, Gains theGains, int[] theCandidates, int theFrom, int theTo) {
+			planner = thePlanner;
+			fog = theFog;
+			gains = theGains;
+			candidates = theCandidates;
+			from = theFrom;
+			to = theTo;
+		}
+
+		@Override
+		protected void compute() {
+			if(to - from <= TASK_CANDIDATES) {
+				planner.count(fog, gains, candidates, from, to);
+				return;
+			}
+			int anMiddle = (from + to) >>> 1;
+			invokeAll(new CountTask(planner, fog, gains, candidates, from, anMiddle),
+					  new CountTask(planner, fog, gains, candidates, anMiddle, to));
+		}
+	}
+}
@@ -0,0 +1,212 @@
+package com.cosmicrover.cassini;
+
+/**
+ * Cost to reach one target square from every square of a NavigationGrid,
+ * and the direction to step in from each square to get there. Built once
+ * with a Dijkstra search outward from the target, after which any number of
+ * rovers heading for the same target can steer with a single lookup per step.
+ *
+ * A field remembers the grid version it was built from, see isStale().
+ */
+public class FlowField {
+	/// Cost of a straight and a diagonal step
+	private static final int COST_STRAIGHT = 10;
+	private static final int COST_DIAGONAL = 14;
+
+	/// Cost of a square the target can't be reached from
+	public static final int UNREACHABLE = Integer.MAX_VALUE;
+
+	/// Step of each RoverEvent.DIR_* direction, DIR_E (0) to DIR_SE (7)
+	private static final int[] STEP_X = { 1, 1, 0, -1, -1, -1,  0,  1 };
+	private static final int[] STEP_Y = { 0, 1, 1,  1,  0, -1, -1, -1 };
+
+	/// Grid and version the field was built from
+	private NavigationGrid grid = null;
+	private int gridVersion = -1;
+
+	/// Target square
+	private int targetX = 0;
+	private int targetY = 0;
+
+	/// Integration field, cost to reach the target from each square
+	private int[] costs = new int[0];
+
+	/// RoverEvent.DIR_* direction to step in from each square, -1 if none
+	private byte[] directions = new byte[0];
+
+	/// Open squares ordered by cost, and where each square is in the heap,
+	/// kept between builds like costs and directions
+	private int[] heap = new int[0];
+	private int[] heapIndex = new int[0];
+
+	/**
+	 * Build the field for theTarget on theGrid, reusing our arrays when they
+	 * are big enough.
+	 * @param theGrid to build the field over
+	 * @param theTargetX map square to reach
+	 * @param theTargetY map square to reach
+	 */
+	public void build(NavigationGrid theGrid, int theTargetX, int theTargetY) {
+		grid = theGrid;
+		gridVersion = theGrid.getVersion();
+		targetX = theTargetX;
+		targetY = theTargetY;
+
+		int anWidth = theGrid.getWidth();
+		int anSize = anWidth * theGrid.getHeight();
+		if(costs.length != anSize) {
+			costs = new int[anSize];
+			directions = new byte[anSize];
+			heap = new int[anSize];
+			heapIndex = new int[anSize];
+		}
+		for(int i = 0; anSize > i; i++) {
+			costs[i] = UNREACHABLE;
+			directions[i] = -1;
+		}
+		if(!theGrid.isWalkable(theTargetX, theTargetY)) {
+			return;
+		}
+
+		// Dijkstra outward from the target, steps are the same both ways
+		int anHeapSize = 0;
+		int anTarget = theTargetY*anWidth + theTargetX;
+		costs[anTarget] = 0;
+		heap[anHeapSize] = anTarget;
+		heapIndex[anTarget] = anHeapSize++;
+		while(anHeapSize > 0) {
+			int anNode = heap[0];
+			heapIndex[anNode] = -1;
+			if(--anHeapSize > 0) {
+				heap[0] = heap[anHeapSize];
+				heapIndex[heap[0]] = 0;
+				siftDown(anHeapSize, 0);
+			}
+
+			int x = anNode % anWidth;
+			int y = anNode / anWidth;
+			for(int d = 0; 8 > d; d++) {
+				if(!canStep(x, y, STEP_X[d], STEP_Y[d])) {
+					continue;
+				}
+				int anNext = anNode + STEP_Y[d]*anWidth + STEP_X[d];
+				int anCost = costs[anNode] + ((d & 1) == 0 ? COST_STRAIGHT : COST_DIAGONAL);
+				if(anCost < costs[anNext]) {
+					boolean anQueued = costs[anNext] != UNREACHABLE;
+					costs[anNext] = anCost;
+					// Step back towards the square we came from
+					directions[anNext] = (byte)((d + 4) & 7);
+					if(!anQueued) {
+						heap[anHeapSize] = anNext;
+						heapIndex[anNext] = anHeapSize++;
+					}
+					siftUp(heapIndex[anNext]);
+				}
+			}
+		}
+	}
+
+	// A diagonal step needs both squares beside it open, we don't cut corners
+	private boolean canStep(int x, int y, int dx, int dy) {
+		if(!grid.isWalkable(x+dx, y+dy)) {
+			return false;
+		}
+		return dx == 0 || dy == 0 || (grid.isWalkable(x+dx, y) && grid.isWalkable(x, y+dy));
+	}
+
+	private void siftUp(int theIndex) {
+		int anNode = heap[theIndex];
+		while(theIndex > 0) {
+			int anParent = (theIndex - 1) >> 1;
+			if(costs[heap[anParent]] <= costs[anNode]) {
+				break;
+			}
+			heap[theIndex] = heap[anParent];
+			heapIndex[heap[theIndex]] = theIndex;
+			theIndex = anParent;
+		}
+		heap[theIndex] = anNode;
+		heapIndex[anNode] = theIndex;
+	}
+
+	private void siftDown(int theSize, int theIndex) {
+		int anNode = heap[theIndex];
+		while(true) {
+			int anChild = (theIndex << 1) + 1;
+			if(anChild >= theSize) {
+				break;
+			}
+			if(anChild + 1 < theSize && costs[heap[anChild+1]] < costs[heap[anChild]]) {
+				anChild++;
+			}
+			if(costs[anNode] <= costs[heap[anChild]]) {
+				break;
+			}
+			heap[theIndex] = heap[anChild];
+			heapIndex[heap[theIndex]] = theIndex;
+			theIndex = anChild;
+		}
+		heap[theIndex] = anNode;
+		heapIndex[anNode] = theIndex;
+	}
+
+	/**
+	 * @return true if the grid changed since the field was built
+	 */
+	public boolean isStale() {
+		return grid == null || grid.getVersion() != gridVersion;
+	}
+
+	public NavigationGrid getGrid() {
+		return grid;
+	}
+
+	public int getTargetX() {
+		return targetX;
+	}
+
+	public int getTargetY() {
+		return targetY;
+	}
+
+	/**
+	 * @param x map square
+	 * @param y map square
+	 * @return RoverEvent.DIR_* direction to step in towards the target, -1 at
+	 * the target, outside the map, or where the target can't be reached
+	 */
+	public int getDirection(int x, int y) {
+		if(x < 0 || y < 0 || x >= grid.getWidth() || y >= grid.getHeight()) {
+			return -1;
+		}
+		return directions[y*grid.getWidth() + x];
+	}
+
+	/**
+	 * @param x map square
+	 * @param y map square
+	 * @return cost to reach the target (10 per straight step, 14 per diagonal step), or UNREACHABLE
+	 */
+	public int getCost(int x, int y) {
+		if(x < 0 || y < 0 || x >= grid.getWidth() || y >= grid.getHeight()) {
+			return UNREACHABLE;
+		}
+		return costs[y*grid.getWidth() + x];
+	}
+
+	/**
+	 * @param theDirection RoverEvent.DIR_E to RoverEvent.DIR_SE
+	 * @return x step of the direction
+	 */
+	public static int getStepX(int theDirection) {
+		return STEP_X[theDirection];
+	}
+
+	/**
+	 * @param theDirection RoverEvent.DIR_E to RoverEvent.DIR_SE
+	 * @return y step of the direction
+	 */
+	public static int getStepY(int theDirection) {
+		return STEP_Y[theDirection];
+	}
+}
@@ -0,0 +1,149 @@
+package com.cosmicrover.cassini;
+
+import com.badlogic.gdx.utils.IntArray;
+
+/**
+ * Triangles covering the hidden squares of a FogMap, kept per FogMap chunk so
+ * a reveal only rebuilds the chunks it touched. Each run of hidden squares on
+ * a row becomes one quad (two triangles, x and y per vertex) in level
+ * coordinates.
+ *
+ * This only builds vertex arrays and doesn't touch OpenGL, uploading and
+ * drawing them is up to the caller (see FogOverlay).
+ */
+public class FogGeometry {
+	/// Floats per vertex (x, y) and vertices per quad (two triangles)
+	public static final int VERTEX_SIZE = 2;
+	public static final int QUAD_VERTICES = 6;
+
+	/// Most vertices a chunk can need, every other square hidden
+	public static final int MAX_CHUNK_VERTICES =
+			FogMap.CHUNK_SIZE * ((FogMap.CHUNK_SIZE + 1) / 2) * QUAD_VERTICES;
+
+	/// FogMap the chunks were built from, and the versions they were built at
+	private int fogId = -1;
+	private int[] builtVersions = new int[0];
+
+	/// Size of a map square the chunks were built with
+	private float gridX = 0;
+	private float gridY = 0;
+
+	/// Vertices and vertex count of each chunk
+	private float[][] chunkVertices = new float[0][];
+	private int[] chunkVertexCounts = new int[0];
+
+	/// Chunks are built here first, then copied into an array just big enough
+	private final float[] scratch = new float[MAX_CHUNK_VERTICES * VERTEX_SIZE];
+
+	/**
+	 * Rebuild the chunks that changed since the last update. Everything is
+	 * rebuilt if theFog is a different FogMap or the grid size changed.
+	 * @param theFog to build the geometry for
+	 * @param theGridX width of a map square in level coordinates
+	 * @param theGridY height of a map square in level coordinates
+	 * @param theRebuilt receives the index of each chunk rebuilt, may be null
+	 * @return number of chunks rebuilt
+	 */
+	public int update(FogMap theFog, float theGridX, float theGridY, IntArray theRebuilt) {
+		int anCount = theFog.getChunkCount();
+		boolean anAll = theFog.getId() != fogId || theGridX != gridX || theGridY != gridY
+				|| anCount != chunkVertices.length;
+		if(anAll) {
+			fogId = theFog.getId();
+			gridX = theGridX;
+			gridY = theGridY;
+			if(anCount != chunkVertices.length) {
+				builtVersions = new int[anCount];
+				chunkVertices = new float[anCount][];
+				chunkVertexCounts = new int[anCount];
+			}
+		}
+
+		int anRebuilt = 0;
+		for(int i = 0; anCount > i; i++) {
+			int anVersion = theFog.getChunkVersion(i);
+			if(anAll || builtVersions[i] != anVersion) {
+				buildChunk(theFog, i);
+				builtVersions[i] = anVersion;
+				anRebuilt++;
+				if(theRebuilt != null) {
+					theRebuilt.add(i);
+				}
+			}
+		}
+		return anRebuilt;
+	}
+
+	private void buildChunk(FogMap theFog, int theChunk) {
+		float[] anVertices = scratch;
+		int anWidth = theFog.getWidth();
+		int x0 = (theChunk % theFog.getChunksX()) << FogMap.CHUNK_SHIFT;
+		int y0 = (theChunk / theFog.getChunksX()) << FogMap.CHUNK_SHIFT;
+		int x1 = Math.min(x0 + FogMap.CHUNK_SIZE, anWidth);
+		int y1 = Math.min(y0 + FogMap.CHUNK_SIZE, theFog.getHeight());
+
+		// One quad per run of hidden squares on each row of the chunk
+		int v = 0;
+		for(int y = y0; y1 > y; y++) {
+			int anRow = y*anWidth;
+			int anStart = theFog.nextHidden(anRow + x0);
+			while(anStart >= 0 && anStart < anRow + x1) {
+				int anEnd = theFog.nextRevealed(anStart);
+				if(anEnd < 0 || anEnd > anRow + x1) {
+					anEnd = anRow + x1;
+				}
+				float left = (anStart - anRow) * gridX;
+				float right = (anEnd - anRow) * gridX;
+				float bottom = y * gridY;
+				float top = bottom + gridY;
+				v = addVertex(anVertices, v, left, bottom);
+				v = addVertex(anVertices, v, right, bottom);
+				v = addVertex(anVertices, v, right, top);
+				v = addVertex(anVertices, v, right, top);
+				v = addVertex(anVertices, v, left, top);
+				v = addVertex(anVertices, v, left, bottom);
+				anStart = theFog.nextHidden(anEnd);
+			}
+		}
+		chunkVertexCounts[theChunk] = v / VERTEX_SIZE;
+
+		// Keep the vertices, most chunks are a lot smaller than the worst case
+		if(chunkVertices[theChunk] == null || chunkVertices[theChunk].length < v) {
+			chunkVertices[theChunk] = new float[v];
+		}
+		System.arraycopy(scratch, 0, chunkVertices[theChunk], 0, v);
+	}
+
+	private static int addVertex(float[] theVertices, int theOffset, float x, float y) {
+		theVertices[theOffset] = x;
+		theVertices[theOffset+1] = y;
+		return theOffset + VERTEX_SIZE;
+	}
+
+	public int getChunkCount() {
+		return chunkVertices.length;
+	}
+
+	/**
+	 * @param theChunk index
+	 * @return vertices of the chunk, only the first getVertexCount() are valid
+	 */
+	public float[] getVertices(int theChunk) {
+		return chunkVertices[theChunk];
+	}
+
+	public int getVertexCount(int theChunk) {
+		return chunkVertexCounts[theChunk];
+	}
+
+	/**
+	 * @return total number of vertices over all chunks
+	 */
+	public int getVertexCount() {
+		int anTotal = 0;
+		for(int i = 0; chunkVertexCounts.length > i; i++) {
+			anTotal += chunkVertexCounts[i];
+		}
+		return anTotal;
+	}
+}
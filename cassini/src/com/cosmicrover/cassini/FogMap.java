@@ -0,0 +1,344 @@
+package com.cosmicrover.cassini;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.badlogic.gdx.utils.IntArray;
+
+/**
+ * Fog of war for a single map, one bit per map square packed into longs
+ * (row major, a set bit means the square has been revealed). A 256x256 map
+ * only needs 8 KB no matter how much of it has been explored.
+ *
+ * Spans are revealed a word at a time, and runs of hidden or revealed squares
+ * can be walked with nextHidden() and nextRevealed() to draw or save the fog
+ * without visiting every square.
+ *
+ * The map is also divided into chunks of CHUNK_SIZE x CHUNK_SIZE squares with
+ * a version each, bumped whenever a square in the chunk is revealed, so
+ * anything built from the fog only needs rebuilding for chunks that changed.
+ */
+public class FogMap {
+	private static final int WORD_SHIFT = 6;
+	private static final int WORD_MASK = 63;
+	private static final long ALL_BITS = 0xffffffffffffffffL;
+
+	/// Chunks are CHUNK_SIZE x CHUNK_SIZE squares
+	public static final int CHUNK_SHIFT = 4;
+	public static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+
+	/// Used to give each FogMap its own id, fogs are made on the loading and simulation threads
+	private static final AtomicInteger nextId = new AtomicInteger();
+
+	/// Size of the map in squares
+	private final int width;
+	private final int height;
+
+	/// Revealed bits, square (x,y) is bit y*width+x
+	private final long[] words;
+
+	/// Number of bits set in words
+	private int revealedCount = 0;
+
+	/// Identifies this fog, copies made by copyTo() share the id
+	private int id;
+
+	/// Number of chunks across, and the version of each chunk and of the whole map
+	private final int chunksX;
+	private final int[] chunkVersions;
+	private int version = 0;
+
+	public FogMap(int width, int height) {
+		this.width = width;
+		this.height = height;
+		words = new long[((width*height) + WORD_MASK) >> WORD_SHIFT];
+		chunksX = (width + CHUNK_SIZE - 1) >> CHUNK_SHIFT;
+		chunkVersions = new int[chunksX * ((height + CHUNK_SIZE - 1) >> CHUNK_SHIFT)];
+		id = nextId.getAndIncrement();
+	}
+
+	public FogMap(FogMap clone) {
+		this(clone.width, clone.height);
+		System.arraycopy(clone.words, 0, words, 0, words.length);
+		revealedCount = clone.revealedCount;
+	}
+
+	/**
+	 * Copy this fog into theCopy, for example to hand it to another thread.
+	 * Nothing is copied when theCopy is already up to date.
+	 * @param theCopy to copy into, may be null
+	 * @return theCopy, or a new FogMap if theCopy was null or a different size
+	 */
+	public FogMap copyTo(FogMap theCopy) {
+		if(theCopy == null || theCopy.width != width || theCopy.height != height) {
+			theCopy = new FogMap(width, height);
+		} else if(theCopy.id == id && theCopy.version == version) {
+			return theCopy;
+		}
+		System.arraycopy(words, 0, theCopy.words, 0, words.length);
+		System.arraycopy(chunkVersions, 0, theCopy.chunkVersions, 0, chunkVersions.length);
+		theCopy.revealedCount = revealedCount;
+		theCopy.version = version;
+		theCopy.id = id;
+		return theCopy;
+	}
+
+	public int getId() {
+		return id;
+	}
+
+	public int getVersion() {
+		return version;
+	}
+
+	public int getChunksX() {
+		return chunksX;
+	}
+
+	public int getChunkCount() {
+		return chunkVersions.length;
+	}
+
+	/**
+	 * @param theChunk index, cy*getChunksX()+cx
+	 * @return version of the chunk, changes whenever a square in it is revealed
+	 */
+	public int getChunkVersion(int theChunk) {
+		return chunkVersions[theChunk];
+	}
+
+	public int getWidth() {
+		return width;
+	}
+
+	public int getHeight() {
+		return height;
+	}
+
+	public int getSize() {
+		return width*height;
+	}
+
+	public int getRevealedCount() {
+		return revealedCount;
+	}
+
+	public boolean contains(int x, int y) {
+		return x >= 0 && y >= 0 && x < width && y < height;
+	}
+
+	/**
+	 * Squares outside the map have no fog and are always revealed.
+	 * @param x map square
+	 * @param y map square
+	 * @return true if the square has been revealed
+	 */
+	public boolean isRevealed(int x, int y) {
+		if(!contains(x, y)) {
+			return true;
+		}
+		int anIndex = y*width+x;
+		return (words[anIndex >> WORD_SHIFT] & (1L << anIndex)) != 0;
+	}
+
+	/**
+	 * Reveal a single square, squares outside the map are ignored.
+	 * @param x map square
+	 * @param y map square
+	 * @return true if the square was hidden before
+	 */
+	public boolean reveal(int x, int y) {
+		if(!contains(x, y)) {
+			return false;
+		}
+		int anIndex = y*width+x;
+		long anBit = 1L << anIndex;
+		long anWord = words[anIndex >> WORD_SHIFT];
+		if((anWord & anBit) != 0) {
+			return false;
+		}
+		words[anIndex >> WORD_SHIFT] = anWord | anBit;
+		revealedCount++;
+		chunkVersions[(y >> CHUNK_SHIFT)*chunksX + (x >> CHUNK_SHIFT)]++;
+		version++;
+		return true;
+	}
+
+	/**
+	 * Reveal the squares from x0 to x1 (inclusive) on row y, a whole word at a
+	 * time. The span is clipped to the map.
+	 * @param y map row
+	 * @param x0 first map column
+	 * @param x1 last map column
+	 * @return number of squares that were hidden before
+	 */
+	public int revealSpan(int y, int x0, int x1) {
+		if(y < 0 || y >= height) {
+			return 0;
+		}
+		x0 = Math.max(x0, 0);
+		x1 = Math.min(x1, width-1);
+		if(x0 > x1) {
+			return 0;
+		}
+		return revealBits(y*width+x0, y*width+x1);
+	}
+
+	/**
+	 * Count the hidden squares from x0 to x1 (inclusive) on row y, a whole
+	 * word at a time. The span is clipped to the map.
+	 * @param y map row
+	 * @param x0 first map column
+	 * @param x1 last map column
+	 * @return number of hidden squares
+	 */
+	public int countHidden(int y, int x0, int x1) {
+		if(y < 0 || y >= height) {
+			return 0;
+		}
+		x0 = Math.max(x0, 0);
+		x1 = Math.min(x1, width-1);
+		if(x0 > x1) {
+			return 0;
+		}
+		int anFrom = y*width+x0;
+		int anTo = y*width+x1;
+		int anFirstWord = anFrom >> WORD_SHIFT;
+		int anLastWord = anTo >> WORD_SHIFT;
+		int anHidden = 0;
+		for(int w = anFirstWord; anLastWord >= w; w++) {
+			long anMask = ALL_BITS;
+			if(w == anFirstWord) {
+				anMask &= ALL_BITS << anFrom;
+			}
+			if(w == anLastWord) {
+				anMask &= ALL_BITS >>> (WORD_MASK - (anTo & WORD_MASK));
+			}
+			anHidden += Long.bitCount(anMask & ~words[w]);
+		}
+		return anHidden;
+	}
+
+	// Set the bits from theFrom to theTo (inclusive) and count the new ones
+	private int revealBits(int theFrom, int theTo) {
+		int anFirstWord = theFrom >> WORD_SHIFT;
+		int anLastWord = theTo >> WORD_SHIFT;
+		int anRevealed = 0;
+		for(int w = anFirstWord; anLastWord >= w; w++) {
+			long anMask = ALL_BITS;
+			if(w == anFirstWord) {
+				anMask &= ALL_BITS << theFrom;
+			}
+			if(w == anLastWord) {
+				anMask &= ALL_BITS >>> (WORD_MASK - (theTo & WORD_MASK));
+			}
+			anRevealed += Long.bitCount(anMask & ~words[w]);
+			words[w] |= anMask;
+		}
+		if(anRevealed > 0) {
+			revealedCount += anRevealed;
+			touchChunks(theFrom, theTo);
+		}
+		return anRevealed;
+	}
+
+	// Bump the versions of the chunks holding the squares theFrom to theTo (inclusive)
+	private void touchChunks(int theFrom, int theTo) {
+		int anFirstRow = theFrom / width;
+		int anLastRow = theTo / width;
+		for(int y = anFirstRow; anLastRow >= y; y++) {
+			int x0 = y == anFirstRow ? theFrom % width : 0;
+			int x1 = y == anLastRow ? theTo % width : width-1;
+			int anRow = (y >> CHUNK_SHIFT)*chunksX;
+			for(int cx = x0 >> CHUNK_SHIFT, cx1 = x1 >> CHUNK_SHIFT; cx1 >= cx; cx++) {
+				chunkVersions[anRow + cx]++;
+			}
+		}
+		version++;
+	}
+
+	/**
+	 * Hide every square again.
+	 */
+	public void hideAll() {
+		for(int i = 0; words.length > i; i++) {
+			words[i] = 0;
+		}
+		for(int i = 0; chunkVersions.length > i; i++) {
+			chunkVersions[i]++;
+		}
+		revealedCount = 0;
+		version++;
+	}
+
+	/**
+	 * Find the next revealed square at or after theIndex (y*width+x).
+	 * @param theIndex to start looking from
+	 * @return index of the revealed square, or -1 if there is none
+	 */
+	public int nextRevealed(int theIndex) {
+		return nextBit(theIndex, 0);
+	}
+
+	/**
+	 * Find the next hidden square at or after theIndex (y*width+x).
+	 * @param theIndex to start looking from
+	 * @return index of the hidden square, or -1 if there is none
+	 */
+	public int nextHidden(int theIndex) {
+		return nextBit(theIndex, ALL_BITS);
+	}
+
+	// Skip whole words that don't have what we are looking for
+	private int nextBit(int theIndex, long theFlip) {
+		int anSize = getSize();
+		if(theIndex < 0 || theIndex >= anSize) {
+			return -1;
+		}
+		int w = theIndex >> WORD_SHIFT;
+		long anWord = (words[w] ^ theFlip) & (ALL_BITS << theIndex);
+		while(anWord == 0) {
+			if(++w == words.length) {
+				return -1;
+			}
+			anWord = words[w] ^ theFlip;
+		}
+		int anIndex = (w << WORD_SHIFT) + Long.numberOfTrailingZeros(anWord);
+		return anIndex < anSize ? anIndex : -1;
+	}
+
+	/**
+	 * Collect the revealed squares as runs of (start index, length) pairs,
+	 * which is how the fog is saved.
+	 * @param theRuns receives the runs, it is not cleared first
+	 * @return theRuns
+	 */
+	public IntArray getRevealedRuns(IntArray theRuns) {
+		int anSize = getSize();
+		int anStart = nextRevealed(0);
+		while(anStart >= 0) {
+			int anEnd = nextHidden(anStart);
+			if(anEnd < 0) {
+				anEnd = anSize;
+			}
+			theRuns.add(anStart);
+			theRuns.add(anEnd - anStart);
+			anStart = nextRevealed(anEnd);
+		}
+		return theRuns;
+	}
+
+	/**
+	 * Reveal the runs of (start index, length) pairs from getRevealedRuns().
+	 * @param theRuns to reveal
+	 */
+	public void revealRuns(int[] theRuns) {
+		int anSize = getSize();
+		for(int i = 0; theRuns.length > i+1; i += 2) {
+			int anFrom = Math.max(theRuns[i], 0);
+			int anTo = Math.min(theRuns[i] + theRuns[i+1], anSize) - 1;
+			if(anFrom <= anTo) {
+				revealBits(anFrom, anTo);
+			}
+		}
+	}
+}
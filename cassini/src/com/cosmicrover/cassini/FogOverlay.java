@@ -0,0 +1,98 @@
+package com.cosmicrover.cassini;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.graphics.GL10;
+import com.badlogic.gdx.graphics.Mesh;
+import com.badlogic.gdx.graphics.OrthographicCamera;
+import com.badlogic.gdx.graphics.VertexAttribute;
+import com.badlogic.gdx.graphics.VertexAttributes.Usage;
+import com.badlogic.gdx.graphics.glutils.ShaderProgram;
+import com.badlogic.gdx.utils.IntArray;
+
+/**
+ * Draws the fog of war of one view from retained meshes, one per FogMap
+ * chunk. Meshes are only uploaded again for chunks the FogGeometry rebuilt,
+ * so a frame where nothing was revealed just issues one draw call per chunk.
+ * Must only be used on the render thread.
+ */
+public class FogOverlay {
+	/// Smallest mesh created for a chunk, to avoid recreating it for every reveal
+	private static final int MIN_MESH_VERTICES = 16 * FogGeometry.QUAD_VERTICES;
+
+	/// Geometry of every chunk
+	private final FogGeometry geometry = new FogGeometry();
+
+	/// Mesh of each chunk, null until the chunk has any vertices
+	private Mesh[] meshes = new Mesh[0];
+
+	/// Chunks rebuilt by the last update
+	private final IntArray rebuilt = new IntArray();
+
+	/**
+	 * Upload the chunks of theFog that changed since the last update.
+	 * @param theFog to draw
+	 * @param theGridX width of a map square in level coordinates
+	 * @param theGridY height of a map square in level coordinates
+	 */
+	public void update(FogMap theFog, float theGridX, float theGridY) {
+		rebuilt.clear();
+		if(geometry.update(theFog, theGridX, theGridY, rebuilt) == 0) {
+			return;
+		}
+
+		// A different map size means a different set of chunks
+		if(meshes.length != geometry.getChunkCount()) {
+			dispose();
+			meshes = new Mesh[geometry.getChunkCount()];
+		}
+
+		for(int i = 0, s = rebuilt.size; s > i; i++) {
+			int anChunk = rebuilt.get(i);
+			int anCount = geometry.getVertexCount(anChunk);
+			Mesh anMesh = meshes[anChunk];
+			if(anCount == 0) {
+				continue;
+			}
+			// Grow the mesh if the chunk no longer fits
+			if(anMesh == null || anMesh.getMaxVertices() < anCount) {
+				if(anMesh != null) {
+					anMesh.dispose();
+				}
+				anMesh = new Mesh(false, Math.max(anCount, MIN_MESH_VERTICES), 0,
+						new VertexAttribute(Usage.Position, FogGeometry.VERTEX_SIZE, ShaderProgram.POSITION_ATTRIBUTE));
+				meshes[anChunk] = anMesh;
+			}
+			anMesh.setVertices(geometry.getVertices(anChunk), 0, anCount * FogGeometry.VERTEX_SIZE);
+		}
+	}
+
+	/**
+	 * Draw every chunk with hidden squares as opaque black.
+	 * @param theCamera world camera of the view
+	 */
+	public void render(OrthographicCamera theCamera) {
+		GL10 gl = Gdx.gl10;
+		gl.glMatrixMode(GL10.GL_PROJECTION);
+		gl.glLoadMatrixf(theCamera.combined.val, 0);
+		gl.glMatrixMode(GL10.GL_MODELVIEW);
+		gl.glLoadIdentity();
+		gl.glDisable(GL10.GL_TEXTURE_2D);
+		gl.glColor4f(0, 0, 0, 1);
+		for(int i = 0; meshes.length > i; i++) {
+			int anCount = geometry.getVertexCount(i);
+			if(anCount > 0 && meshes[i] != null) {
+				meshes[i].render(GL10.GL_TRIANGLES, 0, anCount);
+			}
+		}
+		gl.glColor4f(1, 1, 1, 1);
+	}
+
+	public void dispose() {
+		for(int i = 0; meshes.length > i; i++) {
+			if(meshes[i] != null) {
+				meshes[i].dispose();
+				meshes[i] = null;
+			}
+		}
+	}
+}
@@ -0,0 +1,196 @@
+package com.cosmicrover.cassini;
+
+import com.badlogic.gdx.maps.MapProperties;
+import com.badlogic.gdx.maps.tiled.TiledMapTile;
+import com.badlogic.gdx.utils.ObjectMap;
+import com.cosmicrover.cassini.components.PropertyComponent.Color;
+import com.cosmicrover.cassini.components.PropertyComponent.Intensity;
+import com.cosmicrover.cassini.components.PropertyComponent.Shape;
+import com.cosmicrover.cassini.components.PropertyComponent.Size;
+import com.cosmicrover.cassini.components.PropertyComponent.Sound;
+import com.cosmicrover.cassini.components.PropertyComponent.Type;
+
+/**
+ * The values every item made from the same tile has in common, parsed once
+ * from the tile properties and shared by the PropertyComponent of each of
+ * those items. A prototype never changes, an item with different values
+ * uses another prototype.
+ *
+ * Prototypes are interned (see intern()), so items read from a saved game
+ * share the same prototype as items made from the tile.
+ */
+public final class ItemPrototype {
+	/// Tile properties that might exist
+	public static final String PROPERTY_ITEM_COLOR  = "itemcolor";
+	public static final String PROPERTY_ITEM_MASS   = "itemmass";
+	public static final String PROPERTY_ITEM_NAME   = "itemname";
+	public static final String PROPERTY_ITEM_TYPE   = "itemtype";
+	public static final String PROPERTY_ITEM_SHAPE  = "itemshape";
+	public static final String PROPERTY_ITEM_SIZE   = "itemsize";
+	public static final String PROPERTY_ITEM_SOUND  = "itemsound";
+	public static final String PROPERTY_ITEM_VOLUME = "itemvolume";
+	public static final String PROPERTY_ITEM_WORTH  = "itemworth";
+	public static final String PROPERTY_ITEM_TAG    = "itemtag";
+
+	/// Values of each enum, values() makes a new array every call
+	private static final Type[] TYPES = Type.values();
+	private static final Color[] COLORS = Color.values();
+	private static final Shape[] SHAPES = Shape.values();
+	private static final Size[] SIZES = Size.values();
+	private static final Sound[] SOUNDS = Sound.values();
+
+	/// Prototype of anything we know nothing about
+	public static final ItemPrototype UNKNOWN = new ItemPrototype(0, "Unknown", "", Type.Unknown,
+			0.0f, 0.0f, 0, Color.Unknown, Intensity.Unknown, Shape.Unknown, Size.Unknown, Sound.Unknown);
+
+	/// Prototypes interned so far, each maps to itself
+	private static final ObjectMap<ItemPrototype, ItemPrototype> prototypes = new ObjectMap<ItemPrototype, ItemPrototype>();
+
+	/// Defines the tileId in the tileset for which this item came from
+	public final int       tileId;
+	public final String    name;
+	/// Tag given to items made from this prototype (see PropertyComponent.tag)
+	public final String    tag;
+	public final Type      type;
+	public final float     mass;
+	public final float     volume;
+	public final int       worth;
+	public final Color     color;
+	public final Intensity intensity;
+	public final Shape     shape;
+	public final Size      size;
+	public final Sound     sound;
+
+	public ItemPrototype(int tileId, String name, String tag, Type type,
+			float mass, float volume, int worth, Color color, Intensity intensity,
+			Shape shape, Size size, Sound sound) {
+		this.tileId = tileId;
+		this.name = name;
+		this.tag = tag;
+		this.type = type;
+		this.mass = mass;
+		this.volume = volume;
+		this.worth = worth;
+		this.color = color;
+		this.intensity = intensity;
+		this.shape = shape;
+		this.size = size;
+		this.sound = sound;
+	}
+
+	/**
+	 * Parse the item properties of a tile, missing or unknown values are
+	 * left at the values of UNKNOWN.
+	 * @param theTile to parse
+	 * @return new prototype, see intern() to share it
+	 */
+	public static ItemPrototype fromTile(TiledMapTile theTile) {
+		MapProperties anProperties = theTile.getProperties();
+		String anName = anProperties.get(PROPERTY_ITEM_NAME, String.class);
+		String anTag = anProperties.get(PROPERTY_ITEM_TAG, String.class);
+		return new ItemPrototype(
+				theTile.getId(),
+				anName != null ? anName : UNKNOWN.name,
+				anTag != null ? anTag : UNKNOWN.tag,
+				parseEnum(TYPES, anProperties.get(PROPERTY_ITEM_TYPE, String.class), UNKNOWN.type),
+				parseFloat(anProperties.get(PROPERTY_ITEM_MASS, String.class), UNKNOWN.mass),
+				parseFloat(anProperties.get(PROPERTY_ITEM_VOLUME, String.class), UNKNOWN.volume),
+				parseInt(anProperties.get(PROPERTY_ITEM_WORTH, String.class), UNKNOWN.worth),
+				parseEnum(COLORS, anProperties.get(PROPERTY_ITEM_COLOR, String.class), UNKNOWN.color),
+				UNKNOWN.intensity,
+				parseEnum(SHAPES, anProperties.get(PROPERTY_ITEM_SHAPE, String.class), UNKNOWN.shape),
+				parseEnum(SIZES, anProperties.get(PROPERTY_ITEM_SIZE, String.class), UNKNOWN.size),
+				parseEnum(SOUNDS, anProperties.get(PROPERTY_ITEM_SOUND, String.class), UNKNOWN.sound));
+	}
+
+	/**
+	 * Retrieve the shared prototype with the same values as thePrototype.
+	 * Items are read from saved games on another thread, so this is
+	 * synchronized.
+	 * @param thePrototype to look up
+	 * @return the first prototype interned with these values
+	 */
+	public static synchronized ItemPrototype intern(ItemPrototype thePrototype) {
+		ItemPrototype anPrototype = prototypes.get(thePrototype);
+		if(anPrototype == null) {
+			anPrototype = thePrototype;
+			prototypes.put(anPrototype, anPrototype);
+		}
+		return anPrototype;
+	}
+
+	// Find theName among theValues without throwing for missing or unknown names
+	private static <E extends Enum<E>> E parseEnum(E[] theValues, String theName, E theDefault) {
+		if(theName != null) {
+			for(int i = 0; theValues.length > i; i++) {
+				if(theValues[i].name().equals(theName)) {
+					return theValues[i];
+				}
+			}
+		}
+		return theDefault;
+	}
+
+	private static float parseFloat(String theValue, float theDefault) {
+		if(theValue == null) {
+			return theDefault;
+		}
+		try {
+			return Float.parseFloat(theValue);
+		} catch(NumberFormatException nfe) {
+			// Accept the default value for a badly written number
+			return theDefault;
+		}
+	}
+
+	private static int parseInt(String theValue, int theDefault) {
+		if(theValue == null) {
+			return theDefault;
+		}
+		try {
+			return Integer.parseInt(theValue);
+		} catch(NumberFormatException nfe) {
+			// Accept the default value for a badly written number
+			return theDefault;
+		}
+	}
+
+	@Override
+	public boolean equals(Object theOther) {
+		if(this == theOther) {
+			return true;
+		}
+		if(!(theOther instanceof ItemPrototype)) {
+			return false;
+		}
+		ItemPrototype anOther = (ItemPrototype)theOther;
+		return tileId == anOther.tileId &&
+			   equals(name, anOther.name) &&
+			   equals(tag, anOther.tag) &&
+			   type == anOther.type &&
+			   Float.floatToIntBits(mass) == Float.floatToIntBits(anOther.mass) &&
+			   Float.floatToIntBits(volume) == Float.floatToIntBits(anOther.volume) &&
+			   worth == anOther.worth &&
+			   color == anOther.color &&
+			   intensity == anOther.intensity &&
+			   shape == anOther.shape &&
+			   size == anOther.size &&
+			   sound == anOther.sound;
+	}
+
+	@Override
+	public int hashCode() {
+		int anHash = tileId;
+		anHash = 31*anHash + (name != null ? name.hashCode() : 0);
+		anHash = 31*anHash + (tag != null ? tag.hashCode() : 0);
+		anHash = 31*anHash + (type != null ? type.ordinal() : -1);
+		anHash = 31*anHash + Float.floatToIntBits(mass);
+		anHash = 31*anHash + Float.floatToIntBits(volume);
+		anHash = 31*anHash + worth;
+		return anHash;
+	}
+
+	private static boolean equals(String theFirst, String theSecond) {
+		return theFirst == null ? theSecond == null : theFirst.equals(theSecond);
+	}
+}
@@ -0,0 +1,414 @@
+package com.cosmicrover.cassini;
+
+import java.util.Arrays;
+
+import com.badlogic.gdx.utils.IntArray;
+
+/**
+ * A* with jump point search over a NavigationGrid, moving in eight
+ * directions without cutting the corner of a blocked square. Straight and
+ * diagonal runs without decisions are skipped in one go, so only a handful
+ * of squares ever reach the open list, and straight runs are scanned 64
+ * squares at a time from the grid's row and column bits.
+ *
+ * Every array is primitive and sized for the largest grid searched so far,
+ * and stamped with the search it belongs to rather than cleared, so a search
+ * allocates nothing once the arrays have grown. Not thread safe, use one
+ * instance per thread.
+ */
+public class JumpPointSearch {
+	/// Cost of a straight and a diagonal step
+	private static final int COST_STRAIGHT = 10;
+	private static final int COST_DIAGONAL = 14;
+
+	/// heapIndex of a square that has been expanded
+	private static final int CLOSED = -1;
+
+	/// Grid and target of the current search
+	private NavigationGrid grid = null;
+	private int width = 0;
+	private int targetX = 0;
+	private int targetY = 0;
+
+	/// Search each square was last touched by, the rest is only valid when it matches
+	private int[] stamp = new int[0];
+	private int search = 0;
+
+	/// Cost from the start, jump point we came from, and cost plus estimate of each square
+	private int[] cost = new int[0];
+	private int[] parent = new int[0];
+	private int[] score = new int[0];
+
+	/// Position of each square in the open list heap, or CLOSED
+	private int[] heapIndex = new int[0];
+
+	/// Open list as a binary heap of square indices ordered by score
+	private int[] heap = new int[0];
+	private int heapSize = 0;
+
+	/// Neighbours (x, y pairs) of the square being expanded
+	private final int[] neighbours = new int[16];
+
+	/// Jump points of the path found, from the target back to the start
+	private final IntArray jumpPoints = new IntArray();
+
+	/**
+	 * Find the shortest path between two squares.
+	 * @param theGrid to search
+	 * @param theStartX map square to start from
+	 * @param theStartY map square to start from
+	 * @param theTargetX map square to reach
+	 * @param theTargetY map square to reach
+	 * @param theRoute cleared, then receives every square from start to target
+	 * @return true if a path was found
+	 */
+	public boolean findPath(NavigationGrid theGrid, int theStartX, int theStartY,
+			int theTargetX, int theTargetY, Route theRoute) {
+		theRoute.clear();
+		if(!theGrid.isConnected(theStartX, theStartY, theTargetX, theTargetY)) {
+			return false;
+		}
+
+		begin(theGrid, theTargetX, theTargetY);
+		int anStart = theStartY*width + theStartX;
+		int anTarget = theTargetY*width + theTargetX;
+		open(anStart, 0, -1, heuristic(theStartX, theStartY));
+
+		while(heapSize > 0) {
+			int anNode = pop();
+			if(anNode == anTarget) {
+				buildRoute(anStart, anTarget, theRoute);
+				return true;
+			}
+			expand(anNode);
+		}
+		return false;
+	}
+
+	// Get ready for a new search on theGrid
+	private void begin(NavigationGrid theGrid, int theTargetX, int theTargetY) {
+		grid = theGrid;
+		width = theGrid.getWidth();
+		targetX = theTargetX;
+		targetY = theTargetY;
+		heapSize = 0;
+
+		int anSize = width * theGrid.getHeight();
+		if(stamp.length < anSize) {
+			stamp = new int[anSize];
+			cost = new int[anSize];
+			parent = new int[anSize];
+			score = new int[anSize];
+			heapIndex = new int[anSize];
+			heap = new int[anSize];
+			search = 0;
+		}
+
+		// Start stamping from scratch before the stamp wraps around
+		if(++search == Integer.MAX_VALUE) {
+			Arrays.fill(stamp, 0);
+			search = 1;
+		}
+	}
+
+	// Find the jump points reachable from theNode and add them to the open list
+	private void expand(int theNode) {
+		int x = theNode % width;
+		int y = theNode / width;
+		int anCount = findNeighbours(theNode, x, y);
+		for(int i = 0; anCount > i; i += 2) {
+			int nx = neighbours[i];
+			int ny = neighbours[i+1];
+			int anJump = jump(nx, ny, nx - x, ny - y);
+			if(anJump < 0) {
+				continue;
+			}
+			boolean anSeen = stamp[anJump] == search;
+			if(anSeen && heapIndex[anJump] == CLOSED) {
+				continue;
+			}
+			int jx = anJump % width;
+			int jy = anJump / width;
+			int anCost = cost[theNode] + distance(x, y, jx, jy);
+			if(!anSeen) {
+				open(anJump, anCost, theNode, anCost + heuristic(jx, jy));
+			} else if(anCost < cost[anJump]) {
+				cost[anJump] = anCost;
+				parent[anJump] = theNode;
+				score[anJump] = anCost + heuristic(jx, jy);
+				siftUp(heapIndex[anJump]);
+			}
+		}
+	}
+
+	// Neighbours worth looking at given the direction we arrived from
+	private int findNeighbours(int theNode, int x, int y) {
+		int n = 0;
+		int anParent = parent[theNode];
+		if(anParent < 0) {
+			// The start square looks in every direction it can step to
+			for(int dy = -1; 1 >= dy; dy++) {
+				for(int dx = -1; 1 >= dx; dx++) {
+					if((dx != 0 || dy != 0) && canStep(x, y, dx, dy)) {
+						n = addNeighbour(n, x+dx, y+dy);
+					}
+				}
+			}
+			return n;
+		}
+
+		int dx = Integer.signum(x - anParent % width);
+		int dy = Integer.signum(y - anParent / width);
+		if(dx != 0 && dy != 0) {
+			// Diagonal, carry on along both axes and the diagonal
+			boolean anNextY = grid.isWalkable(x, y+dy);
+			boolean anNextX = grid.isWalkable(x+dx, y);
+			if(anNextY) {
+				n = addNeighbour(n, x, y+dy);
+			}
+			if(anNextX) {
+				n = addNeighbour(n, x+dx, y);
+			}
+			if(anNextX && anNextY && grid.isWalkable(x+dx, y+dy)) {
+				n = addNeighbour(n, x+dx, y+dy);
+			}
+		} else if(dx != 0) {
+			// Horizontal, carry on and look around a blocked square behind us
+			boolean anNext = grid.isWalkable(x+dx, y);
+			boolean anUp = grid.isWalkable(x, y+1);
+			boolean anDown = grid.isWalkable(x, y-1);
+			if(anNext) {
+				n = addNeighbour(n, x+dx, y);
+				if(anUp && grid.isWalkable(x+dx, y+1)) {
+					n = addNeighbour(n, x+dx, y+1);
+				}
+				if(anDown && grid.isWalkable(x+dx, y-1)) {
+					n = addNeighbour(n, x+dx, y-1);
+				}
+			}
+			if(anUp) {
+				n = addNeighbour(n, x, y+1);
+			}
+			if(anDown) {
+				n = addNeighbour(n, x, y-1);
+			}
+		} else {
+			// Vertical, same as horizontal with the axes swapped
+			boolean anNext = grid.isWalkable(x, y+dy);
+			boolean anRight = grid.isWalkable(x+1, y);
+			boolean anLeft = grid.isWalkable(x-1, y);
+			if(anNext) {
+				n = addNeighbour(n, x, y+dy);
+				if(anRight && grid.isWalkable(x+1, y+dy)) {
+					n = addNeighbour(n, x+1, y+dy);
+				}
+				if(anLeft && grid.isWalkable(x-1, y+dy)) {
+					n = addNeighbour(n, x-1, y+dy);
+				}
+			}
+			if(anRight) {
+				n = addNeighbour(n, x+1, y);
+			}
+			if(anLeft) {
+				n = addNeighbour(n, x-1, y);
+			}
+		}
+		return n;
+	}
+
+	private int addNeighbour(int n, int x, int y) {
+		neighbours[n] = x;
+		neighbours[n+1] = y;
+		return n + 2;
+	}
+
+	// A diagonal step needs both squares beside it open, we don't cut corners
+	private boolean canStep(int x, int y, int dx, int dy) {
+		if(!grid.isWalkable(x+dx, y+dy)) {
+			return false;
+		}
+		return dx == 0 || dy == 0 || (grid.isWalkable(x+dx, y) && grid.isWalkable(x, y+dy));
+	}
+
+	/**
+	 * Walk from x, y in the direction dx, dy until reaching the target, a
+	 * square with a neighbour only reachable through it, or a dead end.
+	 * @return index of the jump point found, -1 if none
+	 */
+	private int jump(int x, int y, int dx, int dy) {
+		if(dy == 0) {
+			int anX = jumpStraight(false, y, x, dx);
+			return anX >= 0 ? y*width + anX : -1;
+		}
+		if(dx == 0) {
+			int anY = jumpStraight(true, x, y, dy);
+			return anY >= 0 ? anY*width + x : -1;
+		}
+
+		while(true) {
+			if(!grid.isWalkable(x, y)) {
+				return -1;
+			}
+			if(x == targetX && y == targetY) {
+				return y*width + x;
+			}
+			// Anything worth stopping for along either axis?
+			if(jumpStraight(false, y, x+dx, dx) >= 0 || jumpStraight(true, x, y+dy, dy) >= 0) {
+				return y*width + x;
+			}
+			if(!grid.isWalkable(x+dx, y) || !grid.isWalkable(x, y+dy)) {
+				return -1;
+			}
+			x += dx;
+			y += dy;
+		}
+	}
+
+	/**
+	 * Walk along a row or column 64 squares at a time. A square is a jump
+	 * point when the square beside it is open but the one beside the square
+	 * behind it is blocked, so the square beside can only be reached through
+	 * it without cutting a corner.
+	 * @param theColumn true to walk along a column, false along a row
+	 * @param theLine row (y) or column (x) to walk along
+	 * @param thePosition square to start from along the line
+	 * @param theStep 1 or -1
+	 * @return position along the line of the jump point found, -1 if none
+	 */
+	private int jumpStraight(boolean theColumn, int theLine, int thePosition, int theStep) {
+		int anTargetLine = theColumn ? targetX : targetY;
+		int anTargetPosition = theColumn ? targetY : targetX;
+		int anPosition = thePosition;
+		while(true) {
+			long anBlocked, anForced;
+			int anStop, anJump, anTarget;
+			if(theStep > 0) {
+				// Bit i is the square i steps ahead
+				anBlocked = getBits(theColumn, theLine, anPosition);
+				anForced = (~getBits(theColumn, theLine+1, anPosition) & getBits(theColumn, theLine+1, anPosition-1))
+						 | (~getBits(theColumn, theLine-1, anPosition) & getBits(theColumn, theLine-1, anPosition-1));
+				anStop = Long.numberOfTrailingZeros(anBlocked);
+				anJump = Long.numberOfTrailingZeros(anForced);
+				anTarget = anTargetPosition - anPosition;
+			} else {
+				// Bit 63-i is the square i steps ahead
+				int anStart = anPosition - 63;
+				anBlocked = getBits(theColumn, theLine, anStart);
+				anForced = (~getBits(theColumn, theLine+1, anStart) & getBits(theColumn, theLine+1, anStart+1))
+						 | (~getBits(theColumn, theLine-1, anStart) & getBits(theColumn, theLine-1, anStart+1));
+				anStop = Long.numberOfLeadingZeros(anBlocked);
+				anJump = Long.numberOfLeadingZeros(anForced);
+				anTarget = anPosition - anTargetPosition;
+			}
+			if(theLine == anTargetLine && anTarget >= 0 && anTarget < anStop && anTarget <= anJump) {
+				return anTargetPosition;
+			}
+			if(anJump < anStop) {
+				return anPosition + anJump*theStep;
+			}
+			if(anStop < 64) {
+				return -1;
+			}
+			anPosition += 64*theStep;
+		}
+	}
+
+	private long getBits(boolean theColumn, int theLine, int thePosition) {
+		return theColumn ? grid.getColumnBits(theLine, thePosition) : grid.getRowBits(theLine, thePosition);
+	}
+
+	// Octile distance, exact between two jump points on a straight or diagonal line
+	private static int distance(int x0, int y0, int x1, int y1) {
+		int dx = Math.abs(x1 - x0);
+		int dy = Math.abs(y1 - y0);
+		return COST_STRAIGHT * (dx + dy) + (COST_DIAGONAL - 2*COST_STRAIGHT) * Math.min(dx, dy);
+	}
+
+	private int heuristic(int x, int y) {
+		return distance(x, y, targetX, targetY);
+	}
+
+	// Walk the jump points back from theTarget and fill in the squares between them
+	private void buildRoute(int theStart, int theTarget, Route theRoute) {
+		jumpPoints.clear();
+		for(int anNode = theTarget; anNode >= 0; anNode = parent[anNode]) {
+			jumpPoints.add(anNode);
+		}
+
+		int x = theStart % width;
+		int y = theStart / width;
+		theRoute.add(x, y);
+		for(int i = jumpPoints.size - 2; i >= 0; i--) {
+			int anNode = jumpPoints.get(i);
+			int nx = anNode % width;
+			int ny = anNode / width;
+			int dx = Integer.signum(nx - x);
+			int dy = Integer.signum(ny - y);
+			while(x != nx || y != ny) {
+				x += dx;
+				y += dy;
+				theRoute.add(x, y);
+			}
+		}
+	}
+
+	/////////////////////////////////////////////////////////////////////////
+	// Open list
+	/////////////////////////////////////////////////////////////////////////
+	private void open(int theNode, int theCost, int theParent, int theScore) {
+		stamp[theNode] = search;
+		cost[theNode] = theCost;
+		parent[theNode] = theParent;
+		score[theNode] = theScore;
+		heap[heapSize] = theNode;
+		heapIndex[theNode] = heapSize;
+		siftUp(heapSize++);
+	}
+
+	private int pop() {
+		int anNode = heap[0];
+		heapIndex[anNode] = CLOSED;
+		if(--heapSize > 0) {
+			heap[0] = heap[heapSize];
+			heapIndex[heap[0]] = 0;
+			siftDown(0);
+		}
+		return anNode;
+	}
+
+	private void siftUp(int theIndex) {
+		int anNode = heap[theIndex];
+		while(theIndex > 0) {
+			int anParent = (theIndex - 1) >> 1;
+			if(score[heap[anParent]] <= score[anNode]) {
+				break;
+			}
+			heap[theIndex] = heap[anParent];
+			heapIndex[heap[theIndex]] = theIndex;
+			theIndex = anParent;
+		}
+		heap[theIndex] = anNode;
+		heapIndex[anNode] = theIndex;
+	}
+
+	private void siftDown(int theIndex) {
+		int anNode = heap[theIndex];
+		while(true) {
+			int anChild = (theIndex << 1) + 1;
+			if(anChild >= heapSize) {
+				break;
+			}
+			if(anChild + 1 < heapSize && score[heap[anChild+1]] < score[heap[anChild]]) {
+				anChild++;
+			}
+			if(score[anNode] <= score[heap[anChild]]) {
+				break;
+			}
+			heap[theIndex] = heap[anChild];
+			heapIndex[heap[theIndex]] = theIndex;
+			theIndex = anChild;
+		}
+		heap[theIndex] = anNode;
+		heapIndex[anNode] = theIndex;
+	}
+}
@@ -0,0 +1,116 @@
+package com.cosmicrover.cassini;
+
+import com.badlogic.gdx.math.Rectangle;
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.utils.ObjectMap;
+
+/**
+ * The map a LocationComponent is on: its level and map names, map bounds in
+ * squares, and the level (pixel) size of each square. There is one MapContext
+ * per map, shared by every location on it, so a location only holds its own
+ * coordinates and resizing a map is one update for every entity on it.
+ *
+ * Locations never change their MapContext, they switch to another one with
+ * get(). Only the MapSystem sizes a map, when it is loaded.
+ */
+public class MapContext {
+	/// Contexts built so far by context tag
+	private static final ObjectMap<String, MapContext> contexts = new ObjectMap<String, MapContext>();
+
+	/// Level and map names, and the context tag made of both
+	private final String levelName;
+	private final String mapName;
+	private final String contextTag;
+
+	/// Map bounds in squares
+	private final Rectangle mapBounds;
+
+	/// Level bounds in pixels (1 pixel short of the last square)
+	private final Rectangle levelBounds;
+
+	/// Level size of each map square, and the offset to its center
+	private final Vector2 levelGrid;
+	private final Vector2 levelOffsetCenter;
+
+	/**
+	 * Retrieve the context of a map, creating it the first time. A new
+	 * context has no bounds until the map is loaded.
+	 * Locations are read from saved games on another thread, so this is
+	 * synchronized.
+	 * @param theLevelName of the level the map is on
+	 * @param theMapName filename of the map
+	 * @return shared context of the map
+	 */
+	public static synchronized MapContext get(String theLevelName, String theMapName) {
+		String anContextTag = theLevelName + theMapName;
+		MapContext anContext = contexts.get(anContextTag);
+		if(anContext == null) {
+			anContext = new MapContext(theLevelName, theMapName, anContextTag);
+			contexts.put(anContextTag, anContext);
+		}
+		return anContext;
+	}
+
+	private MapContext(String theLevelName, String theMapName, String theContextTag) {
+		levelName = theLevelName;
+		mapName = theMapName;
+		contextTag = theContextTag;
+		mapBounds = new Rectangle();
+		levelBounds = new Rectangle();
+		levelGrid = new Vector2(1,1);
+		levelOffsetCenter = new Vector2(0.5f,0.5f);
+	}
+
+	public String getLevelName() {
+		return levelName;
+	}
+
+	public String getMapName() {
+		return mapName;
+	}
+
+	/**
+	 * @return level name followed by map name, the key of per map data
+	 */
+	public String getContextTag() {
+		return contextTag;
+	}
+
+	// The bounds and grid below are shared, never change the objects returned
+	public Rectangle getMapBounds() {
+		return mapBounds;
+	}
+
+	public Rectangle getLevelBounds() {
+		return levelBounds;
+	}
+
+	public Vector2 getLevelGrid() {
+		return levelGrid;
+	}
+
+	public Vector2 getLevelOffsetCenter() {
+		return levelOffsetCenter;
+	}
+
+	/**
+	 * Size the map, for every location on it. Locations keep their map
+	 * coordinates, their level coordinates follow on their next move.
+	 * @param theMapWidth in squares
+	 * @param theMapHeight in squares
+	 * @param theGridX level width of each square
+	 * @param theGridY level height of each square
+	 */
+	public void setSize(int theMapWidth, int theMapHeight, float theGridX, float theGridY) {
+		mapBounds.set(0, 0, theMapWidth, theMapHeight);
+		if(theGridX > 0.0f && theGridY > 0.0f) {
+			levelGrid.set(theGridX, theGridY);
+			levelOffsetCenter.set(theGridX*0.5f, theGridY*0.5f);
+		}
+		levelBounds.set(
+				mapBounds.x*levelGrid.x,          // Update minimum level x value
+				mapBounds.y*levelGrid.y,          // Update minimum level y value
+				mapBounds.width*levelGrid.x-1,    // Update maximum level width value (1 pixel short)
+				mapBounds.height*levelGrid.y-1);  // Update maximum level height value (1 pixel short)
+	}
+}
@@ -0,0 +1,230 @@
+package com.cosmicrover.cassini;
+
+import com.badlogic.gdx.maps.MapLayer;
+import com.badlogic.gdx.maps.MapProperties;
+import com.badlogic.gdx.maps.tiled.TiledMap;
+import com.badlogic.gdx.maps.tiled.TiledMapTileLayer;
+import com.badlogic.gdx.maps.tiled.TiledMapTileLayer.Cell;
+
+/**
+ * Which squares of a map a rover can drive over, one bit per blocked square.
+ * The bits are kept both by row and by column so searches can scan 64
+ * squares of a row or column at once (see getRowBits() and getColumnBits()).
+ * Built from the layers of a TiledMap:
+ * - every tile on a layer with the "blocked" property set to "true" blocks
+ * - any tile with the "blocked" property set to "true" blocks, on any layer
+ * Squares outside the map are always blocked. No map sets the property yet,
+ * so until one does every square of a map is open and routes are straight.
+ *
+ * Blocked squares also block line of sight (see RevealStencil.Blocker).
+ */
+public class NavigationGrid implements RevealStencil.Blocker {
+	/// Layer and tile property marking squares rovers can't drive over
+	public static final String PROPERTY_BLOCKED = "blocked";
+
+	/// Width and height in map squares
+	private final int width;
+	private final int height;
+
+	/// Words per row and per column, each row and column starts on a new word
+	private final int rowWords;
+	private final int columnWords;
+
+	/// Bit set for every blocked square by row and by column, bits past the end are set
+	private final long[] rows;
+	private final long[] columns;
+
+	/// Connected region of each square (0 when blocked), rebuilt after squares change
+	private int[] regions = null;
+
+	/// Bumped every time a square changes, so anything built from the grid can tell it is stale
+	private int version = 0;
+
+	public NavigationGrid(int theWidth, int theHeight) {
+		width = theWidth;
+		height = theHeight;
+		rowWords = (theWidth + 63) >> 6;
+		columnWords = (theHeight + 63) >> 6;
+		rows = new long[rowWords * theHeight];
+		columns = new long[columnWords * theWidth];
+		blockPadding(rows, rowWords, theWidth, theHeight);
+		blockPadding(columns, columnWords, theHeight, theWidth);
+	}
+
+	// Squares past the end of each line are outside the map, so blocked
+	private static void blockPadding(long[] theBits, int theWords, int theLength, int theLines) {
+		if((theLength & 63) == 0) {
+			return;
+		}
+		long anPadding = -1L << (theLength & 63);
+		for(int i = 0; theLines > i; i++) {
+			theBits[i*theWords + theWords-1] |= anPadding;
+		}
+	}
+
+	/**
+	 * Build the grid of theTiledMap from its layer and tile properties.
+	 * @param theTiledMap to build the grid for
+	 * @return new grid the size of theTiledMap
+	 */
+	public static NavigationGrid fromTiledMap(TiledMap theTiledMap) {
+		MapProperties anProperties = theTiledMap.getProperties();
+		NavigationGrid anGrid = new NavigationGrid(
+				anProperties.get("width", Integer.class),
+				anProperties.get("height", Integer.class));
+
+		for(MapLayer mapLayer : theTiledMap.getLayers()) {
+			if(!(mapLayer instanceof TiledMapTileLayer)) {
+				continue;
+			}
+			TiledMapTileLayer tiledMapLayer = (TiledMapTileLayer)mapLayer;
+			boolean anLayerBlocked = isBlocked(mapLayer.getProperties());
+			int anWidth = Math.min(tiledMapLayer.getWidth(), anGrid.width);
+			int anHeight = Math.min(tiledMapLayer.getHeight(), anGrid.height);
+			for(int y = 0; anHeight > y; y++) {
+				for(int x = 0; anWidth > x; x++) {
+					Cell cell = tiledMapLayer.getCell(x, y);
+					if(cell != null && cell.getTile() != null &&
+					   (anLayerBlocked || isBlocked(cell.getTile().getProperties()))) {
+						anGrid.setBlocked(x, y, true);
+					}
+				}
+			}
+		}
+		return anGrid;
+	}
+
+	private static boolean isBlocked(MapProperties theProperties) {
+		return "true".equalsIgnoreCase(theProperties.get(PROPERTY_BLOCKED, String.class));
+	}
+
+	public int getWidth() {
+		return width;
+	}
+
+	public int getHeight() {
+		return height;
+	}
+
+	public void setBlocked(int x, int y, boolean theBlocked) {
+		int anRow = y*rowWords + (x >> 6);
+		int anColumn = x*columnWords + (y >> 6);
+		if(theBlocked) {
+			rows[anRow] |= 1L << x;
+			columns[anColumn] |= 1L << y;
+		} else {
+			rows[anRow] &= ~(1L << x);
+			columns[anColumn] &= ~(1L << y);
+		}
+		regions = null;
+		version++;
+	}
+
+	public int getVersion() {
+		return version;
+	}
+
+	/**
+	 * Check whether any route joins two squares, without searching for it.
+	 * Diagonal steps need both squares beside them open, so squares joined
+	 * by any route are also joined by straight steps and one flood fill
+	 * labels every region.
+	 * @return true if both squares are open and in the same region
+	 */
+	public boolean isConnected(int x0, int y0, int x1, int y1) {
+		if(!isWalkable(x0, y0) || !isWalkable(x1, y1)) {
+			return false;
+		}
+		if(regions == null) {
+			buildRegions();
+		}
+		return regions[y0*width + x0] == regions[y1*width + x1];
+	}
+
+	// Label each region of open squares with a flood fill
+	private void buildRegions() {
+		regions = new int[width * height];
+		int[] anStack = new int[width * height];
+		int anRegion = 0;
+		for(int i = 0, s = regions.length; s > i; i++) {
+			if(regions[i] != 0 || !isWalkable(i % width, i / width)) {
+				continue;
+			}
+			regions[i] = ++anRegion;
+			int anTop = 0;
+			anStack[anTop++] = i;
+			while(anTop > 0) {
+				int anSquare = anStack[--anTop];
+				int x = anSquare % width;
+				int y = anSquare / width;
+				anTop = fill(x-1, y, anRegion, anStack, anTop);
+				anTop = fill(x+1, y, anRegion, anStack, anTop);
+				anTop = fill(x, y-1, anRegion, anStack, anTop);
+				anTop = fill(x, y+1, anRegion, anStack, anTop);
+			}
+		}
+	}
+
+	private int fill(int x, int y, int theRegion, int[] theStack, int theTop) {
+		if(isWalkable(x, y) && regions[y*width + x] == 0) {
+			regions[y*width + x] = theRegion;
+			theStack[theTop++] = y*width + x;
+		}
+		return theTop;
+	}
+
+	/**
+	 * @param x map square
+	 * @param y map square
+	 * @return true if a rover can drive over the square, false if blocked or outside the map
+	 */
+	public boolean isWalkable(int x, int y) {
+		if(x < 0 || y < 0 || x >= width || y >= height) {
+			return false;
+		}
+		return (rows[y*rowWords + (x >> 6)] & (1L << x)) == 0;
+	}
+
+	@Override
+	public boolean isBlocking(int x, int y) {
+		return !isWalkable(x, y);
+	}
+
+	/**
+	 * @param y map row
+	 * @param x first map square, may be outside the map
+	 * @return bit i set if square x+i of row y is blocked or outside the map
+	 */
+	public long getRowBits(int y, int x) {
+		return getBits(rows, rowWords, height, y, x);
+	}
+
+	/**
+	 * @param x map column
+	 * @param y first map square, may be outside the map
+	 * @return bit i set if square y+i of column x is blocked or outside the map
+	 */
+	public long getColumnBits(int x, int y) {
+		return getBits(columns, columnWords, width, x, y);
+	}
+
+	// 64 bits of theLine from thePosition on, everything outside the map is blocked
+	private static long getBits(long[] theBits, int theWords, int theLines, int theLine, int thePosition) {
+		if(theLine < 0 || theLine >= theLines || thePosition <= -64) {
+			return -1L;
+		}
+		int anBase = theLine*theWords;
+		if(thePosition < 0) {
+			int anShift = -thePosition;
+			return (theBits[anBase] << anShift) | ((1L << anShift) - 1);
+		}
+		int anWord = thePosition >> 6;
+		int anBit = thePosition & 63;
+		long anLow = theWords > anWord ? theBits[anBase + anWord] : -1L;
+		if(anBit == 0) {
+			return anLow;
+		}
+		long anHigh = theWords > anWord+1 ? theBits[anBase + anWord+1] : -1L;
+		return (anLow >>> anBit) | (anHigh << (64 - anBit));
+	}
+}
@@ -0,0 +1,203 @@
+package com.cosmicrover.cassini;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.graphics.GL10;
+import com.badlogic.gdx.graphics.Mesh;
+import com.badlogic.gdx.graphics.OrthographicCamera;
+import com.badlogic.gdx.graphics.VertexAttribute;
+import com.badlogic.gdx.graphics.VertexAttributes.Usage;
+import com.badlogic.gdx.graphics.glutils.ShaderProgram;
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.utils.IntArray;
+
+/**
+ * Planned rover route drawn from retained triangles: a bar for each step and
+ * a dot on each point. The geometry is only touched when the route changes,
+ * and points added to the end (e.g. while the player drags) only build the
+ * geometry of the new steps. The route is drawn with a single call. Must only
+ * be used on the render thread.
+ */
+public class PathOverlay {
+	/// Half the thickness of a bar and radius of a dot
+	public static final float PATH_RADIUS = 2;
+
+	/// Triangles in each dot
+	private static final int DOT_SEGMENTS = 10;
+
+	/// Floats per vertex (x, y)
+	private static final int VERTEX_SIZE = 2;
+
+	/// Route points the geometry was built for
+	private final Route points = new Route();
+
+	/// Where the vertices of each point end
+	private final IntArray pointEnds = new IntArray();
+
+	/// Vertices of the whole route and how many floats are used
+	private float[] vertices = new float[256];
+	private int size = 0;
+
+	/// Grid and offset to the center of a map square the geometry was built with
+	private float gridX, gridY, offsetX, offsetY;
+
+	/// Mesh holding the vertices and whether it needs uploading again
+	private Mesh mesh = null;
+	private boolean dirty = false;
+
+	/// Unit circle used for the dots
+	private static final float[] DOT_COS = new float[DOT_SEGMENTS + 1];
+	private static final float[] DOT_SIN = new float[DOT_SEGMENTS + 1];
+	static {
+		for(int i = 0; DOT_SEGMENTS >= i; i++) {
+			DOT_COS[i] = MathUtils.cos(MathUtils.PI2 * i / DOT_SEGMENTS);
+			DOT_SIN[i] = MathUtils.sin(MathUtils.PI2 * i / DOT_SEGMENTS);
+		}
+	}
+
+	/**
+	 * Bring the geometry up to date with thePath, keeping the geometry of the
+	 * points it still has in common with the last update.
+	 * @param thePath route points in map coordinates
+	 * @param theGridX width of a map square in level coordinates
+	 * @param theGridY height of a map square in level coordinates
+	 * @param theOffsetX from the corner to the center of a map square
+	 * @param theOffsetY from the corner to the center of a map square
+	 */
+	public void update(Route thePath, float theGridX, float theGridY, float theOffsetX, float theOffsetY) {
+		// Everything moves if the grid changes
+		if(theGridX != gridX || theGridY != gridY || theOffsetX != offsetX || theOffsetY != offsetY) {
+			gridX = theGridX;
+			gridY = theGridY;
+			offsetX = theOffsetX;
+			offsetY = theOffsetY;
+			truncate(0);
+		}
+
+		// Keep the points that didn't change
+		int anCommon = 0;
+		int anLimit = Math.min(points.size(), thePath.size());
+		while(anLimit > anCommon && points.get(anCommon) == thePath.get(anCommon)) {
+			anCommon++;
+		}
+		if(anCommon == points.size() && anCommon == thePath.size()) {
+			return;
+		}
+		truncate(anCommon);
+
+		// Build the geometry of the new points
+		for(int i = anCommon; thePath.size() > i; i++) {
+			addPoint(thePath.getX(i), thePath.getY(i));
+		}
+	}
+
+	// Drop the geometry of every point from theCount onwards
+	private void truncate(int theCount) {
+		points.truncate(theCount);
+		pointEnds.size = theCount;
+		size = theCount > 0 ? pointEnds.get(theCount-1) : 0;
+		dirty = true;
+	}
+
+	private void addPoint(int x, int y) {
+		float anX = x*gridX+offsetX;
+		float anY = y*gridY+offsetY;
+
+		// Bar from the previous point to this one
+		if(points.size() > 0) {
+			float anPreviousX = points.peekX()*gridX+offsetX;
+			float anPreviousY = points.peekY()*gridY+offsetY;
+			if(anX == anPreviousX) {
+				// Vertical step, widen the bar sideways
+				addQuad(anPreviousX-PATH_RADIUS, anPreviousY, anPreviousX+PATH_RADIUS, anPreviousY,
+						anX+PATH_RADIUS, anY, anX-PATH_RADIUS, anY);
+			} else {
+				// Horizontal and diagonal steps, widen the bar up and down
+				addQuad(anPreviousX, anPreviousY-PATH_RADIUS, anX, anY-PATH_RADIUS,
+						anX, anY+PATH_RADIUS, anPreviousX, anPreviousY+PATH_RADIUS);
+			}
+		}
+
+		// Dot on this point
+		ensureCapacity(DOT_SEGMENTS * 3 * VERTEX_SIZE);
+		for(int i = 0; DOT_SEGMENTS > i; i++) {
+			addVertex(anX, anY);
+			addVertex(anX + PATH_RADIUS*DOT_COS[i], anY + PATH_RADIUS*DOT_SIN[i]);
+			addVertex(anX + PATH_RADIUS*DOT_COS[i+1], anY + PATH_RADIUS*DOT_SIN[i+1]);
+		}
+
+		points.add(x, y);
+		pointEnds.add(size);
+		dirty = true;
+	}
+
+	private void addQuad(float x0, float y0, float x1, float y1, float x2, float y2, float x3, float y3) {
+		ensureCapacity(6 * VERTEX_SIZE);
+		addVertex(x0, y0);
+		addVertex(x1, y1);
+		addVertex(x2, y2);
+		addVertex(x2, y2);
+		addVertex(x3, y3);
+		addVertex(x0, y0);
+	}
+
+	private void addVertex(float x, float y) {
+		vertices[size++] = x;
+		vertices[size++] = y;
+	}
+
+	private void ensureCapacity(int theFloats) {
+		if(size + theFloats > vertices.length) {
+			float[] anVertices = new float[Math.max(size + theFloats, vertices.length * 2)];
+			System.arraycopy(vertices, 0, anVertices, 0, size);
+			vertices = anVertices;
+		}
+	}
+
+	/**
+	 * @return number of vertices in the route geometry
+	 */
+	public int getVertexCount() {
+		return size / VERTEX_SIZE;
+	}
+
+	/**
+	 * Draw the route in blue.
+	 * @param theCamera world camera of the view
+	 */
+	public void render(OrthographicCamera theCamera) {
+		if(size == 0) {
+			return;
+		}
+
+		// Upload the vertices again after they changed, growing the mesh if needed
+		if(dirty) {
+			if(mesh == null || mesh.getMaxVertices() < getVertexCount()) {
+				if(mesh != null) {
+					mesh.dispose();
+				}
+				mesh = new Mesh(false, vertices.length / VERTEX_SIZE, 0,
+						new VertexAttribute(Usage.Position, VERTEX_SIZE, ShaderProgram.POSITION_ATTRIBUTE));
+			}
+			mesh.setVertices(vertices, 0, size);
+			dirty = false;
+		}
+
+		GL10 gl = Gdx.gl10;
+		gl.glMatrixMode(GL10.GL_PROJECTION);
+		gl.glLoadMatrixf(theCamera.combined.val, 0);
+		gl.glMatrixMode(GL10.GL_MODELVIEW);
+		gl.glLoadIdentity();
+		gl.glDisable(GL10.GL_TEXTURE_2D);
+		gl.glColor4f(0, 0, 1, 1);
+		mesh.render(GL10.GL_TRIANGLES, 0, getVertexCount());
+		gl.glColor4f(1, 1, 1, 1);
+	}
+
+	public void dispose() {
+		if(mesh != null) {
+			mesh.dispose();
+			mesh = null;
+		}
+		dirty = true;
+	}
+}
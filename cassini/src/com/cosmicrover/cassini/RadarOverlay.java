@@ -0,0 +1,140 @@
+package com.cosmicrover.cassini;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.GL10;
+import com.badlogic.gdx.graphics.Mesh;
+import com.badlogic.gdx.graphics.OrthographicCamera;
+import com.badlogic.gdx.graphics.VertexAttribute;
+import com.badlogic.gdx.graphics.VertexAttributes.Usage;
+import com.badlogic.gdx.graphics.glutils.ShaderProgram;
+import com.badlogic.gdx.math.MathUtils;
+
+/**
+ * Radar shown while a rover scans: a sweep fading from green to black, range
+ * rings and cross hairs. The geometry is built once around the origin and
+ * drawn with a translation to the rover and a rotation by the scan angle, so
+ * a frame only costs two draw calls. Must only be used on the render thread.
+ */
+public class RadarOverlay {
+	/// Number of range rings, the outer ring is the scan radius
+	public static final int RINGS = 5;
+
+	/// Triangles in the sweep and line segments in each ring
+	private static final int SWEEP_SEGMENTS = 128;
+	private static final int RING_SEGMENTS = 48;
+
+	/// Floats per vertex (x, y, packed color)
+	private static final int VERTEX_SIZE = 3;
+
+	/// Sweep triangles and ring and cross hair lines
+	private Mesh sweep = null;
+	private Mesh rings = null;
+
+	/// Size of a map square the meshes were built for
+	private float gridX = 0;
+	private float gridY = 0;
+
+	/**
+	 * Draw the radar.
+	 * @param theCamera world camera of the view
+	 * @param theCenterX level coordinate of the rover center
+	 * @param theCenterY level coordinate of the rover center
+	 * @param theGridX width of a map square in level coordinates
+	 * @param theGridY height of a map square in level coordinates
+	 * @param theScanAngle angle of the sweep in radians
+	 */
+	public void render(OrthographicCamera theCamera, float theCenterX, float theCenterY,
+			float theGridX, float theGridY, float theScanAngle) {
+		// Build our meshes the first time, or again if the map uses another grid
+		if(sweep == null || theGridX != gridX || theGridY != gridY) {
+			build(theGridX, theGridY);
+		}
+
+		GL10 gl = Gdx.gl10;
+		gl.glMatrixMode(GL10.GL_PROJECTION);
+		gl.glLoadMatrixf(theCamera.combined.val, 0);
+		gl.glDisable(GL10.GL_TEXTURE_2D);
+
+		// Rotate the sweep around the rover
+		gl.glMatrixMode(GL10.GL_MODELVIEW);
+		gl.glLoadIdentity();
+		gl.glTranslatef(theCenterX, theCenterY, 0);
+		gl.glPushMatrix();
+		gl.glRotatef(theScanAngle * MathUtils.radiansToDegrees, 0, 0, 1);
+		sweep.render(GL10.GL_TRIANGLES);
+		gl.glPopMatrix();
+
+		// Rings and cross hairs on top of the sweep
+		rings.render(GL10.GL_LINES);
+		gl.glLoadIdentity();
+	}
+
+	private void build(float theGridX, float theGridY) {
+		dispose();
+		gridX = theGridX;
+		gridY = theGridY;
+
+		// Sweep from green at the leading edge to black, one triangle per segment
+		float anRadius = RINGS * theGridX;
+		float[] anVertices = new float[SWEEP_SEGMENTS * 3 * VERTEX_SIZE];
+		int v = 0;
+		for(int i = 0; SWEEP_SEGMENTS > i; i++) {
+			float anAngle0 = MathUtils.PI2 * i / SWEEP_SEGMENTS;
+			float anAngle1 = MathUtils.PI2 * (i + 1) / SWEEP_SEGMENTS;
+			float anColor0 = Color.toFloatBits(0, anAngle0 / (2*MathUtils.PI2), 0, 1);
+			float anColor1 = Color.toFloatBits(0, anAngle1 / (2*MathUtils.PI2), 0, 1);
+			v = addVertex(anVertices, v, 0, 0, anColor0);
+			v = addVertex(anVertices, v, anRadius * MathUtils.cos(anAngle0), anRadius * MathUtils.sin(anAngle0), anColor0);
+			v = addVertex(anVertices, v, anRadius * MathUtils.cos(anAngle1), anRadius * MathUtils.sin(anAngle1), anColor1);
+		}
+		sweep = newMesh(anVertices);
+
+		// Green range rings with a white border on the last ring, then the cross hairs
+		float anGreen = Color.toFloatBits(0, 0.8f, 0.1f, 1);
+		float anWhite = Color.WHITE.toFloatBits();
+		anVertices = new float[(RINGS * RING_SEGMENTS * 2 + 4) * VERTEX_SIZE];
+		v = 0;
+		for(int r = 1; RINGS >= r; r++) {
+			float anColor = r == RINGS ? anWhite : anGreen;
+			float anRingRadius = r * theGridX;
+			for(int i = 0; RING_SEGMENTS > i; i++) {
+				float anAngle0 = MathUtils.PI2 * i / RING_SEGMENTS;
+				float anAngle1 = MathUtils.PI2 * (i + 1) / RING_SEGMENTS;
+				v = addVertex(anVertices, v, anRingRadius * MathUtils.cos(anAngle0), anRingRadius * MathUtils.sin(anAngle0), anColor);
+				v = addVertex(anVertices, v, anRingRadius * MathUtils.cos(anAngle1), anRingRadius * MathUtils.sin(anAngle1), anColor);
+			}
+		}
+		v = addVertex(anVertices, v, -RINGS * theGridX, 0, anGreen);
+		v = addVertex(anVertices, v, RINGS * theGridX, 0, anGreen);
+		v = addVertex(anVertices, v, 0, -RINGS * theGridY, anGreen);
+		v = addVertex(anVertices, v, 0, RINGS * theGridY, anGreen);
+		rings = newMesh(anVertices);
+	}
+
+	private static int addVertex(float[] theVertices, int theOffset, float x, float y, float theColor) {
+		theVertices[theOffset] = x;
+		theVertices[theOffset+1] = y;
+		theVertices[theOffset+2] = theColor;
+		return theOffset + VERTEX_SIZE;
+	}
+
+	private static Mesh newMesh(float[] theVertices) {
+		Mesh anMesh = new Mesh(true, theVertices.length / VERTEX_SIZE, 0,
+				new VertexAttribute(Usage.Position, 2, ShaderProgram.POSITION_ATTRIBUTE),
+				new VertexAttribute(Usage.ColorPacked, 4, ShaderProgram.COLOR_ATTRIBUTE));
+		anMesh.setVertices(theVertices);
+		return anMesh;
+	}
+
+	public void dispose() {
+		if(sweep != null) {
+			sweep.dispose();
+			sweep = null;
+		}
+		if(rings != null) {
+			rings.dispose();
+			rings = null;
+		}
+	}
+}
@@ -0,0 +1,158 @@
+package com.cosmicrover.cassini;
+
+import com.badlogic.gdx.graphics.OrthographicCamera;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.maps.tiled.TiledMap;
+import com.badlogic.gdx.math.Rectangle;
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.math.Vector3;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.FloatArray;
+import com.cosmicrover.cassini.components.CameraComponent;
+import com.cosmicrover.cassini.components.ViewportComponent;
+
+/**
+ * Copy of everything the render systems need to draw a frame, captured by the
+ * RenderSnapshotSystem after each simulation step. Render systems only read
+ * from a snapshot, never from the world, so rendering can happen on a
+ * different thread than the simulation. Snapshots are reused between frames
+ * to avoid allocations.
+ */
+public class RenderSnapshot {
+	/// Number of floats stored per sprite in spriteData (x, y, packed tint)
+	public static final int SPRITE_STRIDE = 3;
+
+	/**
+	 * State of a single player view (camera, viewport, and map).
+	 */
+	public static class View {
+		/// Id of the entity owning this view
+		public int entityId;
+
+		/// Copies of the cameras and viewport, input and resizing change the
+		/// originals on the render thread while this snapshot is drawn
+		public final OrthographicCamera worldCamera = new OrthographicCamera();
+		public final OrthographicCamera hudCamera = new OrthographicCamera();
+		public int viewportX;
+		public int viewportY;
+		public int viewportWidth;
+		public int viewportHeight;
+
+		/// Map being shown and its layers
+		public String mapName;
+		public TiledMap tiledMap;
+		public int[] mapBackgroundLayers;
+		public int[] mapForegroundLayers;
+
+		/// Location of the rover owning this view
+		public final Vector3 level = new Vector3();
+		public final Vector2 levelGrid = new Vector2();
+		public final Vector2 levelOffsetCenter = new Vector2();
+		public final Rectangle levelBounds = new Rectangle();
+
+		/// Radar scan state
+		public boolean scanInProgress;
+		public float scanAngle;
+
+		/// Movement path in map coordinates
+		public final Route movePath = new Route();
+
+		/// Copy of the fog of war of this player for this map, null if it has none
+		public FogMap fog;
+
+		/// Sprites on this map near the camera, their regions and data (x, y, tint) per sprite
+		public final Array<TextureRegion> spriteRegions = new Array<TextureRegion>();
+		public final FloatArray spriteData = new FloatArray();
+
+		/**
+		 * Copies the cameras and viewport of this view.
+		 * @param theCamera to copy the world and HUD cameras from
+		 * @param theViewport to copy the position and size from
+		 */
+		public void setCamera(CameraComponent theCamera, ViewportComponent theViewport) {
+			copyCamera(theCamera.getWorldCamera(), worldCamera);
+			copyCamera(theCamera.getHudCamera(), hudCamera);
+			viewportX = theViewport.x;
+			viewportY = theViewport.y;
+			viewportWidth = theViewport.width;
+			viewportHeight = theViewport.height;
+		}
+
+		// Copy what drawing and culling use, the frustum is left alone
+		private static void copyCamera(OrthographicCamera theFrom, OrthographicCamera theTo) {
+			theTo.position.set(theFrom.position);
+			theTo.direction.set(theFrom.direction);
+			theTo.up.set(theFrom.up);
+			theTo.zoom = theFrom.zoom;
+			theTo.near = theFrom.near;
+			theTo.far = theFrom.far;
+			theTo.viewportWidth = theFrom.viewportWidth;
+			theTo.viewportHeight = theFrom.viewportHeight;
+			theTo.projection.set(theFrom.projection);
+			theTo.view.set(theFrom.view);
+			theTo.combined.set(theFrom.combined);
+			theTo.invProjectionView.set(theFrom.invProjectionView);
+		}
+
+		/**
+		 * Adds a sprite to be drawn in this view.
+		 * @param region to draw
+		 * @param x level coordinate
+		 * @param y level coordinate
+		 * @param tint packed color bits
+		 */
+		public void addSprite(TextureRegion region, float x, float y, float tint) {
+			spriteRegions.add(region);
+			spriteData.add(x);
+			spriteData.add(y);
+			spriteData.add(tint);
+		}
+
+		public int getSpriteCount() {
+			return spriteRegions.size;
+		}
+	}
+
+	/// Views captured in this snapshot, only the first viewCount are valid
+	private final Array<View> views = new Array<View>();
+	private int viewCount = 0;
+
+	/// Entity statistics
+	public int activeEntities;
+	public long totalCreated;
+	public long totalDeleted;
+
+	/**
+	 * Resets this snapshot so it can be filled again, keeping the allocated
+	 * views and arrays around.
+	 */
+	public void clear() {
+		viewCount = 0;
+		activeEntities = 0;
+		totalCreated = 0;
+		totalDeleted = 0;
+	}
+
+	/**
+	 * Returns the next unused view, reusing a previously allocated one.
+	 * @return cleared view ready to be filled
+	 */
+	public View addView() {
+		if(viewCount == views.size) {
+			views.add(new View());
+		}
+		View anView = views.get(viewCount++);
+		anView.movePath.clear();
+		anView.spriteRegions.clear();
+		anView.spriteData.clear();
+		return anView;
+	}
+
+	public int getViewCount() {
+		return viewCount;
+	}
+
+	public View getView(int index) {
+		return views.get(index);
+	}
+}
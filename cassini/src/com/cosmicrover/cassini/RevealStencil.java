@@ -0,0 +1,223 @@
+package com.cosmicrover.cassini;
+
+import com.badlogic.gdx.utils.IntArray;
+import com.badlogic.gdx.utils.IntMap;
+
+/**
+ * Precomputed shape of the squares revealed around a center square, such as
+ * the area covered by a rover scan. Stencils are cached per shape and radius
+ * by get(), so building one only happens the first time it is used.
+ *
+ * Filled shapes are stored as one span per row so a FogMap can reveal them a
+ * word at a time. Line of sight is stored as rays walked outwards from the
+ * center, so a ray can stop at the first square that blocks the view.
+ */
+public class RevealStencil {
+	/**
+	 * Shapes a stencil can have.
+	 */
+	public enum Shape {
+		/// Squares within a manhattan distance of the center
+		DIAMOND,
+		/// Squares within a euclidean distance of the center
+		CIRCLE,
+		/// Squares within CIRCLE that can be seen from the center
+		LINE_OF_SIGHT
+	}
+
+	/**
+	 * Tells a LINE_OF_SIGHT stencil which squares can't be seen through.
+	 */
+	public interface Blocker {
+		/**
+		 * @param x map square
+		 * @param y map square
+		 * @return true if squares behind this one are hidden from view
+		 */
+		public boolean isBlocking(int x, int y);
+	}
+
+	/// Stencils built so far by radius for each shape
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	private static final IntMap<RevealStencil>[] stencils = new IntMap[Shape.values().length];
+
+	private final Shape shape;
+	private final int radius;
+
+	/// Row offset and first and last column offset of each span (dy, dx0, dx1)
+	private final int[] spans;
+
+	/// Column and row offsets of each step along the rays (dx, dy) and where each ray ends
+	private final int[] raySteps;
+	private final int[] rayEnds;
+
+	/**
+	 * Retrieve the stencil for a shape and radius, building it the first time.
+	 * Only call this from the thread processing the world.
+	 * @param theShape of the stencil
+	 * @param theRadius in map squares
+	 * @return cached stencil
+	 */
+	public static RevealStencil get(Shape theShape, int theRadius) {
+		IntMap<RevealStencil> anStencils = stencils[theShape.ordinal()];
+		if(anStencils == null) {
+			anStencils = new IntMap<RevealStencil>();
+			stencils[theShape.ordinal()] = anStencils;
+		}
+		RevealStencil anStencil = anStencils.get(theRadius);
+		if(anStencil == null) {
+			anStencil = new RevealStencil(theShape, Math.max(theRadius, 0));
+			anStencils.put(theRadius, anStencil);
+		}
+		return anStencil;
+	}
+
+	private RevealStencil(Shape theShape, int theRadius) {
+		this.shape = theShape;
+		this.radius = theRadius;
+
+		// Every shape starts out as the filled spans of its outline
+		IntArray anSpans = new IntArray();
+		for(int dy = -theRadius; theRadius >= dy; dy++) {
+			int anHalfWidth;
+			if(theShape == Shape.DIAMOND) {
+				anHalfWidth = theRadius - Math.abs(dy);
+			} else {
+				anHalfWidth = (int)Math.sqrt(theRadius*theRadius - dy*dy);
+			}
+			anSpans.add(dy);
+			anSpans.add(-anHalfWidth);
+			anSpans.add(anHalfWidth);
+		}
+		spans = anSpans.toArray();
+
+		// Line of sight also needs a ray to each square on the edge of the circle
+		if(theShape == Shape.LINE_OF_SIGHT) {
+			IntArray anSteps = new IntArray();
+			IntArray anEnds = new IntArray();
+			int anDiameter = theRadius*2 + 1;
+			boolean[] anCovered = new boolean[anDiameter*anDiameter];
+			for(int i = 0, s = spans.length; s > i; i += 3) {
+				int dy = spans[i];
+				int anHalfWidth = spans[i+2];
+				// Squares wider than the next row further out are on the edge
+				int anOuterHalfWidth = -1;
+				if(Math.abs(dy) < theRadius) {
+					anOuterHalfWidth = spans[dy < 0 ? i-1 : i+5];
+				}
+				for(int dx = -anHalfWidth; anHalfWidth >= dx; dx++) {
+					if(Math.abs(dx) > anOuterHalfWidth || Math.abs(dx) == anHalfWidth) {
+						addRay(anSteps, anEnds, dx, dy, anCovered, anDiameter);
+					}
+				}
+			}
+			// Rays towards the edge can skip squares on the way, add rays for those too
+			anCovered[theRadius*anDiameter + theRadius] = true;
+			for(int i = 0, s = spans.length; s > i; i += 3) {
+				int dy = spans[i];
+				for(int dx = spans[i+1]; spans[i+2] >= dx; dx++) {
+					if(!anCovered[(dy+theRadius)*anDiameter + dx+theRadius]) {
+						addRay(anSteps, anEnds, dx, dy, anCovered, anDiameter);
+					}
+				}
+			}
+			raySteps = anSteps.toArray();
+			rayEnds = anEnds.toArray();
+		} else {
+			raySteps = null;
+			rayEnds = null;
+		}
+	}
+
+	// Walk a Bresenham line from the center to (theX, theY)
+	private void addRay(IntArray theSteps, IntArray theEnds, int theX, int theY,
+			boolean[] theCovered, int theDiameter) {
+		int anDx = Math.abs(theX);
+		int anDy = Math.abs(theY);
+		int anStepX = theX < 0 ? -1 : 1;
+		int anStepY = theY < 0 ? -1 : 1;
+		int anError = anDx - anDy;
+		int x = 0;
+		int y = 0;
+		while(x != theX || y != theY) {
+			int anError2 = anError * 2;
+			if(anError2 > -anDy) {
+				anError -= anDy;
+				x += anStepX;
+			}
+			if(anError2 < anDx) {
+				anError += anDx;
+				y += anStepY;
+			}
+			theSteps.add(x);
+			theSteps.add(y);
+			theCovered[(y+radius)*theDiameter + x+radius] = true;
+		}
+		theEnds.add(theSteps.size);
+	}
+
+	public Shape getShape() {
+		return shape;
+	}
+
+	public int getRadius() {
+		return radius;
+	}
+
+	/**
+	 * Count the hidden squares of this stencil on a FogMap, ignoring
+	 * anything blocking line of sight.
+	 * @param theFog to count the squares on
+	 * @param theX center map square
+	 * @param theY center map square
+	 * @return number of hidden squares a reveal would show at most
+	 */
+	public int countHidden(FogMap theFog, int theX, int theY) {
+		int anHidden = 0;
+		for(int i = 0, s = spans.length; s > i; i += 3) {
+			anHidden += theFog.countHidden(theY+spans[i], theX+spans[i+1], theX+spans[i+2]);
+		}
+		return anHidden;
+	}
+
+	/**
+	 * Reveal the squares of this stencil on a FogMap.
+	 * @param theFog to reveal the squares on
+	 * @param theX center map square
+	 * @param theY center map square
+	 * @param theBlocker squares blocking line of sight, or null if nothing blocks
+	 * @return number of squares that were hidden before
+	 */
+	public int reveal(FogMap theFog, int theX, int theY, Blocker theBlocker) {
+		int anRevealed = 0;
+
+		// Without anything in the way line of sight is the same as the circle
+		if(raySteps == null || theBlocker == null) {
+			for(int i = 0, s = spans.length; s > i; i += 3) {
+				anRevealed += theFog.revealSpan(theY+spans[i], theX+spans[i+1], theX+spans[i+2]);
+			}
+			return anRevealed;
+		}
+
+		// Walk each ray until it leaves the map or hits a blocking square
+		if(theFog.reveal(theX, theY)) {
+			anRevealed++;
+		}
+		for(int r = 0, i = 0, s = rayEnds.length; s > r; i = rayEnds[r++]) {
+			for(int e = rayEnds[r]; e > i; i += 2) {
+				int x = theX + raySteps[i];
+				int y = theY + raySteps[i+1];
+				if(!theFog.contains(x, y)) {
+					break;
+				}
+				if(theFog.reveal(x, y)) {
+					anRevealed++;
+				}
+				if(theBlocker.isBlocking(x, y)) {
+					break;
+				}
+			}
+		}
+		return anRevealed;
+	}
+}
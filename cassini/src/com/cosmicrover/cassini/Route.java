@@ -0,0 +1,162 @@
+package com.cosmicrover.cassini;
+
+import com.cosmicrover.cassini.components.RoverEventComponent.RoverEvent;
+
+/**
+ * Route of map squares kept as packed ints in a primitive array, one int per
+ * point with x in the high and y in the low 16 bits. A long route costs four
+ * bytes per point and adding a point never allocates once the array has grown
+ * to fit. Input, rendering, event generation and persistence all read the
+ * packed points directly.
+ */
+public class Route {
+	/// Packed points and how many are used
+	private int[] points;
+	private int size = 0;
+
+	/// Direction of a step by (dx+1)*3 + (dy+1), -1 if it isn't a step
+	private static final int[] DIRECTIONS = {
+		RoverEvent.DIR_SW, RoverEvent.DIR_W, RoverEvent.DIR_NW,
+		RoverEvent.DIR_S,  -1,               RoverEvent.DIR_N,
+		RoverEvent.DIR_SE, RoverEvent.DIR_E, RoverEvent.DIR_NE
+	};
+
+	public Route() {
+		points = new int[16];
+	}
+
+	public static int pack(int x, int y) {
+		return (x << 16) | (y & 0xffff);
+	}
+
+	public static int unpackX(int thePoint) {
+		return thePoint >> 16;
+	}
+
+	public static int unpackY(int thePoint) {
+		return (short)thePoint;
+	}
+
+	public void add(int x, int y) {
+		addPacked(pack(x, y));
+	}
+
+	public void addPacked(int thePoint) {
+		if(size == points.length) {
+			int[] anPoints = new int[points.length * 2];
+			System.arraycopy(points, 0, anPoints, 0, size);
+			points = anPoints;
+		}
+		points[size++] = thePoint;
+	}
+
+	/**
+	 * Replace our points with those of theRoute.
+	 * @param theRoute to copy
+	 * @return this route
+	 */
+	public Route set(Route theRoute) {
+		clear();
+		addAll(theRoute.points, 0, theRoute.size);
+		return this;
+	}
+
+	/**
+	 * Append packed points, for example read back from a saved game.
+	 * @param thePoints packed points
+	 * @param theStart index of the first point to add
+	 * @param theCount number of points to add
+	 */
+	public void addAll(int[] thePoints, int theStart, int theCount) {
+		for(int i = 0; theCount > i; i++) {
+			addPacked(thePoints[theStart + i]);
+		}
+	}
+
+	public void clear() {
+		size = 0;
+	}
+
+	/**
+	 * Drop every point from theSize onwards.
+	 * @param theSize number of points to keep
+	 */
+	public void truncate(int theSize) {
+		size = Math.min(size, theSize);
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public int get(int theIndex) {
+		return points[theIndex];
+	}
+
+	public int getX(int theIndex) {
+		return unpackX(points[theIndex]);
+	}
+
+	public int getY(int theIndex) {
+		return unpackY(points[theIndex]);
+	}
+
+	public int peekX() {
+		return getX(size-1);
+	}
+
+	public int peekY() {
+		return getY(size-1);
+	}
+
+	/**
+	 * @param x map square
+	 * @param y map square
+	 * @return true if x, y is one of the eight squares around the last point
+	 */
+	public boolean isNextTo(int x, int y) {
+		int dx = x - peekX();
+		int dy = y - peekY();
+		return (dx != 0 || dy != 0) && dx >= -1 && dx <= 1 && dy >= -1 && dy <= 1;
+	}
+
+	/**
+	 * @param theIndex of the step, from point theIndex to point theIndex+1
+	 * @return RoverEvent.DIR_* direction of the step, -1 if the points aren't next to each other
+	 */
+	public int getDirection(int theIndex) {
+		int dx = getX(theIndex+1) - getX(theIndex);
+		int dy = getY(theIndex+1) - getY(theIndex);
+		if(dx < -1 || dx > 1 || dy < -1 || dy > 1) {
+			return -1;
+		}
+		return DIRECTIONS[(dx+1)*3 + (dy+1)];
+	}
+
+	/**
+	 * Queue a RoverEvent.EVENT_MOVE for every step of the route, skipping
+	 * points that aren't next to the previous one.
+	 * @param theEvents queue to add the moves to
+	 * @return number of moves queued
+	 */
+	public int queueMoves(EventQueue theEvents) {
+		int anQueued = 0;
+		for(int i = 0, s = size - 1; s > i; i++) {
+			int anDirection = getDirection(i);
+			if(anDirection >= 0) {
+				theEvents.addLast(RoverEvent.EVENT_MOVE, anDirection);
+				anQueued++;
+			}
+		}
+		return anQueued;
+	}
+
+	/**
+	 * @return copy of the packed points, sized to fit (for saving)
+	 */
+	public int[] toArray() {
+		int[] anPoints = new int[size];
+		System.arraycopy(points, 0, anPoints, 0, size);
+		return anPoints;
+	}
+}
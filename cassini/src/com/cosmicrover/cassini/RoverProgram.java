@@ -0,0 +1,207 @@
+package com.cosmicrover.cassini;
+
+import com.badlogic.gdx.utils.IntArray;
+import com.badlogic.gdx.utils.ObjectIntMap;
+
+/**
+ * Compact program format for autonomous rovers, run by the
+ * RoverProgramSystem. Each instruction is a single int:
+ *
+ *   bits 24-31 opcode, bits 20-23 register a, bits 16-19 register b,
+ *   bits 0-15 signed immediate (a value or an instruction index to jump to)
+ *
+ * A rover has REGISTERS int registers. Instructions that give the rover
+ * something to do (MOVE, TURN, LOOK, WAIT, SEEK, EXPLORE) queue a RoverEvent and end
+ * the rover's turn, the program carries on once the rover is idle again.
+ *
+ * Programs are usually written with assemble(), one instruction per line:
+ *
+ *   loop:  RAND r0 8       ; pick a direction
+ *          MOVE r0
+ *          LOOK 100
+ *          JMP loop
+ */
+public class RoverProgram {
+	/// Number of registers of each rover
+	public static final int REGISTERS = 16;
+
+	// List of opcodes, a and b are registers, imm the immediate value
+	public static final int OP_NOP   =  0; ///< Do nothing
+	public static final int OP_HALT  =  1; ///< Stop the program
+	public static final int OP_YIELD =  2; ///< End this turn
+	public static final int OP_SET   =  3; ///< a = imm
+	public static final int OP_MOV   =  4; ///< a = b
+	public static final int OP_ADD   =  5; ///< a += b
+	public static final int OP_SUB   =  6; ///< a -= b
+	public static final int OP_MUL   =  7; ///< a *= b
+	public static final int OP_ADDI  =  8; ///< a += imm
+	public static final int OP_RAND  =  9; ///< a = random number from 0 to imm-1
+	public static final int OP_JMP   = 10; ///< Jump to imm
+	public static final int OP_JZ    = 11; ///< Jump to imm if a == 0
+	public static final int OP_JNZ   = 12; ///< Jump to imm if a != 0
+	public static final int OP_JEQ   = 13; ///< Jump to imm if a == b
+	public static final int OP_JLT   = 14; ///< Jump to imm if a < b
+	public static final int OP_POS   = 15; ///< a = map x, a+1 = map y of the rover
+	public static final int OP_DIR   = 16; ///< a = direction the rover is facing (RoverEvent.DIR_*)
+	public static final int OP_ITEM  = 17; ///< a = number of other entities on square (b, b+1)
+	public static final int OP_OPEN  = 18; ///< a = 1 if a rover can drive onto square (b, b+1), else 0
+	public static final int OP_MOVE  = 19; ///< Move one square in direction a
+	public static final int OP_TURN  = 20; ///< Rotate to face direction a
+	public static final int OP_LOOK  = 21; ///< Scan around for imm ticks
+	public static final int OP_WAIT  = 22; ///< Wait for imm ticks
+	public static final int OP_SEEK  = 23; ///< Drive to square (a, a+1) along its flow field
+	public static final int OP_EXPLORE = 24; ///< Drive to the best square to scan from and scan, a = 0 if nothing is left
+
+	/// Mnemonic of each opcode, and whether it takes register a, register b, and an immediate
+	private static final String[] NAMES = {
+		"NOP", "HALT", "YIELD", "SET", "MOV", "ADD", "SUB", "MUL", "ADDI", "RAND",
+		"JMP", "JZ", "JNZ", "JEQ", "JLT", "POS", "DIR", "ITEM", "OPEN",
+		"MOVE", "TURN", "LOOK", "WAIT", "SEEK", "EXPLORE" };
+
+	/// Program of the bot rovers, explores until nothing is left then checks back now and then
+	public static final String EXPLORER =
+		"loop:  EXPLORE r0      ; drive to the best square to scan from and scan\n" +
+		"       JNZ r0 loop\n" +
+		"       WAIT 250        ; nothing left for now, the map may open up later\n" +
+		"       JMP loop\n";
+
+	private static final String[] OPERANDS = {
+		"", "", "", "ai", "ab", "ab", "ab", "ab", "ai", "ai",
+		"i", "ai", "ai", "abi", "abi", "a", "a", "ab", "ab",
+		"a", "a", "i", "i", "a", "a" };
+
+	private RoverProgram() {
+	}
+
+	public static int encode(int theOpcode, int a, int b, int theImmediate) {
+		return (theOpcode << 24) | ((a & 0xf) << 20) | ((b & 0xf) << 16) | (theImmediate & 0xffff);
+	}
+
+	public static int getOpcode(int theInstruction) {
+		return theInstruction >>> 24;
+	}
+
+	public static int getA(int theInstruction) {
+		return (theInstruction >> 20) & 0xf;
+	}
+
+	public static int getB(int theInstruction) {
+		return (theInstruction >> 16) & 0xf;
+	}
+
+	public static int getImmediate(int theInstruction) {
+		return (short)theInstruction;
+	}
+
+	/**
+	 * Assemble program text into code. Each line holds an optional "label:",
+	 * then an optional instruction (mnemonic then its operands separated by
+	 * spaces or commas). Registers are r0 to r15, jumps take a label or an
+	 * instruction index, and anything after ';' or '#' is a comment.
+	 * @param theSource program text
+	 * @return code for RoverProgramComponent
+	 * @throws IllegalArgumentException with the line number for any mistake
+	 */
+	public static int[] assemble(String theSource) {
+		String[] anLines = theSource.split("\n");
+
+		// First pass finds the instruction index of every label
+		ObjectIntMap<String> anLabels = new ObjectIntMap<String>();
+		int anCount = 0;
+		for(int i = 0; anLines.length > i; i++) {
+			String[] anTokens = tokenize(anLines[i]);
+			int anFirst = 0;
+			if(anTokens.length > 0 && anTokens[0].endsWith(":")) {
+				anLabels.put(anTokens[0].substring(0, anTokens[0].length()-1).toLowerCase(), anCount);
+				anFirst = 1;
+			}
+			if(anTokens.length > anFirst) {
+				anCount++;
+			}
+		}
+
+		// Second pass encodes the instructions
+		IntArray anCode = new IntArray(anCount);
+		for(int i = 0; anLines.length > i; i++) {
+			String[] anTokens = tokenize(anLines[i]);
+			int t = anTokens.length > 0 && anTokens[0].endsWith(":") ? 1 : 0;
+			if(t == anTokens.length) {
+				continue;
+			}
+
+			int anOpcode = -1;
+			for(int op = 0; NAMES.length > op; op++) {
+				if(NAMES[op].equalsIgnoreCase(anTokens[t])) {
+					anOpcode = op;
+				}
+			}
+			if(anOpcode < 0) {
+				throw new IllegalArgumentException("Line "+(i+1)+": unknown instruction "+anTokens[t]);
+			}
+			String anOperands = OPERANDS[anOpcode];
+			if(anTokens.length - t - 1 != anOperands.length()) {
+				throw new IllegalArgumentException("Line "+(i+1)+": "+NAMES[anOpcode]+" takes "+anOperands.length()+" operands");
+			}
+
+			int a = 0, b = 0, anImmediate = 0;
+			for(int o = 0; anOperands.length() > o; o++) {
+				String anToken = anTokens[t + 1 + o];
+				switch(anOperands.charAt(o)) {
+				case 'a':
+					a = parseRegister(anToken, i);
+					break;
+				case 'b':
+					b = parseRegister(anToken, i);
+					break;
+				default:
+					anImmediate = parseImmediate(anToken, anLabels, i);
+					break;
+				}
+			}
+			anCode.add(encode(anOpcode, a, b, anImmediate));
+		}
+		return anCode.toArray();
+	}
+
+	private static String[] tokenize(String theLine) {
+		int anComment = theLine.indexOf(';');
+		if(anComment < 0) {
+			anComment = theLine.indexOf('#');
+		}
+		if(anComment >= 0) {
+			theLine = theLine.substring(0, anComment);
+		}
+		theLine = theLine.trim();
+		return theLine.length() == 0 ? new String[0] : theLine.split("[\\s,]+");
+	}
+
+	private static int parseRegister(String theToken, int theLine) {
+		if(theToken.length() > 1 && Character.toLowerCase(theToken.charAt(0)) == 'r') {
+			try {
+				int anRegister = Integer.parseInt(theToken.substring(1));
+				if(anRegister >= 0 && anRegister < REGISTERS) {
+					return anRegister;
+				}
+			} catch(NumberFormatException nfe) {
+				// Reported below
+			}
+		}
+		throw new IllegalArgumentException("Line "+(theLine+1)+": "+theToken+" isn't a register r0 to r"+(REGISTERS-1));
+	}
+
+	private static int parseImmediate(String theToken, ObjectIntMap<String> theLabels, int theLine) {
+		int anLabel = theLabels.get(theToken.toLowerCase(), -1);
+		if(anLabel >= 0) {
+			return anLabel;
+		}
+		try {
+			int anValue = Integer.parseInt(theToken);
+			if(anValue >= Short.MIN_VALUE && anValue <= Short.MAX_VALUE) {
+				return anValue;
+			}
+		} catch(NumberFormatException nfe) {
+			// Reported below
+		}
+		throw new IllegalArgumentException("Line "+(theLine+1)+": "+theToken+" isn't a label or a 16 bit number");
+	}
+}
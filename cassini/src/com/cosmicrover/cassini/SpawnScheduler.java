@@ -0,0 +1,115 @@
+package com.cosmicrover.cassini;
+
+import com.artemis.World;
+import com.badlogic.gdx.maps.tiled.TiledMapTileLayer;
+import com.badlogic.gdx.maps.tiled.TiledMapTileLayer.Cell;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.TimeUtils;
+import com.cosmicrover.cassini.components.LocationComponent;
+
+/**
+ * Creates the item entities of newly loaded maps a slice at a time, so a
+ * map with thousands of items spreads their creation over several frames
+ * instead of stalling one. Each call to update() creates items and tells
+ * the managers and systems about them until its time budget runs out, and
+ * getProgress() tells how far along it is.
+ *
+ * Must only be used while holding the world.
+ */
+public class SpawnScheduler {
+	/// Cells looked at between checks of the time budget
+	private static final int CELLS_PER_CHECK = 64;
+
+	/**
+	 * An items layer waiting to be spawned.
+	 */
+	private static class Job {
+		TiledMapTileLayer layer;
+		/// Location on the map each item location is cloned from
+		LocationComponent location;
+		/// Next cell to look at, y * width + x
+		int nextCell;
+	}
+
+	private final World world;
+
+	/// Layers still to be spawned, the first one is in progress
+	private final Array<Job> jobs;
+
+	/// Cells looked at and cells to look at since the scheduler was last idle
+	private int cellsDone = 0;
+	private int cellsTotal = 0;
+
+	public SpawnScheduler(World theWorld) {
+		world = theWorld;
+		jobs = new Array<Job>();
+	}
+
+	/**
+	 * Queue an items layer, every tile on it becomes an item entity.
+	 * @param theLayer of items
+	 * @param theLocation on the map of the layer, copied
+	 */
+	public void add(TiledMapTileLayer theLayer, LocationComponent theLocation) {
+		// Start counting afresh when we were idle
+		if(jobs.size == 0) {
+			cellsDone = 0;
+			cellsTotal = 0;
+		}
+		Job anJob = new Job();
+		anJob.layer = theLayer;
+		anJob.location = theLocation.copy();
+		jobs.add(anJob);
+		cellsTotal += theLayer.getWidth() * theLayer.getHeight();
+	}
+
+	/**
+	 * Create items until theBudget_ns runs out or every layer is done.
+	 * @param theBudget_ns time to spend, in nanoseconds
+	 * @return true when every layer queued is done
+	 */
+	public boolean update(long theBudget_ns) {
+		long anEnd = TimeUtils.nanoTime() + theBudget_ns;
+		while(jobs.size > 0) {
+			Job anJob = jobs.first();
+			int anWidth = anJob.layer.getWidth();
+			int anCells = anWidth * anJob.layer.getHeight();
+			int anStop = Math.min(anCells, anJob.nextCell + CELLS_PER_CHECK);
+			for(int c = anJob.nextCell; anStop > c; c++) {
+				Cell cell = anJob.layer.getCell(c % anWidth, c / anWidth);
+				if(cell != null) {
+					// Create a LocationComponent for this tile as a clone from the layer Location
+					LocationComponent locationItem = new LocationComponent(anJob.location, c % anWidth, c / anWidth);
+					// Now create the Entity for this item and add it to the world
+					EntityFactory.createMapItem(world, locationItem, cell.getTile()).addToWorld();
+				}
+			}
+			// Let the managers and systems see the new items within our budget
+			world.processAdded();
+			cellsDone += anStop - anJob.nextCell;
+			anJob.nextCell = anStop;
+			if(anStop == anCells) {
+				jobs.removeIndex(0);
+			}
+			if(TimeUtils.nanoTime() >= anEnd) {
+				break;
+			}
+		}
+		return jobs.size == 0;
+	}
+
+	/**
+	 * @return true when there is nothing waiting to be spawned
+	 */
+	public boolean isDone() {
+		return jobs.size == 0;
+	}
+
+	/**
+	 * @return how much of the layers queued since we were last idle is done,
+	 * from 0 to 1, 0 until a layer is queued
+	 */
+	public float getProgress() {
+		return cellsTotal > 0 ? cellsDone / (float)cellsTotal : 0.0f;
+	}
+}
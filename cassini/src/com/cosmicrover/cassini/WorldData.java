@@ -4,8 +4,10 @@ import java.util.HashMap;
 
 import com.artemis.Component;
 import com.artemis.Entity;
+import com.artemis.EntityBatch;
 import com.artemis.World;
 import com.artemis.utils.Bag;
+import com.artemis.utils.ImmutableBag;
 import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.graphics.g2d.TextureAtlas;
 import com.badlogic.gdx.graphics.g2d.TextureRegion;
@@ -14,19 +16,29 @@ import com.badlogic.gdx.maps.tiled.TiledMap;
 import com.badlogic.gdx.maps.tiled.TmxMapLoader;
 import com.badlogic.gdx.utils.Array;
 import com.badlogic.gdx.utils.ArrayMap;
+import com.badlogic.gdx.utils.IntArray;
 import com.badlogic.gdx.utils.IntIntMap;
 import com.badlogic.gdx.utils.Json;
 import com.badlogic.gdx.utils.JsonValue;
+import com.badlogic.gdx.utils.ObjectMap;
+import com.cosmicrover.cassini.components.FogComponent;
+import com.cosmicrover.cassini.components.LocationComponent;
+import com.cosmicrover.cassini.components.OwnerComponent;
+import com.cosmicrover.cassini.managers.ExplorationManager;
+import com.cosmicrover.cassini.managers.FogManager;
 import com.cosmicrover.cassini.managers.GroupManager;
 import com.cosmicrover.cassini.managers.OwnerManager;
+import com.cosmicrover.cassini.managers.PathfindingManager;
 import com.cosmicrover.cassini.managers.PersistenceManager;
 import com.cosmicrover.cassini.managers.PropertyManager;
+import com.cosmicrover.cassini.managers.SpatialManager;
 import com.cosmicrover.cassini.managers.ViewportManager;
 import com.cosmicrover.cassini.screens.MainMenuScreen;
 import com.cosmicrover.cassini.screens.PlanetMapScreen;
 import com.cosmicrover.cassini.screens.OptionsScreen;
 import com.cosmicrover.cassini.systems.MapSystem;
 import com.cosmicrover.core.GameData;
+import com.cosmicrover.core.GameEnvironment.Platform;
 import com.cosmicrover.core.GameManager;
 import com.cosmicrover.core.components.AbstractComponent;
 import com.cosmicrover.core.screens.AbstractLoadingScreen;
@@ -41,7 +53,17 @@ public class WorldData extends GameData {
 	public static final int PLANET_MAP_SCREEN          = 4;
 
 	/// Data file format version number 
-	private static final int DATA_FORMAT_VERSION = 1;
+	private static final int DATA_FORMAT_VERSION = 2;
+
+	/// First data file format with a FogComponent per player instead of one
+	/// map mask entity per hidden square
+	private static final int FOG_FORMAT_VERSION = 2;
+
+	/// Group prefix of the map mask entities found in older data files
+	private static final String MASK_GROUP = "map_mask";
+
+	/// Bots exploring for the local player in a new game
+	private static final int NEW_GAME_BOTS = 2;
 
 	/// Keep track of our GameManager object provided at init
 	private GameManager gameManager = null;
@@ -52,6 +74,13 @@ public class WorldData extends GameData {
 	/// An array of entities to be added to our World object during restoreGame() 
 	private final Array<Entity> entities;
 
+	/// Entities read from our data file, merged into our World during restoreGame()
+	private final EntityBatch stagedEntities;
+
+	/// Old id and uuid of each staged entity, indexed by local id
+	private final IntArray stagedOldIds;
+	private final Array<String> stagedOldUuids;
+
 	/// An array of maps that have been loaded for all players
 	public final Array<String> mapsLoaded;
 	
@@ -68,6 +97,9 @@ public class WorldData extends GameData {
 	public WorldData() {
 		world = new World();
 		entities = new Array<Entity>();
+		stagedEntities = new EntityBatch();
+		stagedOldIds = new IntArray();
+		stagedOldUuids = new Array<String>();
 		mapsLoaded = new Array<String>();
 	}
 	
@@ -105,10 +137,17 @@ public class WorldData extends GameData {
 		}
 		
 		// Add our managers first
+		// Only the desktop is sure to have a ForkJoinPool and a spare core for it
+		world.setManager(new ExplorationManager(
+				gameManager.getEnvironment().getPlatform() == Platform.Desktop &&
+				Runtime.getRuntime().availableProcessors() > 1));
+		world.setManager(new FogManager());
 		world.setManager(new GroupManager());
 		world.setManager(new OwnerManager());
+		world.setManager(new PathfindingManager());
 		world.setManager(new PersistenceManager());
 		world.setManager(new PropertyManager());
+		world.setManager(new SpatialManager());
 		world.setManager(new ViewportManager());
 		
 		//world.setManager(new GridZoneManager(tileWidth, tileHeight));
@@ -152,9 +191,16 @@ public class WorldData extends GameData {
 		
 		// Make sure our list of entities to be restored is clear
 		entities.clear();
+		clearStagedEntities();
 
 		// Create entities for a new game
     	entities.add(EntityFactory.createLocalPlayer(world, 1));
+    	
+    	// Add a few bots exploring the map for the local player
+    	int[] anExplorer = RoverProgram.assemble(RoverProgram.EXPLORER);
+    	for(int i = 1; NEW_GAME_BOTS >= i; i++) {
+    		entities.add(EntityFactory.createBot(world, 1, i, anExplorer));
+    	}
 		//entities.add(EntityFactory.createRemotePlayer(world, 2));
 		//entities.add(EntityFactory.createRemotePlayer(world, 3));
 		//entities.add(EntityFactory.createRemotePlayer(world, 4));
@@ -202,24 +248,78 @@ public class WorldData extends GameData {
 		// Log the new game being created
 		Gdx.app.log("WorldData", "Restoring game");
 		
-		// Clear any existing entities from the world first
-		world.getManager(PersistenceManager.class).removeAll();
-		
-		// Loop through each entities in our array and add them to the world now
-		for(int i = 0, s = entities.size; s > i; i++) {
-			Entity anEntity = entities.get(i);
-			anEntity.addToWorld();
+		// Hold the world lock in case a simulation thread is still running
+		synchronized(world) {
+			// Clear any existing entities from the world first
+			world.getManager(PersistenceManager.class).removeAll();
+			
+			// Create the entities read from our data file in one go
+			mergeStagedEntities();
+	
+			// Loop through each entities in our array and add them to the world now
+			for(int i = 0, s = entities.size; s > i; i++) {
+				Entity anEntity = entities.get(i);
+				anEntity.addToWorld();
+			}
+			
+			// Clear our list of entities after they have been restored
+			entities.clear();
+			
+			// The world needs a chance to process all these added entities
+			// otherwise if we were to exit right now it would save an empty game
+			// data file since the PersistanceManager wouldn't know about the
+			// entities just added.
+			world.setDelta(0.0f);
+			world.process();
 		}
-		
-		// Clear our list of entities after they have been restored
-		entities.clear();
-		
-		// The world needs a chance to process all these added entities
-		// otherwise if we were to exit right now it would save an empty game
-		// data file since the PersistanceManager wouldn't know about the
-		// entities just added.
-		world.setDelta(0.0f);
-		world.process();
+	}
+
+	private void mergeStagedEntities() {
+		if(stagedEntities.isEmpty()) {
+			return;
+		}
+
+		// Create the real entities, indexed by their local id in the batch
+		Bag<Entity> anMerged = stagedEntities.merge(world, new Bag<Entity>());
+
+		// List of oldId's to newId's
+		IntIntMap idMap = new IntIntMap();
+		ArrayMap<String, String> uuidMap = new ArrayMap<String, String>();
+		for(int i = 0, iSize = anMerged.size(); iSize > i; i++) {
+			Entity anEntity = anMerged.get(i);
+
+			// Keep track of the oldId's and newId's for renumbering below
+			idMap.put(stagedOldIds.get(i), anEntity.getId());
+
+			// Keep track of the oldUuid's and newUuid's for renumbering below
+			uuidMap.put(stagedOldUuids.get(i), anEntity.getUuid().toString());
+
+			// Add this entity to our list of entities to be restored
+			entities.add(anEntity);
+		}
+		clearStagedEntities();
+
+		// Now give each entity a chance to update its Id's to the new Id's
+    	for(int j = 0, jSize = anMerged.size(); jSize > j; j++) {
+        	Bag<Component> anComponents = new Bag<Component>();
+        	anMerged.get(j).getComponents(anComponents);
+    		for(int i = 0, iSize = anComponents.size(); iSize > i; i++) {
+    			// Retrieve the next component
+    			Component anComponent = anComponents.get(i);
+    			// Is this an AbstractComponent type? then let it know about the renumbering
+    			if(AbstractComponent.class.isInstance(anComponent)) {
+    				AbstractComponent abstractComponent = AbstractComponent.class.cast(anComponent);
+    				abstractComponent.changeIds(idMap);
+    				abstractComponent.changeUuids(uuidMap);
+    			}
+        	} // for(int i = 0, iSize = anComponents.size(); iSize > i; i++)
+    	} // for(int j = 0, jSize = anMerged.size(); jSize > j; j++)
+	}
+
+	private void clearStagedEntities() {
+		stagedEntities.clear();
+		stagedOldIds.clear();
+		stagedOldUuids.clear();
 	}
 	
 	public TextureRegion getTexture(String name) {
@@ -286,7 +386,8 @@ public class WorldData extends GameData {
 
 		// Is this an old version of the data file that needs to be upgraded?
 		if(formatVersion < DATA_FORMAT_VERSION) {
-			// TODO: Add something for converting from old to new data files
+			// Map mask entities are turned into fog by readEntities()
+			Gdx.app.log("WorldData", "Upgrading data file from format version " + formatVersion);
 		}
 		
 		// Attempt to read our array of entities from our data file
@@ -303,52 +404,141 @@ public class WorldData extends GameData {
 	}
 	
 	private void readEntities(int formatVersion, Json json, JsonValue jsonData) {
-		// List of oldId's to newId's
-		IntIntMap idMap = new IntIntMap();
-		ArrayMap<String, String> uuidMap = new ArrayMap<String, String>();
-		
-		// Loop through each entity recorded and create them
+		// Start with an empty staging area, it is merged into the world by restoreGame()
+		clearStagedEntities();
+
+		// Squares older data files still had masked, by player uuid and context tag
+		ObjectMap<String, ObjectMap<String, IntArray>> anMasked = new ObjectMap<String, ObjectMap<String, IntArray>>();
+		Bag<AbstractComponent> anComponents = new Bag<AbstractComponent>();
+
+		// Loop through each entity recorded and stage them, this may run on a
+		// loader thread so the world itself must not be touched here
 		for(int i=0, iSize = jsonData.size; iSize > i; i++) {
 			// Loop through each entity in our array
 			JsonValue jsonEntity = jsonData.get(i);
 			int oldId = json.readValue("oldId", Integer.class, jsonEntity);
 			String oldUuid = json.readValue("oldUuid", String.class, jsonEntity);
-			Entity anEntity = world.createEntity();
-			
-			// Keep track of the oldId's and newId's in a map for processing later
-			idMap.put(oldId, anEntity.getId());
-			
-			// Keep track of the oldUuid's and newUuid's in a map for processing later
-			uuidMap.put(oldUuid, anEntity.getUuid().toString());
 			
 			// Retrieve the array of components for this entity
+			anComponents.clear();
 			JsonValue jsonComponents = jsonEntity.get("components");
 			if(jsonComponents != null) {
-				readComponents(formatVersion, json, jsonComponents, anEntity);
+				readComponents(formatVersion, json, jsonComponents, anComponents);
+			}
+
+			// Map masks of older data files become fog below instead of entities
+			if(formatVersion < FOG_FORMAT_VERSION && readMapMask(anComponents, anMasked)) {
+				continue;
+			}
+
+			// Keep track of the oldId's and oldUuid's for renumbering during the merge
+			int localId = stagedEntities.createEntity();
+			stagedOldIds.add(oldId);
+			stagedOldUuids.add(oldUuid);
+			for(int c = 0, cSize = anComponents.size(); cSize > c; c++) {
+				stagedEntities.addComponent(localId, anComponents.get(c));
 			}
-			
-			// Add this entity to our list of entities to be restored later
-			entities.add(anEntity);
 		} // for(int i=0, s=jsonEntities.size; i<s; i++)
-		
-		// Now give each entity a chance to update its Id's to the new Id's
-    	for(Entity anEntity : entities) {
-        	Bag<Component> anComponents = new Bag<Component>();
-        	anEntity.getComponents(anComponents);
-    		for(int i = 0, iSize = anComponents.size(); iSize > i; i++) {
-    			// Retrieve the next component
-    			Component anComponent = anComponents.get(i);
-    			// Is this an AbstractComponent type? then let it know about the renumbering
-    			if(AbstractComponent.class.isInstance(anComponent)) {
-    				AbstractComponent abstractComponent = AbstractComponent.class.cast(anComponent);
-    				abstractComponent.changeIds(idMap);
-    				abstractComponent.changeUuids(uuidMap);
-    			}
-        	} // for(int i = 0, iSize = anComponents.size(); iSize > i; i++)
-    	} // for(Entity anEntity : entities)
+
+		// Give each player the fog its map masks made up
+		for(ObjectMap.Entry<String, ObjectMap<String, IntArray>> anEntry : anMasked.entries()) {
+			createFog(anEntry.key, anEntry.value);
+		}
+	}
+
+	// Returns true if theComponents are those of a map mask, recording its square in theMasked
+	private boolean readMapMask(Bag<AbstractComponent> theComponents, ObjectMap<String, ObjectMap<String, IntArray>> theMasked) {
+		OwnerComponent anOwner = null;
+		LocationComponent anLocation = null;
+		for(int i = 0, iSize = theComponents.size(); iSize > i; i++) {
+			AbstractComponent anComponent = theComponents.get(i);
+			if(anComponent instanceof OwnerComponent) {
+				anOwner = (OwnerComponent)anComponent;
+			} else if(anComponent instanceof LocationComponent) {
+				anLocation = (LocationComponent)anComponent;
+			}
+		}
+		if(anOwner == null || anOwner.groupPrefix == null || !anOwner.groupPrefix.startsWith(MASK_GROUP)) {
+			return false;
+		}
+
+		// Without a location the mask hides nothing, drop it all the same
+		if(anLocation != null && anLocation.getMapName() != null) {
+			ObjectMap<String, IntArray> anMaps = theMasked.get(anOwner.ownerUuid);
+			if(anMaps == null) {
+				anMaps = new ObjectMap<String, IntArray>();
+				theMasked.put(anOwner.ownerUuid, anMaps);
+			}
+			IntArray anSquares = anMaps.get(anLocation.getContextTag());
+			if(anSquares == null) {
+				anSquares = new IntArray();
+				anMaps.put(anLocation.getContextTag(), anSquares);
+			}
+			anSquares.add(anLocation.getMapX());
+			anSquares.add(anLocation.getMapY());
+		}
+		return true;
+	}
+
+	// Build the fog of the staged player theOwnerUuid from the squares its map masks hid
+	private void createFog(String theOwnerUuid, ObjectMap<String, IntArray> theMasked) {
+		int localId = stagedOldUuids.indexOf(theOwnerUuid, false);
+		if(localId < 0) {
+			// The player is gone, so are its masks
+			return;
+		}
+
+		// Players from older data files don't have a FogComponent yet
+		FogComponent anFog = null;
+		ImmutableBag<Component> anComponents = stagedEntities.getComponents(localId);
+		for(int i = 0, iSize = anComponents.size(); iSize > i; i++) {
+			if(anComponents.get(i) instanceof FogComponent) {
+				anFog = (FogComponent)anComponents.get(i);
+			}
+		}
+		if(anFog == null) {
+			anFog = new FogComponent();
+			stagedEntities.addComponent(localId, anFog);
+		}
+
+		for(ObjectMap.Entry<String, IntArray> anEntry : theMasked.entries()) {
+			IntArray anSquares = anEntry.value;
+
+			// Map sizes aren't saved, squares past the last masked row and
+			// column were all revealed and fog outside a FogMap is revealed too
+			int anWidth = 0;
+			int anHeight = 0;
+			for(int i = 0, iSize = anSquares.size; iSize > i; i += 2) {
+				anWidth = Math.max(anWidth, anSquares.get(i) + 1);
+				anHeight = Math.max(anHeight, anSquares.get(i+1) + 1);
+			}
+			boolean[] anHidden = new boolean[anWidth * anHeight];
+			for(int i = 0, iSize = anSquares.size; iSize > i; i += 2) {
+				if(anSquares.get(i) >= 0 && anSquares.get(i+1) >= 0) {
+					anHidden[anSquares.get(i+1)*anWidth + anSquares.get(i)] = true;
+				}
+			}
+
+			// Reveal each run of squares without a mask
+			FogMap anFogMap = anFog.obtainFog(anEntry.key, anWidth, anHeight);
+			for(int y = 0; anHeight > y; y++) {
+				int x = 0;
+				while(anWidth > x) {
+					if(anHidden[y*anWidth + x]) {
+						x++;
+						continue;
+					}
+					int anStart = x;
+					while(anWidth > x && !anHidden[y*anWidth + x]) {
+						x++;
+					}
+					anFogMap.revealSpan(y, anStart, x - 1);
+				}
+			}
+		}
 	}
 	
-	private void readComponents(int formatVersion, Json json, JsonValue jsonData, Entity theEntity) {
+	private void readComponents(int formatVersion, Json json, JsonValue jsonData, Bag<AbstractComponent> theComponents) {
 		// Loop through each Component recorded and create them
 		for(int i=0, iSize = jsonData.size; iSize > i; i++) {
 			// Loop through each entity in our array
@@ -362,8 +552,8 @@ public class WorldData extends GameData {
 				AbstractComponent abstractComponent = AbstractComponent.class.cast(componentType.newInstance());
 				abstractComponent.read(json, jsonComponent.child());
 
-				// Everything good to this point? then add the component class to our new entity
-				theEntity.addComponent(abstractComponent);
+				// Everything good to this point? then keep the component for our new entity
+				theComponents.add(abstractComponent);
 			} catch(ClassCastException e) {
             	Gdx.app.error( "CosmicRover:WorldData:read()",
             			"Unable to cast component '" + jsonComponent.name() + "' as AbstractComponent", e);
@@ -76,7 +76,6 @@ public class CameraComponent extends AbstractComponent {
 	public void setWorldPosition(float x, float y) {
 		cameraWorld.position.set(x, y, 0);
 		cameraWorld.update();
-		cameraWorld.apply(Gdx.gl10);
 	}
 
 	@Override
@@ -0,0 +1,89 @@
+package com.cosmicrover.cassini.components;
+
+import com.badlogic.gdx.utils.ArrayMap;
+import com.badlogic.gdx.utils.IntArray;
+import com.badlogic.gdx.utils.Json;
+import com.badlogic.gdx.utils.JsonValue;
+import com.cosmicrover.cassini.FogMap;
+import com.cosmicrover.core.components.AbstractComponent;
+
+public class FogComponent extends AbstractComponent {
+	/// Fog of war for each map this player has visited by LocationComponent context tag
+	public final ArrayMap<String, FogMap> fogMaps;
+
+	public FogComponent() {
+		fogMaps = new ArrayMap<String, FogMap>();
+	}
+
+	public FogMap getFog(String theContextTag) {
+		return fogMaps.get(theContextTag);
+	}
+
+	/**
+	 * Retrieve the fog for a map, creating a fully hidden one the first time.
+	 * @param theContextTag of the map from LocationComponent.getContextTag()
+	 * @param theWidth of the map in squares
+	 * @param theHeight of the map in squares
+	 * @return fog for the map
+	 */
+	public FogMap obtainFog(String theContextTag, int theWidth, int theHeight) {
+		FogMap anFog = fogMaps.get(theContextTag);
+		if(anFog == null || anFog.getWidth() != theWidth || anFog.getHeight() != theHeight) {
+			anFog = new FogMap(theWidth, theHeight);
+			fogMaps.put(theContextTag, anFog);
+		}
+		return anFog;
+	}
+
+	@Override
+	public FogComponent copy() {
+		FogComponent anCopy = new FogComponent();
+		for(int i = 0, s = fogMaps.size; s > i; i++) {
+			anCopy.fogMaps.put(fogMaps.getKeyAt(i), new FogMap(fogMaps.getValueAt(i)));
+		}
+		return anCopy;
+	}
+
+	@Override
+	public void write(Json json) {
+		json.writeObjectStart(this.getClass().getName(), this.getClass(), this.getClass());
+		json.writeArrayStart("fogMaps");
+		IntArray anRuns = new IntArray();
+		for(int i = 0, s = fogMaps.size; s > i; i++) {
+			FogMap anFog = fogMaps.getValueAt(i);
+			anRuns.clear();
+			json.writeObjectStart();
+			json.writeValue("contextTag", fogMaps.getKeyAt(i));
+			json.writeValue("width", anFog.getWidth());
+			json.writeValue("height", anFog.getHeight());
+			json.writeValue("revealed", anFog.getRevealedRuns(anRuns).toArray());
+			json.writeObjectEnd();
+		}
+		json.writeArrayEnd();
+    	json.writeObjectEnd();
+	}
+
+	@Override
+	public void read(Json json, JsonValue jsonData) {
+		JsonValue jsonFogMaps = jsonData.get("fogMaps");
+		if(jsonFogMaps != null) {
+			readFogMaps(json, jsonFogMaps);
+		}
+	}
+
+	private void readFogMaps(Json json, JsonValue jsonData) {
+		// Loop through each FogMap recorded and create them
+		for(int i=0, iSize = jsonData.size; iSize > i; i++) {
+			JsonValue jsonFog = jsonData.get(i);
+			String contextTag = json.readValue("contextTag", String.class, jsonFog);
+			int width = json.readValue("width", Integer.class, jsonFog);
+			int height = json.readValue("height", Integer.class, jsonFog);
+			int[] revealed = json.readValue("revealed", int[].class, jsonFog);
+			// Recreate the fog and reveal the runs saved
+			FogMap anFog = obtainFog(contextTag, width, height);
+			if(revealed != null) {
+				anFog.revealRuns(revealed);
+			}
+		}
+	}
+}
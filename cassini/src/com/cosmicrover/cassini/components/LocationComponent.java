@@ -5,39 +5,34 @@ import com.badlogic.gdx.math.Vector2;
 import com.badlogic.gdx.math.Vector3;
 import com.badlogic.gdx.utils.Json;
 import com.badlogic.gdx.utils.JsonValue;
+import com.cosmicrover.cassini.MapContext;
+import com.cosmicrover.cassini.Route;
 import com.cosmicrover.core.components.AbstractComponent;
 
 public class LocationComponent extends AbstractComponent {
 	private final Vector2   map;
-	private final Rectangle mapBounds;
-	private String          mapName;
 	private final Vector3   level;
-	private final Rectangle levelBounds;
-	private final Vector2   levelGrid;
-	private String          levelName;
-	private final Vector2   levelOffsetCenter;
+	/// Map we are on, shared with every other location on it
+	private MapContext      context;
 	
 	public LocationComponent() {
 		map = new Vector2();
 		level = new Vector3();
-		mapBounds = new Rectangle();
-		levelBounds = new Rectangle();
-		levelGrid = new Vector2(1,1);
-		levelOffsetCenter = new Vector2(0.5f,0.5f);
+		context = MapContext.get(null, null);
 	}
 	
 	public LocationComponent(LocationComponent clone, int x, int y) {
 		this();
-		// This order matters, don't rearrange it
-		setMapName(clone.getMapName());
-		setMapBounds(clone.getMapBounds());
+		context = clone.context;
 		setMap(x, y);
-		setLevelName(clone.getLevelName());
-		setLevelGrid(clone.getLevelGrid());
+	}
+	
+	public MapContext getContext() {
+		return context;
 	}
 	
 	public String getContextTag() {
-		return levelName + mapName;
+		return context.getContextTag();
 	}
 
 	public Vector2 getMap() {
@@ -52,51 +47,73 @@ public class LocationComponent extends AbstractComponent {
 		return (int)map.y;
 	}
 	
-	public Vector3 getMapAsLevel(Vector2 map) {
-		Vector2 mapLimit = getMapLimit(map);
-		return getMapAsLevel((int)mapLimit.x, (int)mapLimit.y);
+	/**
+	 * @return our map square packed into one int (see Route.pack())
+	 */
+	public int getMapKey() {
+		return Route.pack((int)map.x, (int)map.y);
 	}
 	
-	public Vector3 getMapAsLevel(int x, int y) {
-		return new Vector3(x*levelGrid.x, y*levelGrid.y, 0);
-	}
-
-	public Vector2 getMapLimit(Vector2 map) {
-		return getMapLimit(map.x, map.y);
+	// The conversion and limit methods below write into theOut and return it.
+	public Vector3 getMapAsLevel(int x, int y, Vector3 theOut) {
+		Vector2 levelGrid = context.getLevelGrid();
+		return theOut.set(x*levelGrid.x, y*levelGrid.y, 0);
 	}
 	
-	public Vector2 getMapLimit(float x, float y) {
-		return new Vector2(
+	public Vector2 getMapLimit(float x, float y, Vector2 theOut) {
+		Rectangle mapBounds = context.getMapBounds();
+		return theOut.set(
 				Math.min(mapBounds.width, Math.max(mapBounds.x, x)),
 				Math.min(mapBounds.height, Math.max(mapBounds.y, y)) );
 	}
 	
-	public Vector2 getLevelAsMap(Vector3 level) {
-		Vector3 levelLimit = getLevelLimit(level);
-		return getLevelAsMap(levelLimit.x, levelLimit.y);
-	}
-	
-	public Vector2 getLevelAsMap(float x, float y) {
-		return new Vector2((int)(x / levelGrid.x), (int)(y / levelGrid.y));
-	}
-
-	public Vector3 getLevelLimit(Vector3 level) {
-		return getLevelLimit(level.x, level.y, level.z);
+	public Vector2 getLevelAsMap(float x, float y, Vector2 theOut) {
+		Vector2 levelGrid = context.getLevelGrid();
+		return theOut.set((int)(x / levelGrid.x), (int)(y / levelGrid.y));
 	}
 	
-	public Vector3 getLevelLimit(float x, float y, float z) {
-		return new Vector3(
+	public Vector3 getLevelLimit(float x, float y, float z, Vector3 theOut) {
+		Rectangle levelBounds = context.getLevelBounds();
+		return theOut.set(
 				Math.min(levelBounds.width, Math.max(levelBounds.x, x)),
 				Math.min(levelBounds.height, Math.max(levelBounds.y, y)),
 				z);
 	}
-
+	
+	// The packed methods below take or return a map square as one int key
+	// (see Route.pack()), which is cheap to compare and to use in an IntMap.
+	/**
+	 * Convert level coordinates (with limits) into a map square.
+	 * @param x level coordinate
+	 * @param y level coordinate
+	 * @return packed map square
+	 */
+	public int getLevelAsMapKey(float x, float y) {
+		Rectangle levelBounds = context.getLevelBounds();
+		Vector2 levelGrid = context.getLevelGrid();
+		float anX = Math.min(levelBounds.width, Math.max(levelBounds.x, x));
+		float anY = Math.min(levelBounds.height, Math.max(levelBounds.y, y));
+		return Route.pack((int)(anX / levelGrid.x), (int)(anY / levelGrid.y));
+	}
+	
+	/**
+	 * Convert a packed map square into level coordinates.
+	 * @param theKey packed map square
+	 * @param theOut receives the level coordinates of the square's corner
+	 * @return theOut
+	 */
+	public Vector3 getMapKeyAsLevel(int theKey, Vector3 theOut) {
+		return getMapAsLevel(Route.unpackX(theKey), Route.unpackY(theKey), theOut);
+	}
+
+	// The bounds and grid below are shared by every location on our map,
+	// never change the objects returned
 	public Rectangle getMapBounds() {
-		return mapBounds;
+		return context.getMapBounds();
 	}
 	
 	public String getMapName() {
-		return mapName;
+		return context.getMapName();
 	}
 
 	public Vector3 getLevel() {
@@ -104,19 +121,19 @@ public class LocationComponent extends AbstractComponent {
 	}
 	
 	public Rectangle getLevelBounds() {
-		return levelBounds;
+		return context.getLevelBounds();
 	}
 
 	public Vector2 getLevelGrid() {
-		return levelGrid;
+		return context.getLevelGrid();
 	}
 
 	public String getLevelName() {
-		return levelName;
+		return context.getLevelName();
 	}
 	
 	public Vector2 getLevelOffsetCenter() {
-		return levelOffsetCenter;
+		return context.getLevelOffsetCenter();
 	}
 	
 	public void addMap(Vector2 map) {
@@ -132,6 +149,7 @@ public class LocationComponent extends AbstractComponent {
     }
 
 	public void setMap(int x, int y) {
+		Rectangle mapBounds = context.getMapBounds();
 		this.map.set(
 			Math.min(mapBounds.width, Math.max(mapBounds.x, x)),
 			Math.min(mapBounds.height, Math.max(mapBounds.y, y)) );
@@ -139,20 +157,9 @@ public class LocationComponent extends AbstractComponent {
 		updateLevel();
 	}
 			  
-	public void setMapBounds(int x, int y, int width, int height) {
-		this.mapBounds.set(x,y,width,height);
-		// Update our level bounds
-		updateLevelBounds();
-	}
-
-	public void setMapBounds(Rectangle mapBounds) {
-		this.mapBounds.set(mapBounds);
-		// Update our level bounds
-		updateLevelBounds();
-	}
-
 	public void setMapName(String mapName) {
-		this.mapName = mapName;
+		// Switch to the shared context of the other map
+		this.context = MapContext.get(context.getLevelName(), mapName);
 	}
 
 	public void addLevel(Vector2 level) {
@@ -184,6 +191,7 @@ public class LocationComponent extends AbstractComponent {
 	}
 	
 	public void setLevel(float x, float y, float z) {
+		Rectangle levelBounds = context.getLevelBounds();
 		this.level.set(
 				Math.min(levelBounds.width, Math.max(levelBounds.x, x)),
 				Math.min(levelBounds.height, Math.max(levelBounds.y, y)),
@@ -192,44 +200,28 @@ public class LocationComponent extends AbstractComponent {
 		updateMap();
 	}
 
-	public void setLevelGrid(Vector2 grid) {
-		setLevelGrid(grid.x, grid.y);
-	}
-
-	public void setLevelGrid(float x, float y) {
-		if(x > 0.0f && y > 0.0f) {
-			this.levelGrid.set(x,y);
-			// Update our level bounds
-			updateLevelBounds();
-			// Update our level
-			updateLevel();
-			// Update our level offset to the center
-			updateLevelOffsetCenter();
-		}
-	}
-
 	public void setLevelName(String levelName) {
-		this.levelName = levelName;
+		// Switch to the shared context of the other level
+		this.context = MapContext.get(levelName, context.getMapName());
 	}
 	
 	private void updateMap() {
+		Vector2 levelGrid = context.getLevelGrid();
 		this.map.set(level.x / levelGrid.x, level.y / levelGrid.y);
 	}
 
 	private void updateLevel() {
+		Vector2 levelGrid = context.getLevelGrid();
 		this.level.set(map.x*levelGrid.x,map.y*levelGrid.y, 0);
 	}
-	
-	private void updateLevelBounds() {
-		this.levelBounds.set(
-				mapBounds.x*levelGrid.x,          // Update minimum level x value
-				mapBounds.y*levelGrid.y,          // Update minimum level y value
-				mapBounds.width*levelGrid.x-1,    // Update maximum level width value (1 pixel short)
-				mapBounds.height*levelGrid.y-1);  // Update maximum level height value (1 pixel short)
-	}
-	
-	private void updateLevelOffsetCenter() {
-		levelOffsetCenter.set(levelGrid.x*0.5f, levelGrid.y*0.5f);
+
+	@Override
+	public LocationComponent copy() {
+		LocationComponent anCopy = new LocationComponent();
+		anCopy.map.set(map);
+		anCopy.level.set(level);
+		anCopy.context = context;
+		return anCopy;
 	}
 
 	@Override
@@ -237,11 +229,11 @@ public class LocationComponent extends AbstractComponent {
 		json.writeObjectStart(this.getClass().getName(), this.getClass(), this.getClass());
     	json.writeValue("map.x", (int)map.x);
     	json.writeValue("map.y", (int)map.y);
-    	json.writeValue("mapName", mapName);
+    	json.writeValue("mapName", context.getMapName());
     	json.writeValue("level.x", level.x);
     	json.writeValue("level.y", level.y);
     	json.writeValue("level.z", level.z);
-    	json.writeValue("levelName", levelName);
+    	json.writeValue("levelName", context.getLevelName());
     	json.writeObjectEnd();
 	}
 
@@ -249,10 +241,12 @@ public class LocationComponent extends AbstractComponent {
 	public void read(Json json, JsonValue jsonData) {
 		map.x = json.readValue("map.x", Integer.class, jsonData);
 		map.y = json.readValue("map.y", Integer.class, jsonData);
-		mapName = json.readValue("mapName", String.class, jsonData);
+		String mapName = json.readValue("mapName", String.class, jsonData);
 		level.x = json.readValue("level.x", Float.class, jsonData);
 		level.y = json.readValue("level.y", Float.class, jsonData);
 		level.z = json.readValue("level.z", Float.class, jsonData);
-		levelName = json.readValue("levelName", String.class, jsonData);
+		String levelName = json.readValue("levelName", String.class, jsonData);
+		// Rejoin the map's shared context, sized once the map is loaded again
+		context = MapContext.get(levelName, mapName);
 	}
 }
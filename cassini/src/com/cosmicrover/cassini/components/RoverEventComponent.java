@@ -1,14 +1,19 @@
 package com.cosmicrover.cassini.components;
 
 import com.badlogic.gdx.math.MathUtils;
-import com.badlogic.gdx.math.Vector2;
-import com.badlogic.gdx.utils.Array;
 import com.badlogic.gdx.utils.Json;
 import com.badlogic.gdx.utils.JsonValue;
+import com.cosmicrover.cassini.EventQueue;
+import com.cosmicrover.cassini.Route;
 import com.cosmicrover.core.components.AbstractComponent;
 
 public class RoverEventComponent extends AbstractComponent {
-	public class RoverEvent {
+	/**
+	 * Rover event types and targets. Events are packed into a single int
+	 * with the type in the top 8 bits and the target in the low 24 bits
+	 * (sign extended), see pack(), getId(), and getTarget().
+	 */
+	public static final class RoverEvent {
 		// List of possible events that can be performed
 		public static final int EVENT_WAIT    = 0; ///< Wait for <theTime> specified in milliseconds of game time
 		public static final int EVENT_LOOK    = 1; ///< Scan around the current location for <theTime> specified
@@ -19,6 +24,7 @@ public class RoverEventComponent extends AbstractComponent {
 		public static final int EVENT_SHOOT   = 6; ///< Shoot <theItem> specified with laser
 		public static final int EVENT_TWEAK   = 7; ///< Tweak <theItem> specified with arm
 		public static final int EVENT_DELIVER = 8; ///< Deliver <theItem> specified to base
+		public static final int EVENT_SEEK    = 9; ///< Drive to <theSquare> specified (see packSquare) along its flow field
 
 		// List of possible event targets for theDirection
 		public static final int DIR_E    =   0;  ///< theDirection is East or 0 degrees
@@ -37,19 +43,46 @@ public class RoverEventComponent extends AbstractComponent {
 		// List of possible event targets for theTime
 		public static final int WAIT_FOREVER = -1; ///< Wait forever for something to occur
 		
-		/// The event type specified above 
-		public int id;
-		
-		/// The target or destination for the event type specified above
-		public int target;
-		
-		public RoverEvent(int theId, int theTarget) {
-			this.id = theId;
-			this.target = theTarget;
+		private RoverEvent() {
+		}
+
+		/**
+		 * @param theId event type specified above
+		 * @param theTarget target or destination for the event type, must fit in 24 bits
+		 * @return packed event
+		 */
+		public static int pack(int theId, int theTarget) {
+			return (theId << 24) | (theTarget & 0xffffff);
+		}
+
+		public static int getId(int theEvent) {
+			return theEvent >>> 24;
+		}
+
+		public static int getTarget(int theEvent) {
+			return (theEvent << 8) >> 8;
+		}
+
+		/**
+		 * @param x map square, 0 to 4095
+		 * @param y map square, 0 to 4095
+		 * @return square packed as an event target
+		 */
+		public static int packSquare(int x, int y) {
+			return ((x & 0xfff) << 12) | (y & 0xfff);
+		}
+
+		public static int getSquareX(int theTarget) {
+			return (theTarget >> 12) & 0xfff;
+		}
+
+		public static int getSquareY(int theTarget) {
+			return theTarget & 0xfff;
 		}
 	};
 
-	public Array<RoverEvent> events;
+	// Queue of packed events to be processed (see RoverEvent)
+	public final EventQueue events;
 
 	// Current direction the rover is facing now (to compare to RoverEvent.target)
 	public int direction = RoverEvent.DIR_N;
@@ -57,8 +90,8 @@ public class RoverEventComponent extends AbstractComponent {
 	/// Next time event will be processed from our queue
 	public int nextEvent = 0;
 	
-	// List of move path points in grid coordinates
-	public final Array<Vector2> movePath;
+	// Move path points in grid coordinates (packed, see Route)
+	public final Route movePath;
 
 	// Indicates that a scan/look is in progress
 	public boolean scanInProgress = false;
@@ -70,8 +103,21 @@ public class RoverEventComponent extends AbstractComponent {
 	public float scanAngleStep = 100.0f / MathUtils.PI2;
 	
 	public RoverEventComponent() {
-		events = new Array<RoverEvent>();
-		movePath = new Array<Vector2>();
+		events = new EventQueue();
+		movePath = new Route();
+	}
+
+	@Override
+	public RoverEventComponent copy() {
+		RoverEventComponent anCopy = new RoverEventComponent();
+		anCopy.events.set(events);
+		anCopy.direction = direction;
+		anCopy.nextEvent = nextEvent;
+		anCopy.movePath.set(movePath);
+		anCopy.scanInProgress = scanInProgress;
+		anCopy.scanAngle = scanAngle;
+		anCopy.scanAngleStep = scanAngleStep;
+		return anCopy;
 	}
 
 	@Override
@@ -82,8 +128,8 @@ public class RoverEventComponent extends AbstractComponent {
     	json.writeValue("scanInProgress", scanInProgress);
     	json.writeValue("scanAngle", scanAngle);
     	json.writeValue("scanAngleStep", scanAngleStep);
-    	json.writeValue("events", events.toArray(RoverEvent.class));
-    	json.writeValue("movePath", movePath.toArray(Vector2.class));
+    	json.writeValue("events", events.toArray());
+    	json.writeValue("movePath", movePath.toArray());
     	json.writeObjectEnd();
 	}
 
@@ -96,24 +142,37 @@ public class RoverEventComponent extends AbstractComponent {
 		scanAngleStep = json.readValue("scanAngleStep", Float.class, jsonData);
 		JsonValue jsonEvents = jsonData.get("events");
 		if(jsonEvents != null) {
-			readEvents(json, jsonEvents);
+			readEvents(jsonEvents);
 		}
-		Vector2[] jsonMovePath = json.readValue("movePath", Vector2[].class, Vector2.class, jsonData);
-		for(Vector2 vector2 : jsonMovePath) {
-			movePath.add(vector2);
+		JsonValue jsonMovePath = jsonData.get("movePath");
+		if(jsonMovePath != null) {
+			readMovePath(jsonMovePath);
 		}
 	}
 	
-	private void readEvents(Json json, JsonValue jsonData) {
-		// Loop through each RoverEvent recorded and create them
+	private void readMovePath(JsonValue jsonData) {
+		movePath.clear();
+		for(int i=0, iSize = jsonData.size; iSize > i; i++) {
+			JsonValue jsonPoint = jsonData.get(i);
+			// Older saves stored each point as a Vector2 object
+			if(jsonPoint.isObject()) {
+				movePath.add((int)jsonPoint.getFloat("x"), (int)jsonPoint.getFloat("y"));
+			} else {
+				movePath.addPacked(jsonPoint.asInt());
+			}
+		}
+	}
+
+	private void readEvents(JsonValue jsonData) {
+		events.clear();
 		for(int i=0, iSize = jsonData.size; iSize > i; i++) {
-			// Retrieve the next RoverEvent in our array
 			JsonValue jsonEvent = jsonData.get(i);
-			// Retrieve the event id and target
-			int id = json.readValue("id", Integer.class, jsonEvent);
-			int target = json.readValue("target", Integer.class, jsonEvent);
-			// Now add this as a new event
-			events.add(new RoverEvent(id, target));
+			// Older saves stored each event as an object with an id and target
+			if(jsonEvent.isObject()) {
+				events.addLast(jsonEvent.getInt("id"), jsonEvent.getInt("target"));
+			} else {
+				events.addLastPacked(jsonEvent.asInt());
+			}
 		}
 	}
 }
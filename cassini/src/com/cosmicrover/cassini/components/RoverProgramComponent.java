@@ -0,0 +1,63 @@
+package com.cosmicrover.cassini.components;
+
+import com.badlogic.gdx.utils.Json;
+import com.badlogic.gdx.utils.JsonValue;
+import com.cosmicrover.cassini.RoverProgram;
+import com.cosmicrover.core.components.AbstractComponent;
+
+public class RoverProgramComponent extends AbstractComponent {
+	/// Program code (see RoverProgram), shared between rovers running the same program
+	public int[] code;
+
+	/// Index of the next instruction to run
+	public int pc = 0;
+
+	/// Registers of this rover
+	public final int[] registers;
+
+	/// Indicates the program has stopped (HALT or a bad instruction)
+	public boolean halted = false;
+
+	public RoverProgramComponent() {
+		this(new int[0]);
+	}
+
+	public RoverProgramComponent(int[] theCode) {
+		code = theCode;
+		registers = new int[RoverProgram.REGISTERS];
+	}
+
+	@Override
+	public RoverProgramComponent copy() {
+		// The code is never changed once assembled so it can be shared
+		RoverProgramComponent anCopy = new RoverProgramComponent(code);
+		anCopy.pc = pc;
+		System.arraycopy(registers, 0, anCopy.registers, 0, registers.length);
+		anCopy.halted = halted;
+		return anCopy;
+	}
+
+	@Override
+	public void write(Json json) {
+		json.writeObjectStart(this.getClass().getName(), this.getClass(), this.getClass());
+		json.writeValue("code", code);
+		json.writeValue("pc", pc);
+		json.writeValue("registers", registers);
+		json.writeValue("halted", halted);
+		json.writeObjectEnd();
+	}
+
+	@Override
+	public void read(Json json, JsonValue jsonData) {
+		code = json.readValue("code", int[].class, jsonData);
+		if(code == null) {
+			code = new int[0];
+		}
+		pc = json.readValue("pc", Integer.class, jsonData);
+		int[] jsonRegisters = json.readValue("registers", int[].class, jsonData);
+		if(jsonRegisters != null) {
+			System.arraycopy(jsonRegisters, 0, registers, 0, Math.min(jsonRegisters.length, registers.length));
+		}
+		halted = json.readValue("halted", Boolean.class, jsonData);
+	}
+}
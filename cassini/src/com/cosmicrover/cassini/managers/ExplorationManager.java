@@ -0,0 +1,102 @@
+package com.cosmicrover.cassini.managers;
+
+import com.artemis.ComponentMapper;
+import com.artemis.Entity;
+import com.artemis.Manager;
+import com.cosmicrover.cassini.ExplorationPlanner;
+import com.cosmicrover.cassini.FogMap;
+import com.cosmicrover.cassini.NavigationGrid;
+import com.cosmicrover.cassini.RevealStencil;
+import com.cosmicrover.cassini.Route;
+import com.cosmicrover.cassini.components.LocationComponent;
+import com.cosmicrover.cassini.components.RoverEventComponent;
+import com.cosmicrover.cassini.components.RoverEventComponent.RoverEvent;
+import com.cosmicrover.cassini.systems.RoverEventSystem;
+
+/**
+ * Sends rovers exploring: picks the next square to scan from with an
+ * ExplorationPlanner using the rover's fog, then queues the moves of the
+ * route there followed by a scan.
+ *
+ * Must only be used from the simulation thread.
+ */
+public class ExplorationManager extends Manager {
+	ComponentMapper<LocationComponent> locationMapper;
+	ComponentMapper<RoverEventComponent> roverEventMapper;
+
+	/// Ticks spent scanning at each square chosen
+	public static final int SCAN_TIME = 360;
+
+	/// Chooses the squares to scan from
+	private final ExplorationPlanner planner;
+
+	/// FogManager providing the fog of each rover
+	private FogManager fogManager = null;
+
+	/// PathfindingManager providing the grid and routes
+	private PathfindingManager pathfindingManager = null;
+
+	/// Route to the chosen square, reused by every call
+	private final Route route;
+
+	/**
+	 * @param theParallel evaluate scan squares on a ForkJoinPool (see ExplorationPlanner)
+	 */
+	public ExplorationManager(boolean theParallel) {
+		planner = new ExplorationPlanner(
+				RevealStencil.get(RevealStencil.Shape.DIAMOND, RoverEventSystem.SCAN_RADIUS),
+				theParallel);
+		route = new Route();
+	}
+
+	@Override
+	protected void initialize() {
+		locationMapper = ComponentMapper.getFor(LocationComponent.class, world);
+		roverEventMapper = ComponentMapper.getFor(RoverEventComponent.class, world);
+
+		// Retrieve the FogManager and PathfindingManager objects now
+		fogManager = world.getManager(FogManager.class);
+		pathfindingManager = world.getManager(PathfindingManager.class);
+	}
+
+	/**
+	 * Queue the moves to the next square worth scanning from, then a scan.
+	 * @param theRover entity with a LocationComponent, RoverEventComponent and FogComponent
+	 * @return true if events were queued, false if there is nothing left to explore
+	 */
+	public boolean explore(Entity theRover) {
+		LocationComponent location = locationMapper.getSafe(theRover);
+		RoverEventComponent roverEvent = roverEventMapper.getSafe(theRover);
+		if(location == null || roverEvent == null) {
+			return false;
+		}
+		FogMap anFog = fogManager.getFog(theRover, location);
+		NavigationGrid anGrid = pathfindingManager.getGrid(location.getContextTag());
+		if(anFog == null || anGrid == null) {
+			return false;
+		}
+
+		int anSquare = planner.choose(anFog, anGrid, location.getMapX(), location.getMapY());
+		if(anSquare < 0 ||
+		   !pathfindingManager.findPath(location, Route.unpackX(anSquare), Route.unpackY(anSquare), route)) {
+			return false;
+		}
+		roverEventMapper.markDirty(theRover);
+		route.queueMoves(roverEvent.events);
+		roverEvent.events.addLast(RoverEvent.EVENT_LOOK, SCAN_TIME);
+		return true;
+	}
+
+	/**
+	 * Tell the planner theRover finished a scan at theLocation, so it isn't
+	 * sent back to scan from there again.
+	 * @param theRover entity with a FogComponent
+	 * @param theLocation the rover scanned from
+	 */
+	public void scanned(Entity theRover, LocationComponent theLocation) {
+		FogMap anFog = fogManager.getFog(theRover, theLocation);
+		if(anFog != null) {
+			planner.scanned(anFog, theLocation.getMapX(), theLocation.getMapY());
+		}
+	}
+}
@@ -0,0 +1,80 @@
+package com.cosmicrover.cassini.managers;
+
+import com.artemis.ComponentMapper;
+import com.artemis.Entity;
+import com.artemis.Manager;
+import com.artemis.annotations.Mapper;
+import com.badlogic.gdx.utils.ObjectMap;
+import com.cosmicrover.cassini.FogMap;
+import com.cosmicrover.cassini.RevealStencil;
+import com.cosmicrover.cassini.components.FogComponent;
+import com.cosmicrover.cassini.components.LocationComponent;
+
+public class FogManager extends Manager {
+	@Mapper ComponentMapper<FogComponent> fogMapper;
+
+	/// Squares blocking line of sight by LocationComponent context tag, maps without one block nothing
+	private final ObjectMap<String, RevealStencil.Blocker> blockers = new ObjectMap<String, RevealStencil.Blocker>();
+
+	@Override
+	protected void initialize() {
+		fogMapper = ComponentMapper.getFor(FogComponent.class, world);
+	}
+
+	/**
+	 * Set what blocks line of sight on a map, e.g. its NavigationGrid.
+	 * @param theContextTag of the map from LocationComponent.getContextTag()
+	 * @param theBlocker squares blocking line of sight, or null if nothing blocks
+	 */
+	public void setBlocker(String theContextTag, RevealStencil.Blocker theBlocker) {
+		if(theBlocker != null) {
+			blockers.put(theContextTag, theBlocker);
+		} else {
+			blockers.remove(theContextTag);
+		}
+	}
+
+	/**
+	 * Retrieve the fog theOwner has for the map theLocation is on.
+	 * @param theOwner entity with a FogComponent
+	 * @param theLocation on the map
+	 * @return fog for the map, or null if theOwner has none for this map
+	 */
+	public FogMap getFog(Entity theOwner, LocationComponent theLocation) {
+		FogComponent fog = fogMapper.getSafe(theOwner);
+		return fog != null ? fog.getFog(theLocation.getContextTag()) : null;
+	}
+
+	/**
+	 * Reveal every square of theStencil around theCenter in one go, the cost
+	 * only depends on the size of theStencil.
+	 * @param theOwner entity with a FogComponent
+	 * @param theStencil from RevealStencil.get()
+	 * @param theCenter location of the center square
+	 * @return number of squares that were hidden before
+	 */
+	public int revealRegion(Entity theOwner, RevealStencil theStencil, LocationComponent theCenter) {
+		FogMap anFog = getFog(theOwner, theCenter);
+		if(anFog == null) {
+			return 0;
+		}
+		fogMapper.markDirty(theOwner);
+		return theStencil.reveal(anFog, theCenter.getMapX(), theCenter.getMapY(),
+				blockers.get(theCenter.getContextTag()));
+	}
+
+	/**
+	 * Reveal the single square at theLocation.
+	 * @param theOwner entity with a FogComponent
+	 * @param theLocation of the square
+	 * @return true if the square was hidden before
+	 */
+	public boolean reveal(Entity theOwner, LocationComponent theLocation) {
+		FogMap anFog = getFog(theOwner, theLocation);
+		if(anFog == null) {
+			return false;
+		}
+		fogMapper.markDirty(theOwner);
+		return anFog.reveal(theLocation.getMapX(), theLocation.getMapY());
+	}
+}
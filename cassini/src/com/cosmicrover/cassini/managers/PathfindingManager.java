@@ -0,0 +1,159 @@
+package com.cosmicrover.cassini.managers;
+
+import com.artemis.Manager;
+import com.badlogic.gdx.maps.tiled.TiledMap;
+import com.badlogic.gdx.utils.IntMap;
+import com.badlogic.gdx.utils.ObjectMap;
+import com.cosmicrover.cassini.FlowField;
+import com.cosmicrover.cassini.JumpPointSearch;
+import com.cosmicrover.cassini.NavigationGrid;
+import com.cosmicrover.cassini.Route;
+import com.cosmicrover.cassini.components.LocationComponent;
+
+/**
+ * Finds routes between map squares for rovers. The NavigationGrid of each
+ * map is built once from its TiledMap when the map is loaded (see MapSystem)
+ * and kept for the rest of the game. Routes come back as a Route, which can
+ * queue its moves on a RoverEventComponent with Route.queueMoves().
+ *
+ * Many rovers heading for the same square (e.g. their base) share a
+ * FlowField instead, built once per map and target and rebuilt only after
+ * the grid changes, so each rover steers with one lookup per step however
+ * many rovers there are.
+ *
+ * Must only be used from the simulation thread.
+ */
+public class PathfindingManager extends Manager {
+	/// Navigation grid of each map by LocationComponent context tag
+	private final ObjectMap<String, NavigationGrid> grids;
+
+	/// Search state reused by every query
+	private final JumpPointSearch search;
+
+	/// Most flow fields kept per map, the least recently used one is rebuilt for a new target
+	private static final int MAX_FLOW_FIELDS = 16;
+
+	/**
+	 * Flow field of a map and when it was last used.
+	 */
+	private static class CachedField {
+		final FlowField field = new FlowField();
+		int lastUse = 0;
+	}
+
+	/// Flow fields of each map by context tag, then by packed target square (see Route.pack())
+	private final ObjectMap<String, IntMap<CachedField>> flowFields;
+	private int flowFieldUse = 0;
+
+	public PathfindingManager() {
+		grids = new ObjectMap<String, NavigationGrid>();
+		search = new JumpPointSearch();
+		flowFields = new ObjectMap<String, IntMap<CachedField>>();
+	}
+
+	@Override
+	protected void initialize() {
+	}
+
+	/**
+	 * Retrieve the grid of a map, building it the first time.
+	 * @param theContextTag of the map from LocationComponent.getContextTag()
+	 * @param theTiledMap to build the grid from
+	 * @return grid of the map
+	 */
+	public NavigationGrid obtainGrid(String theContextTag, TiledMap theTiledMap) {
+		NavigationGrid anGrid = grids.get(theContextTag);
+		if(anGrid == null) {
+			anGrid = NavigationGrid.fromTiledMap(theTiledMap);
+			grids.put(theContextTag, anGrid);
+		}
+		return anGrid;
+	}
+
+	/**
+	 * @param theContextTag of the map from LocationComponent.getContextTag()
+	 * @return grid of the map, or null if the map hasn't been loaded
+	 */
+	public NavigationGrid getGrid(String theContextTag) {
+		return grids.get(theContextTag);
+	}
+
+	/**
+	 * Find the shortest route from theLocation to another square on its map.
+	 * @param theLocation to start from
+	 * @param x map square to reach
+	 * @param y map square to reach
+	 * @param theRoute cleared, then receives every square from start to target
+	 * @return true if a route was found
+	 */
+	public boolean findPath(LocationComponent theLocation, int x, int y, Route theRoute) {
+		NavigationGrid anGrid = grids.get(theLocation.getContextTag());
+		if(anGrid == null) {
+			theRoute.clear();
+			return false;
+		}
+		return search.findPath(anGrid, theLocation.getMapX(), theLocation.getMapY(), x, y, theRoute);
+	}
+
+	/**
+	 * Retrieve the flow field towards a square, building it the first time or
+	 * again after the grid changed.
+	 * @param theContextTag of the map from LocationComponent.getContextTag()
+	 * @param x map square to reach
+	 * @param y map square to reach
+	 * @return flow field towards x, y, or null if the map hasn't been loaded
+	 */
+	public FlowField getFlowField(String theContextTag, int x, int y) {
+		NavigationGrid anGrid = grids.get(theContextTag);
+		if(anGrid == null) {
+			return null;
+		}
+		IntMap<CachedField> anFields = flowFields.get(theContextTag);
+		if(anFields == null) {
+			anFields = new IntMap<CachedField>();
+			flowFields.put(theContextTag, anFields);
+		}
+
+		int anKey = Route.pack(x, y);
+		CachedField anCached = anFields.get(anKey);
+		if(anCached == null) {
+			anCached = evictFlowField(anFields);
+			anFields.put(anKey, anCached);
+			anCached.field.build(anGrid, x, y);
+		} else if(anCached.field.isStale()) {
+			anCached.field.build(anGrid, x, y);
+		}
+		anCached.lastUse = ++flowFieldUse;
+		return anCached.field;
+	}
+
+	/**
+	 * Direction to step in from theLocation towards a square, with one lookup
+	 * once the flow field towards the square exists.
+	 * @param theLocation to step from
+	 * @param x map square to reach
+	 * @param y map square to reach
+	 * @return RoverEvent.DIR_* direction, -1 when at the square or it can't be reached
+	 */
+	public int getFlowDirection(LocationComponent theLocation, int x, int y) {
+		FlowField anField = getFlowField(theLocation.getContextTag(), x, y);
+		return anField != null ? anField.getDirection(theLocation.getMapX(), theLocation.getMapY()) : -1;
+	}
+
+	// Make room for another flow field, handing back the least recently used one when full
+	private CachedField evictFlowField(IntMap<CachedField> theFields) {
+		if(theFields.size < MAX_FLOW_FIELDS) {
+			return new CachedField();
+		}
+		int anOldestKey = 0;
+		CachedField anOldest = null;
+		for(IntMap.Entry<CachedField> anEntry : theFields.entries()) {
+			if(anOldest == null || anEntry.value.lastUse < anOldest.lastUse) {
+				anOldestKey = anEntry.key;
+				anOldest = anEntry.value;
+			}
+		}
+		theFields.remove(anOldestKey);
+		return anOldest;
+	}
+}
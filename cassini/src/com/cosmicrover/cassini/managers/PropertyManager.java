@@ -11,7 +11,10 @@ import com.artemis.Manager;
 import com.artemis.annotations.Mapper;
 import com.artemis.utils.Bag;
 import com.artemis.utils.ImmutableBag;
+import com.badlogic.gdx.maps.tiled.TiledMapTile;
 import com.badlogic.gdx.utils.ArrayMap;
+import com.badlogic.gdx.utils.ObjectMap;
+import com.cosmicrover.cassini.ItemPrototype;
 import com.cosmicrover.cassini.components.PropertyComponent;
 import com.cosmicrover.cassini.components.PropertyComponent.Type;
 
@@ -20,14 +23,33 @@ public class PropertyManager extends Manager {
 	// A list of entities by property type
 	private ArrayMap<Type, Bag<Entity>> entitiesByType;
 	private Map<String, Entity> entitiesByTag;
+	// Item prototype of each tile parsed so far, a tile belongs to a single
+	// tileset so this holds the prototypes of each tileset used
+	private ObjectMap<TiledMapTile, ItemPrototype> prototypesByTile;
 
 	@Override
 	protected void initialize() {
 		entitiesByType = new ArrayMap<Type, Bag<Entity>>();
 		entitiesByTag = new HashMap<String, Entity>();
+		prototypesByTile = new ObjectMap<TiledMapTile, ItemPrototype>();
 		propertyMapper = ComponentMapper.getFor(PropertyComponent.class, world);
 	}
 
+	/**
+	 * Retrieve the prototype of items made from theTile, parsing its
+	 * properties the first time only.
+	 * @param theTile items are made from
+	 * @return shared prototype
+	 */
+	public ItemPrototype getPrototype(TiledMapTile theTile) {
+		ItemPrototype anPrototype = prototypesByTile.get(theTile);
+		if(anPrototype == null) {
+			anPrototype = ItemPrototype.intern(ItemPrototype.fromTile(theTile));
+			prototypesByTile.put(theTile, anPrototype);
+		}
+		return anPrototype;
+	}
+
 	public void addTag(Entity theEntity, String theTag) {
 		entitiesByTag.put(theTag, theEntity);		
 	}
@@ -77,7 +99,7 @@ public class PropertyManager extends Manager {
 			// Remove the old type
 			removeType(theEntity, theOldType);
 			// Add the new type
-			addType(theEntity, property.type);
+			addType(theEntity, property.prototype.type);
 		}
 	}
 
@@ -89,7 +111,7 @@ public class PropertyManager extends Manager {
 		// PropertyComponent exists? then add its type and tag now
 		if(property != null) {
 			addTag(theEntity, property.tag);
-			addType(theEntity, property.type);
+			addType(theEntity, property.prototype.type);
 		}
 	}
 
@@ -101,7 +123,7 @@ public class PropertyManager extends Manager {
 		// PropertyComponent exists? then add its type and tag now
 		if(property != null) {
 			addTag(theEntity, property.tag);
-			addType(theEntity, property.type);
+			addType(theEntity, property.prototype.type);
 		}
 		// Remove theEntity from any tags and types list
 		else {
@@ -0,0 +1,227 @@
+package com.cosmicrover.cassini.managers;
+
+import com.artemis.ComponentMapper;
+import com.artemis.Entity;
+import com.artemis.Manager;
+import com.artemis.annotations.Mapper;
+import com.artemis.utils.Bag;
+import com.badlogic.gdx.utils.IntArray;
+import com.badlogic.gdx.utils.IntMap;
+import com.badlogic.gdx.utils.ObjectMap;
+import com.cosmicrover.cassini.components.LocationComponent;
+
+/**
+ * Keeps the id of every entity with a LocationComponent in a grid of chunks
+ * for each map, so entities at a square, inside a rectangle, or within a
+ * radius can be found without looking at every entity.
+ *
+ * Entities are placed when added to the world. Systems moving an entity to
+ * another square or map must call moved() afterwards to keep the grid up to
+ * date. Query results are entity ids appended to a caller provided IntArray,
+ * so nothing is allocated while querying.
+ */
+public class SpatialManager extends Manager {
+	@Mapper ComponentMapper<LocationComponent> locationMapper;
+
+	/// Each chunk covers CHUNK_SIZE x CHUNK_SIZE map squares
+	private static final int CHUNK_SHIFT = 3;
+	public static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+
+	/**
+	 * Chunks of a single map by chunk key.
+	 */
+	private static class Grid {
+		final IntMap<IntArray> chunks = new IntMap<IntArray>();
+	}
+
+	/// Grid of each map by LocationComponent context tag
+	private final ObjectMap<String, Grid> grids;
+
+	/// Grid, square, and chunk key of each placed entity by entity id
+	private final Bag<Grid> gridByEntity;
+	private int[] entityX;
+	private int[] entityY;
+	private int[] entityChunk;
+
+	public SpatialManager() {
+		grids = new ObjectMap<String, Grid>();
+		gridByEntity = new Bag<Grid>();
+		entityX = new int[64];
+		entityY = new int[64];
+		entityChunk = new int[64];
+	}
+
+	@Override
+	protected void initialize() {
+		locationMapper = ComponentMapper.getFor(LocationComponent.class, world);
+	}
+
+	@Override
+	public void added(Entity theEntity) {
+		moved(theEntity);
+	}
+
+	@Override
+	public void changed(Entity theEntity) {
+		// The LocationComponent may have been added or removed
+		moved(theEntity);
+	}
+
+	@Override
+	public void deleted(Entity theEntity) {
+		remove(theEntity.getId());
+	}
+
+	/**
+	 * Update the grid after theEntity changed its square or map.
+	 * @param theEntity that moved
+	 */
+	public void moved(Entity theEntity) {
+		int anId = theEntity.getId();
+		LocationComponent location = locationMapper.getSafe(theEntity);
+		if(location == null || location.getMapName() == null) {
+			remove(anId);
+			return;
+		}
+
+		ensureCapacity(anId);
+		int x = location.getMapX();
+		int y = location.getMapY();
+		Grid anGrid = obtainGrid(location.getContextTag());
+		Grid anOldGrid = gridByEntity.isIndexWithinBounds(anId) ? gridByEntity.get(anId) : null;
+
+		// Still in the same chunk? then only the square needs updating
+		int anChunk = chunkKey(x >> CHUNK_SHIFT, y >> CHUNK_SHIFT);
+		if(anOldGrid != anGrid || entityChunk[anId] != anChunk) {
+			remove(anId);
+			IntArray anIds = anGrid.chunks.get(anChunk);
+			if(anIds == null) {
+				anIds = new IntArray();
+				anGrid.chunks.put(anChunk, anIds);
+			}
+			anIds.add(anId);
+			gridByEntity.set(anId, anGrid);
+			entityChunk[anId] = anChunk;
+		}
+		entityX[anId] = x;
+		entityY[anId] = y;
+	}
+
+	private void remove(int theId) {
+		if(!gridByEntity.isIndexWithinBounds(theId)) {
+			return;
+		}
+		Grid anGrid = gridByEntity.get(theId);
+		if(anGrid != null) {
+			IntArray anIds = anGrid.chunks.get(entityChunk[theId]);
+			if(anIds != null) {
+				anIds.removeValue(theId);
+			}
+			gridByEntity.set(theId, null);
+		}
+	}
+
+	/**
+	 * Find the entities on a single map square.
+	 * @param theContextTag of the map from LocationComponent.getContextTag()
+	 * @param x map square
+	 * @param y map square
+	 * @param theIds receives the entity ids
+	 * @return number of ids added to theIds
+	 */
+	public int getAt(String theContextTag, int x, int y, IntArray theIds) {
+		return getInRect(theContextTag, x, y, x, y, theIds);
+	}
+
+	/**
+	 * Find the entities inside a rectangle of map squares.
+	 * @param theContextTag of the map from LocationComponent.getContextTag()
+	 * @param x0 first map column
+	 * @param y0 first map row
+	 * @param x1 last map column (inclusive)
+	 * @param y1 last map row (inclusive)
+	 * @param theIds receives the entity ids
+	 * @return number of ids added to theIds
+	 */
+	public int getInRect(String theContextTag, int x0, int y0, int x1, int y1, IntArray theIds) {
+		Grid anGrid = grids.get(theContextTag);
+		if(anGrid == null) {
+			return 0;
+		}
+		int anFound = 0;
+		for(int cy = y0 >> CHUNK_SHIFT, cy1 = y1 >> CHUNK_SHIFT; cy1 >= cy; cy++) {
+			for(int cx = x0 >> CHUNK_SHIFT, cx1 = x1 >> CHUNK_SHIFT; cx1 >= cx; cx++) {
+				IntArray anIds = anGrid.chunks.get(chunkKey(cx, cy));
+				if(anIds == null) {
+					continue;
+				}
+				for(int i = 0, s = anIds.size; s > i; i++) {
+					int anId = anIds.get(i);
+					int x = entityX[anId];
+					int y = entityY[anId];
+					if(x >= x0 && x <= x1 && y >= y0 && y <= y1) {
+						theIds.add(anId);
+						anFound++;
+					}
+				}
+			}
+		}
+		return anFound;
+	}
+
+	/**
+	 * Find the entities within a radius of a map square.
+	 * @param theContextTag of the map from LocationComponent.getContextTag()
+	 * @param x center map square
+	 * @param y center map square
+	 * @param theRadius in map squares (inclusive)
+	 * @param theIds receives the entity ids
+	 * @return number of ids added to theIds
+	 */
+	public int getInRadius(String theContextTag, int x, int y, int theRadius, IntArray theIds) {
+		// Start with the bounding rectangle then drop the corners
+		int anStart = theIds.size;
+		getInRect(theContextTag, x-theRadius, y-theRadius, x+theRadius, y+theRadius, theIds);
+		int anRadiusSq = theRadius*theRadius;
+		int anKept = anStart;
+		for(int i = anStart, s = theIds.size; s > i; i++) {
+			int anId = theIds.get(i);
+			int dx = entityX[anId] - x;
+			int dy = entityY[anId] - y;
+			if(dx*dx + dy*dy <= anRadiusSq) {
+				theIds.set(anKept++, anId);
+			}
+		}
+		theIds.size = anKept;
+		return anKept - anStart;
+	}
+
+	private Grid obtainGrid(String theContextTag) {
+		Grid anGrid = grids.get(theContextTag);
+		if(anGrid == null) {
+			anGrid = new Grid();
+			grids.put(theContextTag, anGrid);
+		}
+		return anGrid;
+	}
+
+	private int chunkKey(int cx, int cy) {
+		return (cx << 16) | (cy & 0xffff);
+	}
+
+	// Make sure the per entity arrays can hold theId
+	private void ensureCapacity(int theId) {
+		if(theId >= entityX.length) {
+			int anSize = Math.max(theId + 1, entityX.length * 2);
+			entityX = copyOf(entityX, anSize);
+			entityY = copyOf(entityY, anSize);
+			entityChunk = copyOf(entityChunk, anSize);
+		}
+	}
+
+	private static int[] copyOf(int[] theArray, int theSize) {
+		int[] anArray = new int[theSize];
+		System.arraycopy(theArray, 0, anArray, 0, theArray.length);
+		return anArray;
+	}
+}
@@ -8,7 +8,6 @@ import com.artemis.Entity;
 import com.artemis.Manager;
 import com.artemis.annotations.Mapper;
 import com.badlogic.gdx.Gdx;
-import com.badlogic.gdx.math.Vector3;
 import com.cosmicrover.cassini.components.CameraComponent;
 import com.cosmicrover.cassini.components.ViewportComponent;
 
@@ -34,12 +33,40 @@ public class ViewportManager extends Manager {
 	/// Last size of entityById
 	private int nextSize = 1;
 	
+	/// Set by resize() until the viewports are resized on the simulation thread
+	private volatile boolean resizePending = false;
+	
 	public ViewportManager() {
 		entityById = new HashMap<Integer, Entity>();
 		idByEntity = new HashMap<Entity, Integer>();
 	}
 
-	public void updateViewports() {
+	/**
+	 * Ask for every viewport and its cameras to be resized to the screen.
+	 * Safe to call from the render thread, the cameras are only touched by
+	 * the next call to update() from the thread processing the world.
+	 */
+	public void resize() {
+		resizePending = true;
+	}
+
+	/**
+	 * Apply a resize asked for by resize(), call this from the thread
+	 * processing the world.
+	 */
+	public void update() {
+		if(resizePending) {
+			resizePending = false;
+			updateViewports();
+		}
+	}
+
+	/**
+	 * Resize every viewport and its cameras to the screen. Only the camera
+	 * matrices are updated, no GL calls are made since this runs on the
+	 * simulation thread, the render systems set their own projections.
+	 */
+	private void updateViewports() {
 		// Loop through each entity in our map by ID and adjust the viewport
 		// values according to sizeX and sizeY values adjusted above.
 		for(Entity anEntity : entityById.values()) {
@@ -51,48 +78,48 @@ public class ViewportManager extends Manager {
 
 			// Retrieve the ID for this entity (and subtract one)
 			Integer anId = idByEntity.get(anEntity) - 1;
-			
+		
 			// Adjust the width and height for each viewport
 			viewport.width = Gdx.graphics.getWidth() / sizeX;
 			viewport.height = Gdx.graphics.getHeight() / sizeY;
-			
+		
 			// Adjust the x and y position using the ID value
 			viewport.x = (anId%sizeX)*viewport.width;
 			viewport.y = ((sizeY-1)-(anId/sizeX))*viewport.height;
-			
+		
 			// If camera component exists and HUD camera exists then update now
 			if(camera != null) {
 				if (camera.hasHudCamera()) {
 					// Make a note of the old camera position for repositioning the camera later
-					Vector3 oldpos = new Vector3(camera.getHudCamera().position);
-					   
+					float oldX = camera.getHudCamera().position.x;
+					float oldY = camera.getHudCamera().position.y;
+				   
 					// Update our HUD camera component according to viewport width and height
 					camera.getHudCamera().setToOrtho(false, viewport.width, viewport.height);
-	
+
 					// Translate the old camera position with the current camera position
 					camera.getHudCamera().translate(
-							oldpos.x-camera.getHudCamera().position.x,
-							oldpos.y-camera.getHudCamera().position.y);
-	
+							oldX-camera.getHudCamera().position.x,
+							oldY-camera.getHudCamera().position.y);
+
 					// Apply the changes now to our HUD camera component
 					camera.getHudCamera().update();
-					camera.getHudCamera().apply(Gdx.gl10);
 				}
 				if(camera.hasWorldCamera()) {
 					// Make a note of the old camera position for repositioning the camera later
-					Vector3 oldpos = new Vector3(camera.getWorldCamera().position);
-					   
+					float oldX = camera.getWorldCamera().position.x;
+					float oldY = camera.getWorldCamera().position.y;
+				   
 					// Update our World camera component according to viewport width and height
 					camera.getWorldCamera().setToOrtho(false, viewport.width, viewport.height);
 
 					// Translate the old camera position with the current camera position
 					camera.getWorldCamera().translate(
-							oldpos.x-camera.getWorldCamera().position.x,
-							oldpos.y-camera.getWorldCamera().position.y);
+							oldX-camera.getWorldCamera().position.x,
+							oldY-camera.getWorldCamera().position.y);
 
 					// Apply the changes now to our World camera component
 					camera.getWorldCamera().update();
-					camera.getWorldCamera().apply(Gdx.gl10);
 				}
 			}
 
@@ -2,35 +2,92 @@ package com.cosmicrover.cassini.screens;
 
 import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.graphics.GL10;
+import com.cosmicrover.cassini.RenderSnapshot;
 import com.cosmicrover.cassini.WorldData;
+import com.cosmicrover.cassini.managers.ViewportManager;
 import com.cosmicrover.cassini.systems.RoverEventSystem;
 import com.cosmicrover.cassini.systems.RoverInputSystem;
+import com.cosmicrover.cassini.systems.RoverProgramSystem;
 import com.cosmicrover.cassini.systems.EngineRenderSystem;
 import com.cosmicrover.cassini.systems.RoverRenderSystem;
 import com.cosmicrover.cassini.systems.MapSystem;
+import com.cosmicrover.cassini.systems.RenderSnapshotSystem;
+import com.cosmicrover.core.GameEnvironment.Platform;
 import com.cosmicrover.core.GameManager;
+import com.cosmicrover.core.QueuedInputProcessor;
+import com.cosmicrover.core.SimulationThread;
+import com.cosmicrover.core.TripleBuffer;
 import com.cosmicrover.core.screens.AbstractLoadingScreen;
 import com.cosmicrover.core.screens.AbstractScreen;
 
 public class PlanetMapScreen extends AbstractScreen {
+	/// Time between simulation steps when running on the simulation thread
+	private static final float SIMULATION_STEP = 1.0f / 60.0f;
+
+	/// Input events queued between two simulation steps before dropping more
+	private static final int INPUT_QUEUE_CAPACITY = 256;
+
 	/// Passive systems used only by this Screen
 	private MapSystem mapSystem = null;
 	private RoverEventSystem eventQueueSystem = null;
+	private RoverProgramSystem roverProgramSystem = null;
 	private RoverInputSystem roverInputSystem = null;
+	private RenderSnapshotSystem renderSnapshotSystem = null;
 	private RoverRenderSystem roverRenderSystem = null;
 	private EngineRenderSystem engineRenderSystem = null;
 
+	/// Resizes the viewports on the thread running the simulation
+	private ViewportManager viewportManager = null;
+
+	/// Render state handed from the simulation to the render systems
+	private final TripleBuffer<RenderSnapshot> snapshots;
+
+	/// Input events handed from the render thread to the simulation
+	private final QueuedInputProcessor inputProcessor;
+
+	/// Run the simulation on its own thread instead of the render thread
+	private final boolean threadedSimulation;
+
+	/// Thread running the simulation while this screen is shown
+	private SimulationThread simulationThread = null;
+
+	/// Simulation step run by the simulation thread
+	private final Runnable simulationStep = new Runnable() {
+		@Override
+		public void run() {
+			world.setDelta(SIMULATION_STEP);
+			simulate();
+		}
+	};
+
 	public PlanetMapScreen(GameManager gameManager, int screenId) {
 		super("PlanetMapScreen", gameManager, screenId);
 
 		// Retrieve our passive MapSystem here
 		mapSystem = world.getSystem(MapSystem.class);
 
+		// Retrieve the ViewportManager to apply resizes with
+		viewportManager = world.getManager(ViewportManager.class);
+
+		// Snapshots rotated between the simulation and the render systems
+		snapshots = new TripleBuffer<RenderSnapshot>(
+				new RenderSnapshot(), new RenderSnapshot(), new RenderSnapshot());
+
 		// Create passive systems for any systems specific to this Screen 
 		roverInputSystem = world.setSystem(new RoverInputSystem(), true);
 		eventQueueSystem = world.setSystem(new RoverEventSystem(gameManager), true);
+		roverProgramSystem = world.setSystem(new RoverProgramSystem(), true);
+		renderSnapshotSystem = world.setSystem(new RenderSnapshotSystem(snapshots), true);
 		roverRenderSystem = world.setSystem(new RoverRenderSystem(gameManager), true);
 		engineRenderSystem = world.setSystem(new EngineRenderSystem(gameManager.getSpriteBatch()), true);
+
+		// Input events touch the world, so they are replayed by the simulation
+		inputProcessor = new QueuedInputProcessor(roverInputSystem, INPUT_QUEUE_CAPACITY);
+
+		// Only use a simulation thread when there is a core left to run it on
+		Platform platform = gameManager.getEnvironment().getPlatform();
+		threadedSimulation = platform != Platform.HTML &&
+				Runtime.getRuntime().availableProcessors() > 1;
 		
 		// Note the creation of each screen in our debug log
 		Gdx.app.debug("PlanetMapScreen", "Creating Planet Map screen");
@@ -42,30 +99,78 @@ public class PlanetMapScreen extends AbstractScreen {
 		Gdx.gl.glClearColor(0.5f, 0.5f, 0.5f, 1);
 		Gdx.gl10.glClear(GL10.GL_COLOR_BUFFER_BIT);
 		
-		// Set the delta time since the last time render was called
-		world.setDelta(delta);
+		if(threadedSimulation) {
+			// (Re)start the simulation thread if it isn't running, once the map is ready
+			if(!mapSystem.isSpawning() &&
+			   (simulationThread == null || !simulationThread.isRunning())) {
+				startSimulation();
+			}
+		} else {
+			// Set the delta time since the last time render was called
+			world.setDelta(delta);
 
-		// Allow our world to perform updates and render to the screen
-		world.process();
-		
-		// Handle our passive systems here
-		roverInputSystem.process();     // Rover input processing
-		eventQueueSystem.process();     // Event queue processing
+			// Handle our input and simulation on this thread, once the map is ready
+			if(!mapSystem.isSpawning()) {
+				simulate();                 // Input, world, map and snapshot processing
+			}
+		}
+
+		// Render the latest snapshot without touching the world, every
+		// render system draws the same one
+		RenderSnapshot snapshot = snapshots.getReadBuffer();
+		roverRenderSystem.setSnapshot(snapshot);
+		engineRenderSystem.setSnapshot(snapshot);
 		roverRenderSystem.process();    // Rover rendering
 		engineRenderSystem.process();   // Engine statistics rendering
-		mapSystem.process();            // Map loading processing
 		
 		// Switch to AssetDataLoadingScreen?
 		if(mapSystem.isLoadingRequired()) {
 			// Switch back to a full screen viewport
 			Gdx.gl.glViewport(0, 0, Gdx.graphics.getWidth(), Gdx.graphics.getHeight());
+			// Stop the simulation while loading
+			stopSimulation();
 			// Let our loading screen know which screen to switch back to
 			AbstractLoadingScreen.setNextScreenId(WorldData.PLANET_MAP_SCREEN);
+			// And let it load the map and spawn its items before switching back
+			AbstractLoadingScreen.setLoadingTask(mapSystem);
 			// Switch to our Asset Loading Screen
 			gameManager.setScreen(WorldData.ASSET_LOADING_SCREEN);
 		}
 	}
 
+	/**
+	 * Runs a single simulation step and captures its results for rendering.
+	 * Only the thread running the simulation may call this, the render
+	 * thread talks to it through the input queue and the snapshots.
+	 */
+	private void simulate() {
+		// Handle the input received since the last step
+		viewportManager.update();       // Viewport resizing
+		inputProcessor.drain();         // Input events
+		roverInputSystem.process();     // Rover input processing
+
+		// Allow our world to perform updates
+		world.process();
+		roverProgramSystem.process();   // Rover program processing
+		eventQueueSystem.process();     // Event queue processing
+		mapSystem.process();            // Map loading processing
+		renderSnapshotSystem.process(); // Capture the render state
+	}
+
+	private void startSimulation() {
+		// Clean up a previous thread that stopped after a failed step
+		stopSimulation();
+		simulationThread = new SimulationThread("Simulation", world, simulationStep, SIMULATION_STEP);
+		simulationThread.start();
+	}
+
+	private void stopSimulation() {
+		if(simulationThread != null) {
+			simulationThread.shutdown();
+			simulationThread = null;
+		}
+	}
+
 	@Override
 	public void show() {
 		// Call our base class implementation (sets the Back button screen)
@@ -79,20 +184,35 @@ public class PlanetMapScreen extends AbstractScreen {
 		}
 		
 		// Add our InputProcessors to the InputMultiplexer
-		gameManager.getInputMultiplexer().addProcessor(roverInputSystem);
+		gameManager.getInputMultiplexer().addProcessor(inputProcessor);
 	}
 
 	@Override
 	public void hide() {
 		// TODO: Disable or remove entities created by show method above.
 
+		// Stop the simulation thread, it is restarted on the next render
+		stopSimulation();
+
 		// Remove our InputProcessors from the InputMultiplexer
-		gameManager.getInputMultiplexer().removeProcessor(roverInputSystem);
+		gameManager.getInputMultiplexer().removeProcessor(inputProcessor);
+
+		// Release the meshes held by our render system
+		roverRenderSystem.dispose();
+	}
+
+	@Override
+	public void pause() {
+		// Stop the simulation thread so game data can be saved safely
+		stopSimulation();
 	}
 
 	@Override
 	public void dispose() {
+		// Make sure the simulation thread is gone
+		stopSimulation();
+
 		// Remove our InputProcessors from the InputMultiplexer
-		gameManager.getInputMultiplexer().removeProcessor(roverInputSystem);
+		gameManager.getInputMultiplexer().removeProcessor(inputProcessor);
 	}
 }
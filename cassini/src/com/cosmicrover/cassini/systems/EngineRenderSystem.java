@@ -1,33 +1,23 @@
 package com.cosmicrover.cassini.systems;
 
-import com.artemis.Aspect;
-import com.artemis.ComponentMapper;
-import com.artemis.Entity;
-import com.artemis.annotations.Mapper;
-import com.artemis.systems.EntityProcessingSystem;
+import com.artemis.systems.VoidEntitySystem;
 import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.graphics.Texture;
 import com.badlogic.gdx.graphics.Texture.TextureFilter;
 import com.badlogic.gdx.graphics.g2d.BitmapFont;
 import com.badlogic.gdx.graphics.g2d.SpriteBatch;
 import com.badlogic.gdx.graphics.g2d.TextureRegion;
-import com.cosmicrover.cassini.components.CameraComponent;
-import com.cosmicrover.cassini.components.ViewportComponent;
-
-public class EngineRenderSystem extends EntityProcessingSystem {
-	@Mapper ComponentMapper<CameraComponent> cameraMapper;
-	@Mapper ComponentMapper<ViewportComponent> viewportMapper;
+import com.cosmicrover.cassini.RenderSnapshot;
 
+public class EngineRenderSystem extends VoidEntitySystem {
 	// Batch up multiple sprite and font draw calls
 	private SpriteBatch spriteBatch;
 	// Font to use to display information
 	private BitmapFont font;
+	// Snapshot to draw this frame, shared with the other render systems
+	private RenderSnapshot snapshot = null;
 
-	@SuppressWarnings("unchecked")
 	public EngineRenderSystem(SpriteBatch spriteBatch) {
-		super(Aspect.getAspectForAll(
-				CameraComponent.class,
-				ViewportComponent.class));
 		this.spriteBatch = spriteBatch;
 	}
 
@@ -41,26 +31,40 @@ public class EngineRenderSystem extends EntityProcessingSystem {
 		font.setUseIntegerPositions(false);
 	}
 
+	/**
+	 * Sets the snapshot drawn by the next call to process().
+	 * @param theSnapshot read from the RenderSnapshotSystem for this frame
+	 */
+	public void setSnapshot(RenderSnapshot theSnapshot) {
+		snapshot = theSnapshot;
+	}
+
 	@Override
-	protected void process(Entity theEntity) {
-		CameraComponent camera = cameraMapper.get(theEntity);
-		ViewportComponent viewport = viewportMapper.get(theEntity);
+	protected void processSystem() {
+		// Draw the statistics in each view from the snapshot of this frame
+		for(int i = 0, s = snapshot.getViewCount(); s > i; i++) {
+			render(snapshot, snapshot.getView(i));
+		}
+	}
 
+	private void render(RenderSnapshot theSnapshot, RenderSnapshot.View theView) {
 		// Create our viewport first
-		Gdx.gl.glViewport(viewport.x, viewport.y, viewport.width, viewport.height);
+		int width = theView.viewportWidth;
+		int height = theView.viewportHeight;
+		Gdx.gl.glViewport(theView.viewportX, theView.viewportY, width, height);
 
 		// Render our Heads Up Display
-		spriteBatch.setProjectionMatrix(camera.getHudCamera().combined);
+		spriteBatch.setProjectionMatrix(theView.hudCamera.combined);
 		spriteBatch.begin();
 		spriteBatch.setColor(1, 1, 1, 1);
 		font.draw(spriteBatch, "FPS: " + Gdx.graphics.getFramesPerSecond(),
-				-(viewport.width / 2) + 20, viewport.height / 2 - 20);
-		font.draw(spriteBatch, "Active entities: " + world.getEntityManager().getActiveEntityCount(),
-				-(viewport.width / 2) + 20, viewport.height / 2 - 40);
-		font.draw(spriteBatch, "Total created: " + world.getEntityManager().getTotalCreated(),
-				-(viewport.width / 2) + 20, viewport.height / 2 - 60);
-		font.draw(spriteBatch, "Total deleted: " + world.getEntityManager().getTotalDeleted(),
-				-(viewport.width / 2) + 20, viewport.height / 2 - 80);
+				-(width / 2) + 20, height / 2 - 20);
+		font.draw(spriteBatch, "Active entities: " + theSnapshot.activeEntities,
+				-(width / 2) + 20, height / 2 - 40);
+		font.draw(spriteBatch, "Total created: " + theSnapshot.totalCreated,
+				-(width / 2) + 20, height / 2 - 60);
+		font.draw(spriteBatch, "Total deleted: " + theSnapshot.totalDeleted,
+				-(width / 2) + 20, height / 2 - 80);
 		spriteBatch.end();
 	}
 }
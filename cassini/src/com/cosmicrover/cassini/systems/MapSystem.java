@@ -8,19 +8,32 @@ import com.artemis.systems.EntityProcessingSystem;
 import com.badlogic.gdx.maps.MapLayer;
 import com.badlogic.gdx.maps.tiled.TiledMap;
 import com.badlogic.gdx.maps.tiled.TiledMapTileLayer;
-import com.badlogic.gdx.maps.tiled.TiledMapTileLayer.Cell;
 import com.badlogic.gdx.utils.Array;
 import com.cosmicrover.cassini.EntityFactory;
+import com.cosmicrover.cassini.NavigationGrid;
+import com.cosmicrover.cassini.SpawnScheduler;
 import com.cosmicrover.cassini.WorldData;
 import com.cosmicrover.cassini.components.CameraComponent;
+import com.cosmicrover.cassini.components.FogComponent;
 import com.cosmicrover.cassini.components.LocationComponent;
 import com.cosmicrover.cassini.components.MapComponent;
 import com.cosmicrover.cassini.components.PropertyComponent;
+import com.cosmicrover.cassini.managers.FogManager;
+import com.cosmicrover.cassini.managers.PathfindingManager;
 import com.cosmicrover.cassini.managers.PropertyManager;
+import com.cosmicrover.cassini.managers.SpatialManager;
 import com.cosmicrover.core.GameManager;
+import com.cosmicrover.core.screens.LoadingTask;
 
-public class MapSystem extends EntityProcessingSystem {
+/**
+ * Loads the map of each player and creates the entities on it. Items of a
+ * newly loaded map are spawned a slice per frame by a SpawnScheduler, while
+ * the loading screen shows our progress (see LoadingTask), and players are
+ * only placed on their map once every item of it exists.
+ */
+public class MapSystem extends EntityProcessingSystem implements LoadingTask {
 	@Mapper ComponentMapper<CameraComponent> cameraMapper;
+	@Mapper ComponentMapper<FogComponent> fogMapper;
 	@Mapper ComponentMapper<LocationComponent> locationMapper;
 	@Mapper ComponentMapper<MapComponent> mapMapper;
 	@Mapper ComponentMapper<PropertyComponent> propertyMapper;
@@ -34,9 +47,28 @@ public class MapSystem extends EntityProcessingSystem {
 	
 	private final WorldData worldData;
 	
+	// SpatialManager which needs to know when an entity changes map
+	private SpatialManager spatialManager = null;
+	
+	// PathfindingManager which builds the navigation grid of each map loaded
+	private PathfindingManager pathfindingManager = null;
+	
+	// FogManager which needs to know what blocks line of sight on each map
+	private FogManager fogManager = null;
+	
 	// Indicates the parent screen needs to show a loading screen
 	private boolean loadingRequired = false;
 	
+	// Loading state published by end() for the render thread
+	private volatile boolean loadingPending = false;
+	private volatile boolean spawningPending = false;
+	
+	// Most time spent spawning items per frame (in nanoseconds)
+	private static final long SPAWN_BUDGET_NS = 8000000L;
+	
+	// Creates the items of newly loaded maps a slice at a time
+	private SpawnScheduler spawnScheduler = null;
+	
 	@SuppressWarnings("unchecked")
 	public MapSystem(GameManager gameManager) {
 		super(Aspect.getAspectForAll(LocationComponent.class, MapComponent.class, PropertyComponent.class));
@@ -46,8 +78,68 @@ public class MapSystem extends EntityProcessingSystem {
 		worldData = gameManager.getData(WorldData.class); 
 	}
 	
+	@Override
+	protected void initialize() {
+		// Retrieve the SpatialManager object now
+		spatialManager = world.getManager(SpatialManager.class);
+		
+		// Retrieve the PathfindingManager object now
+		pathfindingManager = world.getManager(PathfindingManager.class);
+		
+		// Retrieve the FogManager object now
+		fogManager = world.getManager(FogManager.class);
+		
+		// Spawn items into our world
+		spawnScheduler = new SpawnScheduler(world);
+	}
+
+	/**
+	 * @return true while a map is loading or its items are being spawned,
+	 * gameplay waits on the loading screen until then. Safe to call from
+	 * any thread, as of the last time this system was processed.
+	 */
 	public boolean isLoadingRequired() {
-		return loadingRequired;
+		return loadingPending;
+	}
+
+	/**
+	 * @return true while the items of a newly loaded map are being spawned.
+	 * Safe to call from any thread, as of the last time this system was
+	 * processed.
+	 */
+	public boolean isSpawning() {
+		return spawningPending;
+	}
+
+	@Override
+	protected void end() {
+		// Publish our loading state to the render thread
+		spawningPending = !spawnScheduler.isDone();
+		loadingPending = loadingRequired || spawningPending;
+	}
+
+	/**
+	 * Called by the loading screen each frame once the map assets are loaded.
+	 */
+	@Override
+	public boolean update() {
+		// The simulation is stopped while loading, hold the world lock anyway
+		synchronized(world) {
+			// Load the map and queue its items, then spawn the next slice of them
+			process();
+			if(spawnScheduler.update(SPAWN_BUDGET_NS)) {
+				// Place our players now that every item of their map exists
+				process();
+			}
+			return !loadingRequired && spawnScheduler.isDone();
+		}
+	}
+
+	@Override
+	public float getProgress() {
+		// Nothing is queued until the map itself is loaded, and what was
+		// spawned for an earlier map doesn't count towards this one
+		return isSpawning() ? spawnScheduler.getProgress() : 0.0f;
 	}
 	
 
@@ -62,6 +154,9 @@ public class MapSystem extends EntityProcessingSystem {
 		// Has our map value changed from our current location? then load the map now
 		if( map.tiledMap == null ||
 			(map.mapFilename != null && !map.mapFilename.equalsIgnoreCase(location.getMapName())) ) {
+			// Our map is about to change
+			mapMapper.markDirty(theEntity);
+
 			// Map not yet loaded? then load it now
 			if(gameManager.getAssetManager().isLoaded(map.mapFilename)) {
 				// Retrieve the TiledMap from our assetManager
@@ -78,27 +173,43 @@ public class MapSystem extends EntityProcessingSystem {
 			}
 			
 			if(map.tiledMap != null) {
+				// Our location is about to switch maps
+				locationMapper.markDirty(theEntity);
+
 				// Next retrieve a few common properties from the map
 				map.mapWidth = map.tiledMap.getProperties().get("width", Integer.class);
 				map.mapHeight = map.tiledMap.getProperties().get("height", Integer.class);
 				map.mapTileWidth = map.tiledMap.getProperties().get("tilewidth", Integer.class);
 				map.mapTileHeight = map.tiledMap.getProperties().get("tileheight", Integer.class);
 
-				// Set our boundaries according to the map just loaded
-				location.setLevelGrid(map.mapTileWidth, map.mapTileHeight);
-				location.setMapBounds(0,0,map.mapWidth, map.mapHeight);
+				// Switch to the map just loaded and size it for every location on it
 				location.setMapName(map.mapFilename);
+				location.getContext().setSize(map.mapWidth, map.mapHeight, map.mapTileWidth, map.mapTileHeight);
+				
+				// Update our level according to the map grid
+				location.setMap(location.getMap());
+				
+				// Build the navigation grid the first time this map is seen,
+				// squares rovers can't drive over also block line of sight
+				NavigationGrid anGrid = pathfindingManager.obtainGrid(location.getContextTag(), map.tiledMap);
+				fogManager.setBlocker(location.getContextTag(), anGrid);
 				
 				// Call our GetLayers method to determine which layers are foreground layers and background layers
 				getLayerTypes(map);
 				
-				// Create world entities for this map the first time its loaded
+				// Queue world entities for this map the first time its loaded
 				createWorldMapEntities(map, location);
 
-				// Create player specific entities for this map for this player
-				createPlayerMapEntities(theEntity);
+				// Our map has changed
+				spatialManager.moved(theEntity);
 			}
 		}
+		
+		// Create player specific entities once every world entity of the map exists
+		if(map.tiledMap != null && spawnScheduler.isDone() && createPlayerMapEntities(theEntity)) {
+			// Our square has changed
+			spatialManager.moved(theEntity);
+		}
 	}
 
 	private void createWorldMapEntities(MapComponent map, LocationComponent location) {
@@ -108,8 +219,8 @@ public class MapSystem extends EntityProcessingSystem {
 			for(MapLayer mapLayer : map.tiledMap.getLayers()) {
 				// Look for layers with the "items" property and add the items found on them
 				if("true".equalsIgnoreCase(mapLayer.getProperties().get(LAYER_PROPERTY_ITEMS, String.class)) ) {
-					// Create World Map items for this map
-					createWorldMapItems(mapLayer, location);
+					// Queue World Map items for this map
+					spawnScheduler.add(TiledMapTileLayer.class.cast(mapLayer), location);
 				}
 			}
 			
@@ -118,27 +229,13 @@ public class MapSystem extends EntityProcessingSystem {
 		}
 	}
 	
-	private void createWorldMapItems(MapLayer mapLayer, LocationComponent location) {
-		TiledMapTileLayer tiledMapLayer = TiledMapTileLayer.class.cast(mapLayer);
-		for(int y=0; y<tiledMapLayer.getHeight(); y++) {
-			for(int x=0; x<tiledMapLayer.getWidth(); x++) {
-				Cell cell = tiledMapLayer.getCell(x, y);
-				if(cell != null) {
-					// Create a LocationComponent for this tile as a clone from the entity Location provided
-					LocationComponent locationItem = new LocationComponent(location, x, y);
-					// Now create the Entity for this item and add it to the world
-					EntityFactory.createMapItem(world, locationItem, cell.getTile()).addToWorld();
-				}
-			}
-		}
-	}
-
-	private void createPlayerMapEntities(Entity theEntity) {
+	// Returns true if theEntity was placed on its map
+	private boolean createPlayerMapEntities(Entity theEntity) {
 		MapComponent map = mapMapper.get(theEntity);
 
 		// Have we done this before for this player? then add player specific entities now
 		if(!map.mapsLoaded.contains(map.mapFilename, false)) {
-			LocationComponent location = locationMapper.get(theEntity);
+			LocationComponent location = locationMapper.getForWrite(theEntity);
 			PropertyComponent property = propertyMapper.get(theEntity);
 			
 			// Retrieve the base for this player using our TagManager
@@ -153,22 +250,20 @@ public class MapSystem extends EntityProcessingSystem {
 				camera.setWorldPosition(anBaseLocation.getLevel().x, anBaseLocation.getLevel().y);
 			}
 
-			// Create map mask entities for each map location to hide each square
-			for(int row=0; row<map.mapHeight; row++) {
-				for(int col=0; col<map.mapWidth; col++) {
-					// Skip the location of where we are now on the new map
-					if(col == location.getMapX() && row == location.getMapY()) {
-						continue;
-					}
-					// Create a mask entity for this location
-					LocationComponent locationMask = new LocationComponent(location, col, row);
-					EntityFactory.createMapMask(world, locationMask, theEntity.getUuid().toString()).addToWorld();
-				}
+			// Hide every square of this map except where we are now
+			FogComponent fog = fogMapper.getSafe(theEntity);
+			if(fog != null) {
+				fogMapper.markDirty(theEntity);
+				fog.obtainFog(location.getContextTag(), map.mapWidth, map.mapHeight)
+					.reveal(location.getMapX(), location.getMapY());
 			}
 			
 			// Add this mapFilename to our list of maps loaded for this entity
+			mapMapper.markDirty(theEntity);
 			map.mapsLoaded.add(map.mapFilename);
+			return true;
 		}
+		return false;
 	}
 	
 	/**
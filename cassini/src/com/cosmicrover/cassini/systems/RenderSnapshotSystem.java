@@ -0,0 +1,172 @@
+package com.cosmicrover.cassini.systems;
+
+import com.artemis.Aspect;
+import com.artemis.ComponentMapper;
+import com.artemis.Entity;
+import com.artemis.annotations.Mapper;
+import com.artemis.systems.EntityProcessingSystem;
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.graphics.OrthographicCamera;
+import com.badlogic.gdx.utils.IntArray;
+import com.cosmicrover.cassini.FogMap;
+import com.cosmicrover.cassini.RenderSnapshot;
+import com.cosmicrover.cassini.components.CameraComponent;
+import com.cosmicrover.cassini.components.FogComponent;
+import com.cosmicrover.cassini.components.LocationComponent;
+import com.cosmicrover.cassini.components.MapComponent;
+import com.cosmicrover.cassini.components.PropertyComponent;
+import com.cosmicrover.cassini.components.RoverEventComponent;
+import com.cosmicrover.cassini.components.SpriteComponent;
+import com.cosmicrover.cassini.components.ViewportComponent;
+import com.cosmicrover.cassini.managers.SpatialManager;
+import com.cosmicrover.core.TripleBuffer;
+
+/**
+ * Captures the state drawn by RoverRenderSystem and EngineRenderSystem into
+ * a RenderSnapshot and publishes it once all views have been captured. This
+ * runs right after the simulation, on the same thread.
+ */
+public class RenderSnapshotSystem extends EntityProcessingSystem {
+	@Mapper ComponentMapper<CameraComponent> cameraMapper;
+	@Mapper ComponentMapper<FogComponent> fogMapper;
+	@Mapper	ComponentMapper<LocationComponent> locationMapper;
+	@Mapper ComponentMapper<SpriteComponent> spriteMapper;
+	@Mapper ComponentMapper<MapComponent> mapMapper;
+	@Mapper ComponentMapper<PropertyComponent> propertyMapper;
+	@Mapper ComponentMapper<RoverEventComponent> roverEventMapper;
+	@Mapper ComponentMapper<ViewportComponent> viewportMapper;
+
+	// Buffers to publish our snapshots to
+	private final TripleBuffer<RenderSnapshot> snapshots;
+
+	// Extra map squares captured around the camera, since the camera may move
+	// on the render thread before this snapshot is drawn
+	private static final int CULL_MARGIN = 2;
+
+	// SpatialManager which is used to find the sprites near each camera
+	private SpatialManager spatialManager = null;
+
+	// Entity ids found near the camera, reused for every view
+	private final IntArray visibleIds = new IntArray();
+
+	// Snapshot being filled during this process
+	private RenderSnapshot snapshot = null;
+
+	@SuppressWarnings("unchecked")
+	public RenderSnapshotSystem(TripleBuffer<RenderSnapshot> snapshots) {
+		// Same aspect as the RoverRenderSystem, one view per entity
+		super(Aspect.getAspectForAll(
+				CameraComponent.class,
+				LocationComponent.class,
+				MapComponent.class,
+				RoverEventComponent.class,
+				ViewportComponent.class));
+		this.snapshots = snapshots;
+	}
+
+	@Override
+	protected void initialize() {
+		// Retrieve the SpatialManager object now
+		spatialManager = world.getManager(SpatialManager.class);
+	}
+
+	@Override
+	protected void begin() {
+		// Start with an empty snapshot
+		snapshot = snapshots.getWriteBuffer();
+		snapshot.clear();
+
+		// Capture our entity statistics
+		snapshot.activeEntities = world.getEntityManager().getActiveEntityCount();
+		snapshot.totalCreated = world.getEntityManager().getTotalCreated();
+		snapshot.totalDeleted = world.getEntityManager().getTotalDeleted();
+	}
+
+	@Override
+	protected void process(Entity theEntity) {
+		CameraComponent camera = cameraMapper.get(theEntity);
+		LocationComponent location = locationMapper.get(theEntity);
+		MapComponent map = mapMapper.get(theEntity);
+		RoverEventComponent roverEvent = roverEventMapper.get(theEntity);
+		ViewportComponent viewport = viewportMapper.get(theEntity);
+
+		// Capture the camera, viewport, and map for this view
+		RenderSnapshot.View anView = snapshot.addView();
+		anView.entityId = theEntity.getId();
+		anView.setCamera(camera, viewport);
+		anView.mapName = location.getMapName();
+		anView.tiledMap = map.tiledMap;
+		anView.mapBackgroundLayers = map.mapBackgroundLayers;
+		anView.mapForegroundLayers = map.mapForegroundLayers;
+
+		// Capture the location of the rover owning this view
+		anView.level.set(location.getLevel());
+		anView.levelGrid.set(location.getLevelGrid());
+		anView.levelOffsetCenter.set(location.getLevelOffsetCenter());
+		anView.levelBounds.set(location.getLevelBounds());
+
+		// Capture the radar scan and movement path
+		anView.scanInProgress = roverEvent.scanInProgress;
+		anView.scanAngle = roverEvent.scanAngle;
+		anView.movePath.set(roverEvent.movePath);
+
+		// Capture the sprites this view can see
+		captureSprites(anView, location, map);
+
+		// Capture the fog of war for this player, only copied when it changed
+		FogComponent fog = fogMapper.getSafe(theEntity);
+		FogMap anFog = fog != null ? fog.getFog(location.getContextTag()) : null;
+		anView.fog = anFog != null ? anFog.copyTo(anView.fog) : null;
+	}
+
+	private void captureSprites(RenderSnapshot.View theView, LocationComponent location, MapComponent map) {
+		// Work out which map squares the camera can see
+		OrthographicCamera anCamera = theView.worldCamera;
+		float anHalfWidth = anCamera.viewportWidth * anCamera.zoom * 0.5f;
+		float anHalfHeight = anCamera.viewportHeight * anCamera.zoom * 0.5f;
+		float gridX = theView.levelGrid.x;
+		float gridY = theView.levelGrid.y;
+		int x0 = (int)Math.floor((anCamera.position.x - anHalfWidth) / gridX) - CULL_MARGIN;
+		int y0 = (int)Math.floor((anCamera.position.y - anHalfHeight) / gridY) - CULL_MARGIN;
+		int x1 = (int)Math.floor((anCamera.position.x + anHalfWidth) / gridX) + CULL_MARGIN;
+		int y1 = (int)Math.floor((anCamera.position.y + anHalfHeight) / gridY) + CULL_MARGIN;
+
+		// Only look at the chunks of this map overlapping the camera
+		visibleIds.clear();
+		spatialManager.getInRect(location.getContextTag(), x0, y0, x1, y1, visibleIds);
+		for(int i = 0, s = visibleIds.size; s > i; i++) {
+			Entity anEntity = world.getEntity(visibleIds.get(i));
+
+			// Skip located entities that aren't drawn
+			SpriteComponent sprite = spriteMapper.getSafe(anEntity);
+			if(sprite == null) {
+				continue;
+			}
+
+			// Maybe the textureRegion comes from our map
+			if(sprite.textureRegion == null) {
+				PropertyComponent property = propertyMapper.getSafe(anEntity);
+				if(property != null && map.tiledMap != null) {
+					spriteMapper.markDirty(anEntity);
+					sprite.textureRegion = map.tiledMap.getTileSets().getTile(property.prototype.tileId).getTextureRegion();
+				} else {
+					Gdx.app.error("RenderSnapshotSystem:captureSprites", "Null texture region");
+					// Skip this sprite and move on
+					continue;
+				}
+			}
+
+			LocationComponent spriteLocation = locationMapper.get(anEntity);
+			theView.addSprite(sprite.textureRegion,
+					spriteLocation.getLevel().x, spriteLocation.getLevel().y,
+					sprite.tint.toFloatBits());
+		}
+	}
+
+	@Override
+	protected void end() {
+		// Hand the finished snapshot over to the render systems
+		snapshots.publish();
+		snapshot = null;
+	}
+}
@@ -5,16 +5,19 @@ import com.artemis.ComponentMapper;
 import com.artemis.Entity;
 import com.artemis.annotations.Mapper;
 import com.artemis.systems.IntervalEntityProcessingSystem;
-import com.artemis.utils.ImmutableBag;
+import com.artemis.utils.TickScheduler;
 import com.badlogic.gdx.math.MathUtils;
-import com.cosmicrover.cassini.EntityFactory;
+import com.cosmicrover.cassini.RevealStencil;
 import com.cosmicrover.cassini.SpriteConstants;
 import com.cosmicrover.cassini.WorldData;
 import com.cosmicrover.cassini.components.RoverEventComponent;
 import com.cosmicrover.cassini.components.RoverEventComponent.RoverEvent;
 import com.cosmicrover.cassini.components.LocationComponent;
 import com.cosmicrover.cassini.components.SpriteComponent;
-import com.cosmicrover.cassini.managers.GroupManager;
+import com.cosmicrover.cassini.managers.ExplorationManager;
+import com.cosmicrover.cassini.managers.FogManager;
+import com.cosmicrover.cassini.managers.PathfindingManager;
+import com.cosmicrover.cassini.managers.SpatialManager;
 import com.cosmicrover.core.GameManager;
 
 public class RoverEventSystem extends IntervalEntityProcessingSystem {
@@ -25,11 +28,33 @@ public class RoverEventSystem extends IntervalEntityProcessingSystem {
 	// EventQueueSystem interval for processing Events
 	public static final float EVENT_PROCESSING_INTERVAL = 1.0f / 25.0f; // 25 Hz
 	
+	// Maximum catch up steps and time budget per frame for slow frames
+	private static final int EVENT_PROCESSING_MAX_STEPS = 8;
+	private static final float EVENT_PROCESSING_BUDGET = 0.008f; // 8 ms
+	
 	// Retrieve the WorldData object for obtaining TextureRegions for our sprites
 	private final WorldData worldData;
 	
-	// GroupManager which is used to retrieve the sprites to draw
-	private GroupManager groupManager = null;
+	// FogManager which is used to reveal the squares a rover has explored
+	private FogManager fogManager = null;
+	
+	// SpatialManager which needs to know when a rover moves
+	private SpatialManager spatialManager = null;
+	
+	// PathfindingManager providing the flow fields rovers seek along
+	private PathfindingManager pathfindingManager = null;
+	
+	// ExplorationManager which needs to know where rovers have scanned
+	private ExplorationManager explorationManager = null;
+	
+	// Level of detail scheduler deciding which rovers are processed each tick
+	private TickScheduler tickScheduler = null;
+
+	// Radius in map squares revealed by a scan
+	public static final int SCAN_RADIUS = 5;
+
+	// Squares revealed by a scan around the rover
+	private final RevealStencil scanStencil = RevealStencil.get(RevealStencil.Shape.DIAMOND, SCAN_RADIUS);
 
 	@SuppressWarnings("unchecked")
 	public RoverEventSystem(GameManager gameManager) {
@@ -39,138 +64,220 @@ public class RoverEventSystem extends IntervalEntityProcessingSystem {
 				SpriteComponent.class),
 			  EVENT_PROCESSING_INTERVAL);
 		this.worldData = gameManager.getData(WorldData.class);
+
+		// Run every elapsed interval so rovers move at the same speed regardless of frame rate
+		setFixedStep(true);
+		setMaxSteps(EVENT_PROCESSING_MAX_STEPS);
+		setBudget(EVENT_PROCESSING_BUDGET);
 	}
 	
 	@Override
 	protected void initialize() {
-		// Retrieve the GroupManager object now
-		groupManager = world.getManager(GroupManager.class);
+		// Retrieve the FogManager object now
+		fogManager = world.getManager(FogManager.class);
+		
+		// Retrieve the SpatialManager object now
+		spatialManager = world.getManager(SpatialManager.class);
+		
+		// Retrieve the PathfindingManager object now
+		pathfindingManager = world.getManager(PathfindingManager.class);
+		
+		// Retrieve the ExplorationManager object now
+		explorationManager = world.getManager(ExplorationManager.class);
+		
+		// Process rovers at a rate that matches how much they matter right now
+		tickScheduler = new TickScheduler(new RoverTickPolicy(world));
+	}
+
+	@Override
+	protected void begin() {
+		// Advance our level of detail scheduler once per processing step
+		tickScheduler.nextTick();
+	}
+
+	@Override
+	protected void removed(Entity theEntity) {
+		// Entity ids are reused so forget about this rover now
+		tickScheduler.remove(theEntity);
 	}
 
 	@Override
 	protected void process(Entity theEntity) {
-		RoverEventComponent roverEvent = roverEventMapper.get(theEntity);
-		LocationComponent location = locationMapper.get(theEntity);
-		SpriteComponent sprite = spriteMapper.get(theEntity);
+		// Wake idle or off screen rovers given new events since their last
+		// processing, whoever queued them (programs, planners, input)
+		if(roverEventMapper.get(theEntity).events.takeAdded()) {
+			tickScheduler.invalidate(theEntity);
+		}
+
+		// Skip rovers that our level of detail policy says aren't due yet
+		if(!tickScheduler.isDue(theEntity)) {
+			return;
+		}
+
+		// A rover that is due counts down its events and may move
+		RoverEventComponent roverEvent = roverEventMapper.getForWrite(theEntity);
+		LocationComponent location = locationMapper.getForWrite(theEntity);
+		SpriteComponent sprite = spriteMapper.getForWrite(theEntity);
 
 		// Are we missing our TextureRegion? then retrieve it now
 		if(sprite.textureRegion == null) {
 			ChangeSprite(sprite, roverEvent.direction);
 		}
 		
-		// Subtract from nextEvent counter if currently enabled
-		if(roverEvent.nextEvent > 0) {
-			// TODO: Subtract/Add to rover's battery strength
-			roverEvent.nextEvent--;
-			
-			if(roverEvent.scanInProgress) {
-				roverEvent.scanAngle -= roverEvent.scanAngleStep;
+		// Catch up on every tick that elapsed since this rover was last processed
+		int anTicks = tickScheduler.consume(theEntity);
+		while(anTicks > 0) {
+			// Subtract from nextEvent counter if currently enabled
+			if(roverEvent.nextEvent > 0) {
+				// Count down as many elapsed ticks as possible in one step
+				int anSteps = Math.min(roverEvent.nextEvent, anTicks);
+				
+				// TODO: Subtract/Add to rover's battery strength
+				roverEvent.nextEvent -= anSteps;
+				anTicks -= anSteps;
+				
+				if(roverEvent.scanInProgress) {
+					roverEvent.scanAngle -= roverEvent.scanAngleStep * anSteps;
+				}
 			}
-		}
-		// See if we have other events to process
-		else {
-			// Did we have a scan in progress? then reveal the squares that were scanned
-			if(roverEvent.scanInProgress) {
-				// Remove the mask at the newly scanned location
-				for(int z = 0; z<=5; z++) {
-					for(float x = location.getMap().x-(5-z); x <= location.getMap().x+(5-z); x++) {
-						for(float y = location.getMap().y-z; y <= location.getMap().y+z; y++) {
-							RemoveMask(theEntity, x, y);
-						}
-					}
+			// See if we have other events to process
+			else {
+				anTicks--;
+				processNextEvent(theEntity, roverEvent, location, sprite);
+				
+				// Nothing left to do? then the remaining ticks can be skipped
+				if(roverEvent.nextEvent <= 0 && roverEvent.events.size() == 0 && !roverEvent.scanInProgress) {
+					break;
 				}
+			}
+		}
 
-				// Clear our scan in progress flag
-				roverEvent.scanInProgress = false;
+		// Events we queued ourselves while processing don't need a wake up
+		roverEvent.events.takeAdded();
+	}
+
+	private void processNextEvent(Entity theEntity, RoverEventComponent roverEvent,
+			LocationComponent location, SpriteComponent sprite) {
+		// Did we have a scan in progress? then reveal the squares that were scanned
+		if(roverEvent.scanInProgress) {
+			// Reveal the fog at the newly scanned locations
+			fogManager.revealRegion(theEntity, scanStencil, location);
+			if(explorationManager != null) {
+				explorationManager.scanned(theEntity, location);
 			}
-			
-			// Do we have events to process? then grab the first event now
-			if(roverEvent.events.size > 0) {
-				// Retrieve and remove the next event at the head of the queue
-				RoverEvent anEvent = roverEvent.events.removeIndex(0);
-	
-				switch(anEvent.id) {
-				case RoverEvent.EVENT_WAIT:
-					// TODO: Add to rover's battery strength due to waiting
-					
-					// Wait for the specified event units in time
-					roverEvent.nextEvent = anEvent.target;
-					break;
-				case RoverEvent.EVENT_LOOK:
-					// TODO: Subtract from rover's battery strength for this look
-					
-					// Indicate a scan should be displayed
-					roverEvent.scanInProgress = true;
-					
-					// Reset our scan angle
-					roverEvent.scanAngle = MathUtils.PI2;
-					
-					// Reset our scan angle step
-					roverEvent.scanAngleStep = MathUtils.PI2 / (float)anEvent.target;
-					
-					// Wait for the specified event units in time
-					roverEvent.nextEvent = anEvent.target;
-					break;
-				case RoverEvent.EVENT_ROTATE:
-					// TODO: Subtract from rover's battery strength for this rotation
+
+			// TODO: Add to exploration score for each square revealed
+
+			// Clear our scan in progress flag
+			roverEvent.scanInProgress = false;
+		}
+		
+		// Do we have events to process? then grab the first event now
+		if(roverEvent.events.size() > 0) {
+			// Retrieve and remove the next event at the head of the queue
+			int anEvent = roverEvent.events.removeFirst();
+			int anTarget = RoverEvent.getTarget(anEvent);
+
+			switch(RoverEvent.getId(anEvent)) {
+			case RoverEvent.EVENT_WAIT:
+				// TODO: Add to rover's battery strength due to waiting
+				
+				// Wait for the specified event units in time
+				roverEvent.nextEvent = anTarget;
+				break;
+			case RoverEvent.EVENT_LOOK:
+				// TODO: Subtract from rover's battery strength for this look
+				
+				// Indicate a scan should be displayed
+				roverEvent.scanInProgress = true;
+				
+				// Reset our scan angle
+				roverEvent.scanAngle = MathUtils.PI2;
+				
+				// Reset our scan angle step
+				roverEvent.scanAngleStep = MathUtils.PI2 / (float)anTarget;
+				
+				// Wait for the specified event units in time
+				roverEvent.nextEvent = anTarget;
+				break;
+			case RoverEvent.EVENT_ROTATE:
+				// TODO: Subtract from rover's battery strength for this rotation
+				
+				// Change the rover sprite to be shown
+				ChangeSprite(sprite, anTarget);
+
+				// Update the current direction of the rover
+				roverEvent.direction = anTarget;
+
+				// Specify when to perform our next event
+				roverEvent.nextEvent = 2;
+				break;
+			case RoverEvent.EVENT_MOVE:
+				// Are we facing the right way? if not rotate our direction first
+				if(anTarget != roverEvent.direction) {
+					// Re-add our move event to process later
+					roverEvent.events.addFirstPacked(anEvent);
+
+					// Add rotation events
+					roverEvent.events.addFirst(RoverEvent.EVENT_ROTATE,
+							GetNextRotate(roverEvent.direction, anTarget));
+				} else {
+					// TODO: Subtract from rover's battery strength for this move
 					
 					// Change the rover sprite to be shown
-					ChangeSprite(sprite, anEvent.target);
-	
-					// Update the current direction of the rover
-					roverEvent.direction = anEvent.target;
-	
-					// Specify when to perform our next event
-					roverEvent.nextEvent = 2;
-					break;
-				case RoverEvent.EVENT_MOVE:
-					// Are we facing the right way? if not rotate our direction first
-					if(anEvent.target != roverEvent.direction) {
-						// Re-add our move event to process later
-						roverEvent.events.insert(0, anEvent);
-	
-						// Add rotation events
-						roverEvent.events.insert(0, roverEvent.new RoverEvent(RoverEvent.EVENT_ROTATE,
-								GetNextRotate(roverEvent.direction, anEvent.target)));
-					} else {
-						// TODO: Subtract from rover's battery strength for this move
-						
-						// Change the rover sprite to be shown
-						ChangeSprite(sprite, anEvent.target);
-						
-						// Assign when the next event can occur
-						roverEvent.nextEvent = 5;
+					ChangeSprite(sprite, anTarget);
 					
-						// Add to our location according to target direction
-						ChangeLocation(location, anEvent.target);
+					// Assign when the next event can occur
+					roverEvent.nextEvent = 5;
+				
+					// Add to our location according to target direction
+					ChangeLocation(location, anTarget);
+					spatialManager.moved(theEntity);
 
-						// Remove the mask at the new location
-						RemoveMask(theEntity, location.getMap().x, location.getMap().y);
-					}
-					break;
-				case RoverEvent.EVENT_DROP:
-					// TODO: Subtract from rover's battery strength for this drop
-					
-				case RoverEvent.EVENT_DELIVER:
-					// TODO: Subtract from rover's battery strength for this delivery
-					
-				case RoverEvent.EVENT_GRAB:
-					// TODO: Subtract from rover's battery strength for this pickup
-					
-				case RoverEvent.EVENT_SHOOT:
-					// TODO: Subtract from rover's battery strength for this shooting
-					
-				case RoverEvent.EVENT_TWEAK:
-					// TODO: Subtract from rover's battery strength for this tweaking
-					
-					System.err.println("Unhandled event id="+anEvent.id+" target="+anEvent.target);
-					break;
-				default:
-					System.err.println("Unknown event id="+anEvent.id);
-					break;
-				} // switch(anEvent.id)
-	
-			} // if(eventQueue.events.size > 0)
+					// Reveal the fog at the new location
+					fogManager.reveal(theEntity, location);
+
+					// TODO: Add to exploration score for each square revealed
+				}
+				break;
+			case RoverEvent.EVENT_SEEK:
+				// Take one step along the flow field towards the square
+				SeekSquare(roverEvent, location, anEvent);
+				break;
+			case RoverEvent.EVENT_DROP:
+				// TODO: Subtract from rover's battery strength for this drop
+				
+			case RoverEvent.EVENT_DELIVER:
+				// TODO: Subtract from rover's battery strength for this delivery
+				
+			case RoverEvent.EVENT_GRAB:
+				// TODO: Subtract from rover's battery strength for this pickup
+				
+			case RoverEvent.EVENT_SHOOT:
+				// TODO: Subtract from rover's battery strength for this shooting
+				
+			case RoverEvent.EVENT_TWEAK:
+				// TODO: Subtract from rover's battery strength for this tweaking
+				
+				System.err.println("Unhandled event id="+RoverEvent.getId(anEvent)+" target="+anTarget);
+				break;
+			default:
+				System.err.println("Unknown event id="+RoverEvent.getId(anEvent));
+				break;
+			} // switch(RoverEvent.getId(anEvent))
+
+		} // if(eventQueue.events.size > 0)
+	}
+
+	// Queue the next move towards the square of a seek event, keeping the seek
+	// event queued behind it until the square is reached or can't be reached
+	private void SeekSquare(RoverEventComponent roverEvent, LocationComponent location, int theEvent) {
+		int anTarget = RoverEvent.getTarget(theEvent);
+		int anDirection = pathfindingManager.getFlowDirection(location,
+				RoverEvent.getSquareX(anTarget), RoverEvent.getSquareY(anTarget));
+		if(anDirection >= 0) {
+			roverEvent.events.addFirstPacked(theEvent);
+			roverEvent.events.addFirst(RoverEvent.EVENT_MOVE, anDirection);
 		}
 	}
 
@@ -251,33 +358,4 @@ public class RoverEventSystem extends IntervalEntityProcessingSystem {
 			break;
 		}
 	}
-	
-	// Remove the mask at the location specified if it exists
-	private void RemoveMask(Entity theEntity, float x, float y) {
-		// Retrieve the location component for this entity
-		LocationComponent location = locationMapper.get(theEntity);
-
-		// Retrieve the masks for theEntity here
-		ImmutableBag<Entity> masks = groupManager.getEntities(
-				EntityFactory.MASK_GROUP+
-				location.getContextTag()+
-				theEntity.getUuid());
-
-		// Clear the mask for the location we are about to move to
-		for(int i = 0, s = masks.size(); s > i; i++) {
-			// Retrieve the Entity by index
-			Entity anMaskEntity = masks.get(i);
-			
-			// Retrieve the position and sprite components for this sprite
-			LocationComponent locationMask = locationMapper.get(anMaskEntity);
-			
-			if((int)locationMask.getMap().x == (int)x &&
-			   (int)locationMask.getMap().y == (int)y) {
-				// Remove this mask from the world
-				anMaskEntity.deleteFromWorld();
-
-				// TODO: Add to exploration score for each mask removed
-			}
-		}
-	}
 }
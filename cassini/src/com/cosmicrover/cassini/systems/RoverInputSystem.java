@@ -9,14 +9,15 @@ import com.artemis.systems.EntityProcessingSystem;
 import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.Input;
 import com.badlogic.gdx.InputProcessor;
-import com.badlogic.gdx.math.Vector2;
 import com.badlogic.gdx.math.Vector3;
+import com.cosmicrover.cassini.Route;
 import com.cosmicrover.cassini.components.CameraComponent;
 import com.cosmicrover.cassini.components.LocationComponent;
 import com.cosmicrover.cassini.components.RoverEventComponent;
 import com.cosmicrover.cassini.components.RoverEventComponent.RoverEvent;
 import com.cosmicrover.cassini.components.RoverInputComponent;
 import com.cosmicrover.cassini.components.ViewportComponent;
+import com.cosmicrover.cassini.managers.PathfindingManager;
 
 public class RoverInputSystem extends EntityProcessingSystem implements InputProcessor {
 	@Mapper ComponentMapper<CameraComponent> cameraMapper;
@@ -46,6 +47,12 @@ public class RoverInputSystem extends EntityProcessingSystem implements InputPro
 	// Last move position while not in newDown event
 	public final Vector3 lastMovePos;
 	
+	// PathfindingManager used to find a route to a tapped square
+	private PathfindingManager pathfindingManager = null;
+	
+	// Route found to the last tapped square
+	private final Route tapRoute;
+	
 	@SuppressWarnings("unchecked")
 
 	public RoverInputSystem() {
@@ -56,8 +63,15 @@ public class RoverInputSystem extends EntityProcessingSystem implements InputPro
     			RoverInputComponent.class,
     			ViewportComponent.class));
     	lastMovePos = new Vector3();
+    	tapRoute = new Route();
     }
     
+	@Override
+	protected void initialize() {
+		// Retrieve the PathfindingManager object now
+		pathfindingManager = world.getManager(PathfindingManager.class);
+	}
+    
 	@Override
 	protected void process(Entity theEntity) {
 		RoverInputComponent roverInput = roverInputMapper.get(theEntity);
@@ -126,7 +140,7 @@ public class RoverInputSystem extends EntityProcessingSystem implements InputPro
 		// Center key will center the camera on the camera input position
 		if(true == roverInput.keyCenter) {
 			// No down event in progress? then create new down event (that we own)
-			if(false == roverInput.newDown && false == roverInput.newKeyDown && roverEvent.events.size == 0) {
+			if(false == roverInput.newDown && false == roverInput.newKeyDown && roverEvent.events.size() == 0) {
 				// Create a down event using the input players position to start with
 				roverInput.lastDownPos.set(location.getLevel().x, location.getLevel().y, 0);
 				camera.getWorldCamera().project(roverInput.lastDownPos, viewport.x, viewport.y, viewport.width, viewport.height);
@@ -140,13 +154,13 @@ public class RoverInputSystem extends EntityProcessingSystem implements InputPro
 			else if(true == roverInput.newDown && true == roverInput.newKeyDown) {
 				// Only one or no movement path coordinates were added? then
 				// treat this like a tap event on our input position
-				if(roverEvent.movePath.size <= 1) {
+				if(roverEvent.movePath.size() <= 1) {
 					// Set our input players position as the up position
 					roverInput.lastUpPos.set(location.getLevel().x, location.getLevel().y, 0);
 				}
 				// Otherwise use the last movement path coordinate as the up position
 				else {
-					roverInput.lastUpPos.set(roverEvent.movePath.peek().x, roverEvent.movePath.peek().y, 0);
+					roverInput.lastUpPos.set(roverEvent.movePath.peekX(), roverEvent.movePath.peekY(), 0);
 				}
 				camera.getWorldCamera().project(roverInput.lastUpPos, viewport.x, viewport.y, viewport.width, viewport.height);
 				roverInput.newUp = true;
@@ -162,13 +176,13 @@ public class RoverInputSystem extends EntityProcessingSystem implements InputPro
 		   (true == roverInput.newKeyDown)) {
 			// First time for the current key down event? then use the input players
 			// position as the initial drag position
-			if(roverEvent.movePath.size == 0) {
+			if(roverEvent.movePath.size() == 0) {
 				roverInput.lastDragPos.set(location.getLevel().x, location.getLevel().y, 0);
 				roverInput.keyRepeatForce = true;
 			}
 			// Otherwise use the last movement path coordinate as the drag position 
 			else if (roverInput.keyRepeat) {
-				roverInput.lastDragPos.set(location.getMapAsLevel(roverEvent.movePath.peek()));
+				location.getMapAsLevel(roverEvent.movePath.peekX(), roverEvent.movePath.peekY(), roverInput.lastDragPos);
 				if(true == roverInput.keyLeft) {
 					roverInput.lastDragPos.add(-location.getLevelGrid().x+location.getLevelOffsetCenter().x,
 							location.getLevelOffsetCenter().y,0);
@@ -247,7 +261,7 @@ public class RoverInputSystem extends EntityProcessingSystem implements InputPro
 		// into world coordinates to decide what to do about the tap event
 		CameraComponent camera = cameraMapper.get(theEntity);
 		LocationComponent location = locationMapper.get(theEntity);
-		RoverEventComponent roverEvent = roverEventMapper.get(theEntity);
+		RoverEventComponent roverEvent = roverEventMapper.getForWrite(theEntity);
 		RoverInputComponent roverInput = roverInputMapper.get(theEntity);
 		ViewportComponent viewport = viewportMapper.get(theEntity);
 
@@ -260,53 +274,31 @@ public class RoverInputSystem extends EntityProcessingSystem implements InputPro
 		Gdx.app.debug("RoverInputSystem:handleTap",
 				"Tap up at ("+roverInput.lastUpPos.x+","+roverInput.lastUpPos.y+")");
 
-		// Grab the current position in map units
-		Vector2 curPosition = location.getMap();
-		
-		// Convert world coordinates into map units (with limits)
-		Vector2 newPosition = location.getLevelAsMap(roverInput.lastUpPos);
+		// Convert world coordinates into a map square (with limits)
+		int newSquare = location.getLevelAsMapKey(roverInput.lastUpPos.x, roverInput.lastUpPos.y);
 		
 		// Add scan/look event to our rover on tap
-		if(newPosition.dst(curPosition) < 0.1f) {
+		if(newSquare == location.getMapKey()) {
 			// TODO: Replace with item action menu instead
 			if(!roverEvent.scanInProgress) {
-				roverEvent.events.add(roverEvent.new RoverEvent(RoverEvent.EVENT_LOOK, 360));
+				roverEvent.events.addLast(RoverEvent.EVENT_LOOK, 360);
 			}
 		}
+		// Tapped another square while idle? then drive there along the shortest route
+		else if(roverEvent.events.size() == 0 &&
+				pathfindingManager.findPath(location, Route.unpackX(newSquare), Route.unpackY(newSquare), tapRoute)) {
+			tapRoute.queueMoves(roverEvent.events);
+		}
 	}
 
 	private void handleUp(Entity theEntity) {
 		// Retrieve the position component for our input player
-		RoverEventComponent roverEvent = roverEventMapper.get(theEntity);
+		RoverEventComponent roverEvent = roverEventMapper.getForWrite(theEntity);
 		
 		// Only refocus the camera if this wasn't a drag event
-		if(roverEvent.movePath.size > 1) {
-			// Create events for each movement path coordinate
-			Vector2 anPrevious = null;
-			for(Vector2 anVector : roverEvent.movePath) {
-				if(anPrevious != null) {
-					if(anPrevious.x == anVector.x && anPrevious.y < anVector.y) {
-						roverEvent.events.add(roverEvent.new RoverEvent(RoverEvent.EVENT_MOVE, RoverEvent.DIR_N));
-					} else if(anPrevious.x == anVector.x && anPrevious.y > anVector.y) {
-						roverEvent.events.add(roverEvent.new RoverEvent(RoverEvent.EVENT_MOVE, RoverEvent.DIR_S));
-					} else if(anPrevious.y == anVector.y && anPrevious.x < anVector.x) {
-						roverEvent.events.add(roverEvent.new RoverEvent(RoverEvent.EVENT_MOVE, RoverEvent.DIR_E));
-					} else if(anPrevious.y == anVector.y && anPrevious.x > anVector.x) {
-						roverEvent.events.add(roverEvent.new RoverEvent(RoverEvent.EVENT_MOVE, RoverEvent.DIR_W));
-					} else if(anPrevious.x > anVector.x && anPrevious.y > anVector.y) {
-						roverEvent.events.add(roverEvent.new RoverEvent(RoverEvent.EVENT_MOVE, RoverEvent.DIR_SW));
-					} else if(anPrevious.x < anVector.x && anPrevious.y < anVector.y) {
-						roverEvent.events.add(roverEvent.new RoverEvent(RoverEvent.EVENT_MOVE, RoverEvent.DIR_NE));
-					} else if(anPrevious.x > anVector.x && anPrevious.y < anVector.y) {
-						roverEvent.events.add(roverEvent.new RoverEvent(RoverEvent.EVENT_MOVE, RoverEvent.DIR_NW));
-					} else if(anPrevious.x < anVector.x && anPrevious.y > anVector.y) {
-						roverEvent.events.add(roverEvent.new RoverEvent(RoverEvent.EVENT_MOVE, RoverEvent.DIR_SE));
-					}
-				}
-
-				// Keep track of the previous vector for the next loop iteration
-				anPrevious = anVector;
-			} // for(Vector2 anVector : movePath)
+		if(roverEvent.movePath.size() > 1) {
+			// Create events for each step between movement path coordinates
+			roverEvent.movePath.queueMoves(roverEvent.events);
 		} // if(movePath.size > 1)
 
 		// Clear our movement path grid coordinates
@@ -317,21 +309,21 @@ public class RoverInputSystem extends EntityProcessingSystem implements InputPro
 		// Use the camera, position, and world limits components to pan and add to the movement path
 		CameraComponent camera = cameraMapper.get(theEntity);
 		LocationComponent location = locationMapper.get(theEntity);
-		RoverEventComponent roverEvent = roverEventMapper.get(theEntity);
+		RoverEventComponent roverEvent = roverEventMapper.getForWrite(theEntity);
 		RoverInputComponent roverInput = roverInputMapper.get(theEntity);
 
-		// Grab the current position in map units
-		Vector2 curPosition = location.getMap();
-		
-		// Convert world coordinates into map units (with limits)
-		Vector2 newPosition = location.getLevelAsMap(roverInput.lastDragPos);
+		// Convert world coordinates into a map square (with limits)
+		int newSquare = location.getLevelAsMapKey(roverInput.lastDragPos.x, roverInput.lastDragPos.y);
+		boolean onRover = newSquare == location.getMapKey();
+		int newX = Route.unpackX(newSquare);
+		int newY = Route.unpackY(newSquare);
 		
 		// Are we panning (touch drag position doesn't start on input player position or
 		// there is no down event since we are using the keyboard/DPAD to move around or
 		// the input player already has events in its queue)? then use the drag delta
 		// values to move the camera around
-		if ((roverEvent.movePath.size == 0 && (newPosition.dst(curPosition) > 0.1f ||
-			false == roverInput.newDown || roverEvent.events.size > 0))) {
+		if ((roverEvent.movePath.size() == 0 && (!onRover ||
+			false == roverInput.newDown || roverEvent.events.size() > 0))) {
 			// The x position is purposely backwards from the y direction
 			camera.getWorldCamera().translate(roverInput.lastDragDelta);
 		}
@@ -339,11 +331,10 @@ public class RoverInputSystem extends EntityProcessingSystem implements InputPro
 		// new position is within 1 orthogonal square away from last movement
 		// coordinate and not the same as the last movement coordinate)? then
 		// add this new position to our movement path list
-		else if( (roverEvent.movePath.size == 0 && newPosition.dst(curPosition) < 0.1f) ||
-		         (roverEvent.movePath.size > 0 && newPosition.dst(roverEvent.movePath.peek()) < 1.42f &&
-		          !newPosition.equals(roverEvent.movePath.peek())) ) {
+		else if( (roverEvent.movePath.size() == 0 && onRover) ||
+		         (roverEvent.movePath.size() > 0 && roverEvent.movePath.isNextTo(newX, newY)) ) {
 			// Add the new position and pan the camera if added with the keyboard
-			roverEvent.movePath.add(newPosition);
+			roverEvent.movePath.add(newX, newY);
 			if(roverInput.newKeyDown) {
 				camera.getWorldCamera().translate(roverInput.lastDragDelta);
 			}
@@ -351,7 +342,6 @@ public class RoverInputSystem extends EntityProcessingSystem implements InputPro
 
 		// Update our camera with the changes above (if any)
 		camera.getWorldCamera().update();
-		camera.getWorldCamera().apply(Gdx.gl10);
 	}
 	
 	private void handleZoom(Entity theEntity) {
@@ -373,7 +363,6 @@ public class RoverInputSystem extends EntityProcessingSystem implements InputPro
 			camera.getWorldCamera().zoom = 1.0f;
 		}
 		camera.getWorldCamera().update();
-		camera.getWorldCamera().apply(Gdx.gl10);
 	}
 	
 	/////////////////////////////////////////////////////////////////////////
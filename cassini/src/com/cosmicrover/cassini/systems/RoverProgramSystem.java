@@ -0,0 +1,239 @@
+package com.cosmicrover.cassini.systems;
+
+import com.artemis.Aspect;
+import com.artemis.ComponentMapper;
+import com.artemis.Entity;
+import com.artemis.annotations.Mapper;
+import com.artemis.systems.IntervalEntityProcessingSystem;
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.utils.IntArray;
+import com.cosmicrover.cassini.NavigationGrid;
+import com.cosmicrover.cassini.RoverProgram;
+import com.cosmicrover.cassini.components.LocationComponent;
+import com.cosmicrover.cassini.components.RoverEventComponent;
+import com.cosmicrover.cassini.components.RoverEventComponent.RoverEvent;
+import com.cosmicrover.cassini.components.RoverProgramComponent;
+import com.cosmicrover.cassini.managers.ExplorationManager;
+import com.cosmicrover.cassini.managers.PathfindingManager;
+import com.cosmicrover.cassini.managers.SpatialManager;
+
+/**
+ * Runs the RoverProgram of every rover with a RoverProgramComponent. A rover
+ * only runs its program while idle (nothing queued or in progress), and runs
+ * at most INSTRUCTION_BUDGET instructions per tick, so hundreds of rovers
+ * cost a bounded amount of time however their programs loop. Instructions
+ * giving the rover something to do queue RoverEvents for the RoverEventSystem
+ * and end the rover's turn.
+ */
+public class RoverProgramSystem extends IntervalEntityProcessingSystem {
+	@Mapper ComponentMapper<RoverProgramComponent> roverProgramMapper;
+	@Mapper ComponentMapper<RoverEventComponent> roverEventMapper;
+	@Mapper ComponentMapper<LocationComponent> locationMapper;
+
+	// Most instructions a rover runs per tick
+	public static final int INSTRUCTION_BUDGET = 64;
+
+	// Maximum catch up steps per frame for slow frames
+	private static final int PROGRAM_PROCESSING_MAX_STEPS = 4;
+
+	// SpatialManager used to look for items on a square
+	private SpatialManager spatialManager = null;
+
+	// PathfindingManager used to check whether a square is open
+	private PathfindingManager pathfindingManager = null;
+
+	// ExplorationManager choosing where EXPLORE sends a rover
+	private ExplorationManager explorationManager = null;
+
+	// Entity ids found on a square by the ITEM instruction
+	private final IntArray foundIds;
+
+	@SuppressWarnings("unchecked")
+	public RoverProgramSystem() {
+		super(Aspect.getAspectForAll(
+				RoverProgramComponent.class,
+				RoverEventComponent.class,
+				LocationComponent.class),
+			  RoverEventSystem.EVENT_PROCESSING_INTERVAL);
+		foundIds = new IntArray();
+
+		// Run at the same rate as the events our programs queue
+		setFixedStep(true);
+		setMaxSteps(PROGRAM_PROCESSING_MAX_STEPS);
+	}
+
+	@Override
+	protected void initialize() {
+		// Retrieve the SpatialManager object now
+		spatialManager = world.getManager(SpatialManager.class);
+
+		// Retrieve the PathfindingManager object now
+		pathfindingManager = world.getManager(PathfindingManager.class);
+
+		// Retrieve the ExplorationManager object now
+		explorationManager = world.getManager(ExplorationManager.class);
+	}
+
+	@Override
+	protected void process(Entity theEntity) {
+		RoverProgramComponent program = roverProgramMapper.get(theEntity);
+		RoverEventComponent roverEvent = roverEventMapper.get(theEntity);
+
+		// Still busy with what the program asked for last time? then wait
+		if(program.halted || roverEvent.events.size() > 0 ||
+		   roverEvent.nextEvent > 0 || roverEvent.scanInProgress) {
+			return;
+		}
+
+		// Running changes the program and may queue events, the
+		// RoverEventSystem wakes the rover for any events queued
+		roverProgramMapper.markDirty(theEntity);
+		roverEventMapper.markDirty(theEntity);
+		run(theEntity, program, roverEvent);
+	}
+
+	/**
+	 * Run theEntity's program until it yields, gives the rover something to
+	 * do, halts, or runs out of budget.
+	 * @return true if events were queued
+	 */
+	private boolean run(Entity theEntity, RoverProgramComponent program, RoverEventComponent roverEvent) {
+		final int[] code = program.code;
+		final int[] r = program.registers;
+		int pc = program.pc;
+		boolean queued = false;
+
+		for(int anBudget = INSTRUCTION_BUDGET; anBudget > 0 && !queued; anBudget--) {
+			if(pc < 0 || pc >= code.length) {
+				program.halted = true;
+				break;
+			}
+			int anInstruction = code[pc++];
+			int a = RoverProgram.getA(anInstruction);
+			int b = RoverProgram.getB(anInstruction);
+			int anImmediate = RoverProgram.getImmediate(anInstruction);
+
+			switch(RoverProgram.getOpcode(anInstruction)) {
+			case RoverProgram.OP_NOP:
+				break;
+			case RoverProgram.OP_HALT:
+				program.halted = true;
+				anBudget = 0;
+				break;
+			case RoverProgram.OP_YIELD:
+				anBudget = 0;
+				break;
+			case RoverProgram.OP_SET:
+				r[a] = anImmediate;
+				break;
+			case RoverProgram.OP_MOV:
+				r[a] = r[b];
+				break;
+			case RoverProgram.OP_ADD:
+				r[a] += r[b];
+				break;
+			case RoverProgram.OP_SUB:
+				r[a] -= r[b];
+				break;
+			case RoverProgram.OP_MUL:
+				r[a] *= r[b];
+				break;
+			case RoverProgram.OP_ADDI:
+				r[a] += anImmediate;
+				break;
+			case RoverProgram.OP_RAND:
+				r[a] = anImmediate > 0 ? MathUtils.random(anImmediate - 1) : 0;
+				break;
+			case RoverProgram.OP_JMP:
+				pc = anImmediate;
+				break;
+			case RoverProgram.OP_JZ:
+				if(r[a] == 0) {
+					pc = anImmediate;
+				}
+				break;
+			case RoverProgram.OP_JNZ:
+				if(r[a] != 0) {
+					pc = anImmediate;
+				}
+				break;
+			case RoverProgram.OP_JEQ:
+				if(r[a] == r[b]) {
+					pc = anImmediate;
+				}
+				break;
+			case RoverProgram.OP_JLT:
+				if(r[a] < r[b]) {
+					pc = anImmediate;
+				}
+				break;
+			case RoverProgram.OP_POS:
+				LocationComponent location = locationMapper.get(theEntity);
+				r[a] = location.getMapX();
+				r[(a + 1) & 0xf] = location.getMapY();
+				break;
+			case RoverProgram.OP_DIR:
+				r[a] = roverEvent.direction;
+				break;
+			case RoverProgram.OP_ITEM:
+				r[a] = countItems(theEntity, r[b], r[(b + 1) & 0xf]);
+				break;
+			case RoverProgram.OP_OPEN:
+				r[a] = isOpen(theEntity, r[b], r[(b + 1) & 0xf]) ? 1 : 0;
+				break;
+			case RoverProgram.OP_MOVE:
+				queued = queue(roverEvent, RoverEvent.EVENT_MOVE, r[a] & 7);
+				break;
+			case RoverProgram.OP_TURN:
+				queued = queue(roverEvent, RoverEvent.EVENT_ROTATE, r[a] & 7);
+				break;
+			case RoverProgram.OP_LOOK:
+				queued = queue(roverEvent, RoverEvent.EVENT_LOOK, Math.max(1, anImmediate));
+				break;
+			case RoverProgram.OP_WAIT:
+				queued = queue(roverEvent, RoverEvent.EVENT_WAIT, Math.max(1, anImmediate));
+				break;
+			case RoverProgram.OP_SEEK:
+				queued = queue(roverEvent, RoverEvent.EVENT_SEEK, RoverEvent.packSquare(r[a], r[(a + 1) & 0xf]));
+				break;
+			case RoverProgram.OP_EXPLORE:
+				queued = explorationManager.explore(theEntity);
+				r[a] = queued ? 1 : 0;
+				break;
+			default:
+				Gdx.app.error("RoverProgramSystem:run",
+						"Unknown rover program opcode="+RoverProgram.getOpcode(anInstruction)+" pc="+(pc-1));
+				program.halted = true;
+				anBudget = 0;
+				break;
+			} // switch(opcode)
+		}
+
+		program.pc = pc;
+		return queued;
+	}
+
+	private boolean queue(RoverEventComponent roverEvent, int theId, int theTarget) {
+		roverEvent.events.addLast(theId, theTarget);
+		return true;
+	}
+
+	// Number of entities other than theEntity on a square of theEntity's map
+	private int countItems(Entity theEntity, int x, int y) {
+		LocationComponent location = locationMapper.get(theEntity);
+		foundIds.clear();
+		spatialManager.getAt(location.getContextTag(), x, y, foundIds);
+		return foundIds.contains(theEntity.getId()) ? foundIds.size - 1 : foundIds.size;
+	}
+
+	// Whether a rover can drive onto a square of theEntity's map
+	private boolean isOpen(Entity theEntity, int x, int y) {
+		LocationComponent location = locationMapper.get(theEntity);
+		NavigationGrid anGrid = pathfindingManager.getGrid(location.getContextTag());
+		if(anGrid == null) {
+			return location.getMapBounds().contains(x, y);
+		}
+		return anGrid.isWalkable(x, y);
+	}
+}
@@ -1,41 +1,25 @@
 package com.cosmicrover.cassini.systems;
 
-import com.artemis.Aspect;
-import com.artemis.ComponentMapper;
-import com.artemis.Entity;
-import com.artemis.annotations.Mapper;
-import com.artemis.systems.EntityProcessingSystem;
-import com.artemis.utils.ImmutableBag;
+import com.artemis.systems.VoidEntitySystem;
 import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.graphics.g2d.SpriteBatch;
 import com.badlogic.gdx.graphics.glutils.ShapeRenderer;
 import com.badlogic.gdx.graphics.glutils.ShapeRenderer.ShapeType;
 import com.badlogic.gdx.maps.tiled.renderers.OrthogonalTiledMapRenderer;
-import com.badlogic.gdx.math.MathUtils;
-import com.badlogic.gdx.math.Vector2;
-import com.cosmicrover.cassini.EntityFactory;
-import com.cosmicrover.cassini.components.CameraComponent;
-import com.cosmicrover.cassini.components.LocationComponent;
-import com.cosmicrover.cassini.components.MapComponent;
-import com.cosmicrover.cassini.components.PropertyComponent;
-import com.cosmicrover.cassini.components.RoverEventComponent;
-import com.cosmicrover.cassini.components.SpriteComponent;
-import com.cosmicrover.cassini.components.ViewportComponent;
-import com.cosmicrover.cassini.managers.GroupManager;
+import com.badlogic.gdx.utils.FloatArray;
+import com.badlogic.gdx.utils.IntMap;
+import com.cosmicrover.cassini.FogOverlay;
+import com.cosmicrover.cassini.PathOverlay;
+import com.cosmicrover.cassini.RadarOverlay;
+import com.cosmicrover.cassini.RenderSnapshot;
 import com.cosmicrover.core.GameManager;
 
-public class RoverRenderSystem extends EntityProcessingSystem {
-	@Mapper ComponentMapper<CameraComponent> cameraMapper;
-	@Mapper	ComponentMapper<LocationComponent> locationMapper;
-	@Mapper ComponentMapper<SpriteComponent> spriteMapper;
-	@Mapper ComponentMapper<MapComponent> mapMapper;
-	@Mapper ComponentMapper<PropertyComponent> propertyMapper;
-	@Mapper ComponentMapper<RoverEventComponent> roverEventMapper;
-    @Mapper ComponentMapper<ViewportComponent> viewportMapper;
-
-	// Radius to use for movement path
-	private static final int PATH_RADIUS = 2;
-
+/**
+ * Draws the map, sprites, masks, movement path and radar for every view in
+ * the RenderSnapshot set for this frame. Nothing is read from the world, so
+ * this can run while the simulation is busy on another thread.
+ */
+public class RoverRenderSystem extends VoidEntitySystem {
 	// GameManager class for retrieving various game wide resources
 	private final GameManager gameManager;
 	
@@ -45,240 +29,129 @@ public class RoverRenderSystem extends EntityProcessingSystem {
 	// SpriteBatch for drawing multiple sprites in the same draw call
 	private final SpriteBatch spriteBatch;
 
-	// GroupManager which is used to retrieve the sprites and masks to draw
-	private GroupManager groupManager = null;
+	// Snapshot to draw this frame, shared with the other render systems
+	private RenderSnapshot snapshot = null;
 
-	// Bag of sprites to be drawn
-	ImmutableBag<Entity> sprites = null;
+	// Retained fog of war meshes for each view by the id of the entity owning it
+	private final IntMap<FogOverlay> fogOverlays;
+
+	// Retained rover path geometry for each view by the id of the entity owning it
+	private final IntMap<PathOverlay> pathOverlays;
+
+	// Radar geometry shared by every view
+	private final RadarOverlay radarOverlay;
 
-	// Bag of masks to be drawn
-	ImmutableBag<Entity> masks = null;
-	
-    @SuppressWarnings("unchecked")
 	public RoverRenderSystem(GameManager gameManager) {
-		super(Aspect.getAspectForAll(
-				CameraComponent.class,
-				LocationComponent.class,
-				MapComponent.class,
-				RoverEventComponent.class,
-				ViewportComponent.class));
 		this.gameManager = gameManager;
 		this.spriteBatch = gameManager.getSpriteBatch();
 		this.shapeRenderer = gameManager.getShapeRenderer();
+		this.fogOverlays = new IntMap<FogOverlay>();
+		this.pathOverlays = new IntMap<PathOverlay>();
+		this.radarOverlay = new RadarOverlay();
     }
 
-	@Override
-	protected void initialize() {
-		// Retrieve the GroupManager object now
-		groupManager = world.getManager(GroupManager.class);
+	/**
+	 * Sets the snapshot drawn by the next call to process().
+	 * @param theSnapshot read from the RenderSnapshotSystem for this frame
+	 */
+	public void setSnapshot(RenderSnapshot theSnapshot) {
+		snapshot = theSnapshot;
 	}
-	
+
 	@Override
-	protected void begin() {
-		// Retrieve all the sprites and masks to be displayed here
-		sprites = groupManager.getEntities(EntityFactory.SPRITE_GROUP);
-		super.begin();
+	protected void processSystem() {
+		// Draw each view from the snapshot of this frame
+		for(int i = 0, s = snapshot.getViewCount(); s > i; i++) {
+			render(snapshot.getView(i));
+		}
 	}
 
-    @Override
-	protected void process(Entity theEntity) {
-		//System.out.println("RoverRenderSystem:entity("+theEntity.getId()+")");
-		
-		CameraComponent camera = cameraMapper.get(theEntity);
-		LocationComponent location = locationMapper.get(theEntity);
-		MapComponent map = mapMapper.get(theEntity);
-		RoverEventComponent roverEvent = roverEventMapper.get(theEntity);
-		ViewportComponent viewport = viewportMapper.get(theEntity);
-
+	private void render(RenderSnapshot.View theView) {
 		// Create our viewport first
-		Gdx.gl.glViewport(viewport.x, viewport.y, viewport.width, viewport.height);
+		Gdx.gl.glViewport(theView.viewportX, theView.viewportY, theView.viewportWidth, theView.viewportHeight);
 	
-		// Retrieve the mapRenderer from our renderer component above
-		OrthogonalTiledMapRenderer mapRenderer = gameManager.getMapRenderer(map.tiledMap);
+		// Retrieve the mapRenderer for the map shown in this view
+		OrthogonalTiledMapRenderer mapRenderer = gameManager.getMapRenderer(theView.tiledMap);
 
 		if(mapRenderer != null) {
 			// Render the background tiles
-			mapRenderer.setView(camera.getWorldCamera());
-			mapRenderer.render(map.mapBackgroundLayers);
+			mapRenderer.setView(theView.worldCamera);
+			mapRenderer.render(theView.mapBackgroundLayers);
 	
 			// Set our world camera for drawing our sprites on the map
-			spriteBatch.setProjectionMatrix(camera.getWorldCamera().combined);
+			spriteBatch.setProjectionMatrix(theView.worldCamera.combined);
 			spriteBatch.begin();
-			for(int i = 0, s = sprites.size(); s > i; i++) {
-				// Retrieve the Entity by index
-				Entity anEntity = sprites.get(i);
-
-				// Retrieve the location component
-				LocationComponent spriteLocation = locationMapper.get(anEntity);
-				
-				// Does our spriteLocation's map match this entities location map? then render it now
-				if(location.getMapName().equals(spriteLocation.getMapName())) {
-					// Retrieve the components for this sprite
-					SpriteComponent sprite = spriteMapper.get(anEntity);
-				
-					// Maybe the textureRegion comes from our map
-					if(sprite.textureRegion == null) {
-						PropertyComponent property = propertyMapper.getSafe(anEntity);
-						if(property != null) {
-							sprite.textureRegion = map.tiledMap.getTileSets().getTile(property.tileId).getTextureRegion();
-						} else {
-							Gdx.app.error("RoverRenderSystem:process", "Null texture region");
-							// Skip this sprite and move on
-							continue;
-						}
-					}
-					
-					// Skip this sprite if it doesn't match the map we are showing now
-					// Set the tint color for this sprite
-					spriteBatch.setColor(sprite.tint);
-					spriteBatch.draw(sprite.textureRegion, spriteLocation.getLevel().x, spriteLocation.getLevel().y);
-				}
+			// Only sprites on this map near the camera were captured for this view
+			FloatArray spriteData = theView.spriteData;
+			for(int i = 0, s = theView.getSpriteCount(); s > i; i++) {
+				int anOffset = i*RenderSnapshot.SPRITE_STRIDE;
+				// Set the tint color for this sprite
+				spriteBatch.setColor(spriteData.get(anOffset+2));
+				spriteBatch.draw(theView.spriteRegions.get(i),
+						spriteData.get(anOffset), spriteData.get(anOffset+1));
 			}
 			spriteBatch.end();
 			
 			// Render the foreground tiles
-			mapRenderer.setView(camera.getWorldCamera());
-			mapRenderer.render(map.mapForegroundLayers);
-			
-			shapeRenderer.setProjectionMatrix(camera.getWorldCamera().combined);
-			shapeRenderer.begin(ShapeType.Filled);
-			shapeRenderer.setColor(0, 0, 0, 1);
-			// Render the masks for this player
-			masks = groupManager.getEntities(
-					EntityFactory.MASK_GROUP+
-					location.getContextTag()+
-					theEntity.getUuid());
-			for(int i = 0, s = masks.size(); s > i; i++) {
-				// Retrieve the Entity by index
-				Entity anEntity = masks.get(i);
-				
-				// Retrieve the position and sprite components for this sprite
-				LocationComponent locationMask = locationMapper.get(anEntity);
-	
-				// Draw opaque black rectangle on top of this square
-				shapeRenderer.rect(locationMask.getLevel().x, locationMask.getLevel().y,
-						location.getLevelGrid().x, location.getLevelGrid().y);
-			}
+			mapRenderer.setView(theView.worldCamera);
+			mapRenderer.render(theView.mapForegroundLayers);
 			
-			// Draw horizontal, vertical, and connecting circles for rover path on top of any masks
-			shapeRenderer.setColor(0, 0, 1, 1);
-			Vector2 anPrevious = null;
-			for(Vector2 anVector : roverEvent.movePath) {
-				if(anPrevious != null) {
-					// Draw the previous vector as a dot
-					// Change in Y but same X? then draw horizontal bar
-					if(anVector.x == anPrevious.x && anVector.y != anPrevious.y) {
-						if(anVector.y < anPrevious.y) {
-							shapeRenderer.rect(
-									anVector.x*location.getLevelGrid().x+location.getLevelOffsetCenter().x-PATH_RADIUS,
-									anVector.y*location.getLevelGrid().y+location.getLevelOffsetCenter().y,
-									PATH_RADIUS*2, anVector.dst(anPrevious)*location.getLevelGrid().y);
-						} else {
-							shapeRenderer.rect(
-									anPrevious.x*location.getLevelGrid().x+location.getLevelOffsetCenter().x-PATH_RADIUS,
-									anPrevious.y*location.getLevelGrid().y+location.getLevelOffsetCenter().y,
-									PATH_RADIUS*2, anVector.dst(anPrevious)*location.getLevelGrid().y);
-						}
-					}
-					// Change in X but same Y? then draw vertical bar
-					else if(anVector.x != anPrevious.x && anVector.y == anPrevious.y) {
-						if(anVector.x < anPrevious.x) {
-							shapeRenderer.rect(
-									anVector.x*location.getLevelGrid().x+location.getLevelOffsetCenter().x,
-									anVector.y*location.getLevelGrid().y+location.getLevelOffsetCenter().y-PATH_RADIUS,
-									anVector.dst(anPrevious)*location.getLevelGrid().x, PATH_RADIUS*2);
-						} else {
-							shapeRenderer.rect(
-									anPrevious.x*location.getLevelGrid().x+location.getLevelOffsetCenter().x,
-									anPrevious.y*location.getLevelGrid().y+location.getLevelOffsetCenter().y-PATH_RADIUS,
-									anVector.dst(anPrevious)*location.getLevelGrid().x, PATH_RADIUS*2);
-						}
-					}
-					shapeRenderer.circle(anPrevious.x*location.getLevelGrid().x+location.getLevelOffsetCenter().x,
-							anPrevious.y*location.getLevelGrid().y+location.getLevelOffsetCenter().y, PATH_RADIUS, 10);
+			// Shortcuts to the location of this view
+			float gridX = theView.levelGrid.x;
+			float gridY = theView.levelGrid.y;
+			float offsetX = theView.levelOffsetCenter.x;
+			float offsetY = theView.levelOffsetCenter.y;
+			float centerX = theView.level.x+offsetX;
+			float centerY = theView.level.y+offsetY;
+
+			// Render the masks for this player, only changed chunks are rebuilt
+			if(theView.fog != null) {
+				FogOverlay anOverlay = fogOverlays.get(theView.entityId);
+				if(anOverlay == null) {
+					anOverlay = new FogOverlay();
+					fogOverlays.put(theView.entityId, anOverlay);
 				}
-	
-				// Always draw the current movement point last
-				shapeRenderer.circle(anVector.x*location.getLevelGrid().x+location.getLevelOffsetCenter().x,
-						anVector.y*location.getLevelGrid().y+location.getLevelOffsetCenter().y, PATH_RADIUS, 10);
-	
-				// Keep track of the previous vector for the next loop iteration
-				anPrevious = anVector;
+				anOverlay.update(theView.fog, gridX, gridY);
+				anOverlay.render(theView.worldCamera);
 			}
-			anPrevious = null;
-			shapeRenderer.end();
+
+			// Draw the rover path on top of any masks, only new points are built
+			PathOverlay anPath = pathOverlays.get(theView.entityId);
+			if(anPath == null) {
+				anPath = new PathOverlay();
+				pathOverlays.put(theView.entityId, anPath);
+			}
+			anPath.update(theView.movePath, gridX, gridY, offsetX, offsetY);
+			anPath.render(theView.worldCamera);
 	
 			// Render white border around the map limits
+			shapeRenderer.setProjectionMatrix(theView.worldCamera.combined);
 			shapeRenderer.begin(ShapeType.Line);
 			shapeRenderer.setColor(1, 1, 1, 1);
-			shapeRenderer.rect(location.getLevelBounds().x-1, location.getLevelBounds().y-1,
-					location.getLevelBounds().width+2, location.getLevelBounds().height+2);
-			
-			// Draw path diagonal lines
-			shapeRenderer.setColor(0, 0, 1, 1);
-			for(Vector2 anVector : roverEvent.movePath) {
-				if(anPrevious != null) {
-					// Change in X and Y? then draw diagonal bar
-					if(anVector.x != anPrevious.x && anVector.y != anPrevious.y) {
-						for(float i=-PATH_RADIUS-0.25f; i<=PATH_RADIUS+0.25f; i+=0.25f) {
-							shapeRenderer.line(anVector.x*location.getLevelGrid().x+location.getLevelOffsetCenter().x,
-									           anVector.y*location.getLevelGrid().x+location.getLevelOffsetCenter().y+i,
-									           anPrevious.x*location.getLevelGrid().x+location.getLevelOffsetCenter().x,
-									           anPrevious.y*location.getLevelGrid().x+location.getLevelOffsetCenter().y+i);
-						}
-					}
-				}
-				// Keep track of the previous vector for the next loop iteration
-				anPrevious = anVector;
-			}
-			anPrevious = null;
+			shapeRenderer.rect(theView.levelBounds.x-1, theView.levelBounds.y-1,
+					theView.levelBounds.width+2, theView.levelBounds.height+2);
+			shapeRenderer.end();
 	
-			// Draw radar
-			if(roverEvent.scanInProgress) {
-				// Draw rotating green to black fading lines
-				for(float green = 0.0f; green <= MathUtils.PI2; green += 0.005f) {
-					shapeRenderer.setColor(0,green/(2*MathUtils.PI2),0,1f);
-					shapeRenderer.line(location.getLevel().x+location.getLevelOffsetCenter().x,
-							location.getLevel().y+location.getLevelOffsetCenter().y,
-							location.getLevel().x+location.getLevelOffsetCenter().x +
-								32*5*MathUtils.cos(green+roverEvent.scanAngle),
-							location.getLevel().y+location.getLevelOffsetCenter().y +
-								32*5*MathUtils.sin(green+roverEvent.scanAngle));
-				}
-				// Draw circles indicating distances away from rover for radar scan
-				for(int i=1; i<5; i++) {
-					shapeRenderer.setColor(0,0.8f, 0.1f, 1);
-					shapeRenderer.circle(location.getLevel().x+location.getLevelOffsetCenter().x,
-							location.getLevel().y+location.getLevelOffsetCenter().y, i*location.getLevelGrid().x);
-				}
-				// Draw cross hairs for radar scan
-				shapeRenderer.setColor(0,0.8f, 0.1f, 1);
-				shapeRenderer.line(location.getLevel().x+location.getLevelOffsetCenter().x-5*location.getLevelGrid().x,
-						location.getLevel().y+location.getLevelOffsetCenter().y,
-						location.getLevel().x+location.getLevelOffsetCenter().x+5*location.getLevelGrid().x,
-						location.getLevel().y+location.getLevelOffsetCenter().y);
-				shapeRenderer.line(location.getLevel().x+location.getLevelOffsetCenter().x,
-						location.getLevel().y+location.getLevelOffsetCenter().y-5*location.getLevelGrid().y,
-						location.getLevel().x+location.getLevelOffsetCenter().x,
-						location.getLevel().y+location.getLevelOffsetCenter().y+5*location.getLevelGrid().y);
-				// Draw circles indicating distances away from rover for radar scan
-				for(int i=1; i<=5; i++) {
-					// White border on the last circle
-					if(i == 5) {
-						shapeRenderer.setColor(1, 1, 1, 1);					
-					}
-					shapeRenderer.circle(location.getLevel().x+location.getLevelOffsetCenter().x,
-							location.getLevel().y+location.getLevelOffsetCenter().y, i*location.getLevelGrid().x);
-				}
+			// Draw radar from its prebuilt geometry rotated by the scan angle
+			if(theView.scanInProgress) {
+				radarOverlay.render(theView.worldCamera, centerX, centerY,
+						gridX, gridY, theView.scanAngle);
 			}
-			shapeRenderer.end();
 		} // if(mapRenderer != null)
 	}
 
-    @Override
-	protected void end() {
-		super.begin();
-		sprites = null;
-		masks = null;
+	/**
+	 * Release the fog of war, path and radar meshes, call this when the screen is disposed.
+	 */
+	public void dispose() {
+		for(FogOverlay anOverlay : fogOverlays.values()) {
+			anOverlay.dispose();
+		}
+		fogOverlays.clear();
+		for(PathOverlay anOverlay : pathOverlays.values()) {
+			anOverlay.dispose();
+		}
+		pathOverlays.clear();
+		radarOverlay.dispose();
 	}
 }
@@ -0,0 +1,91 @@
+package com.cosmicrover.cassini.systems;
+
+import com.artemis.ComponentMapper;
+import com.artemis.Entity;
+import com.artemis.World;
+import com.artemis.utils.ImmutableBag;
+import com.artemis.utils.TickScheduler;
+import com.badlogic.gdx.graphics.OrthographicCamera;
+import com.cosmicrover.cassini.EntityFactory;
+import com.cosmicrover.cassini.components.CameraComponent;
+import com.cosmicrover.cassini.components.LocationComponent;
+import com.cosmicrover.cassini.components.RoverEventComponent;
+import com.cosmicrover.cassini.managers.GroupManager;
+
+/**
+ * Assigns rovers a tick divisor based on how much they matter right now.
+ * Rovers with a camera of their own or visible in a local players camera are
+ * processed every tick, busy rovers further away less often and idle rovers
+ * or rovers on a map nobody is looking at only every few ticks.
+ */
+public class RoverTickPolicy implements TickScheduler.Policy {
+	// Tick divisors for each level of detail
+	public static final int DIVISOR_VISIBLE  = 1;
+	public static final int DIVISOR_NEAR     = 2;
+	public static final int DIVISOR_FAR      = 4;
+	public static final int DIVISOR_IDLE     = 8;
+	public static final int DIVISOR_OFF_MAP  = 8;
+
+	// How many camera views away a rover is still considered near
+	private static final float NEAR_VIEWS = 2.0f;
+
+	private final ComponentMapper<CameraComponent> cameraMapper;
+	private final ComponentMapper<LocationComponent> locationMapper;
+	private final ComponentMapper<RoverEventComponent> roverEventMapper;
+	private final GroupManager groupManager;
+
+	public RoverTickPolicy(World world) {
+		cameraMapper = world.getMapper(CameraComponent.class);
+		locationMapper = world.getMapper(LocationComponent.class);
+		roverEventMapper = world.getMapper(RoverEventComponent.class);
+		groupManager = world.getManager(GroupManager.class);
+	}
+
+	@Override
+	public int getTickDivisor(Entity theEntity) {
+		// Rovers being watched by their own camera always run at full rate
+		if(cameraMapper.getSafe(theEntity) != null) {
+			return DIVISOR_VISIBLE;
+		}
+
+		// Nothing queued or in progress? then there is nothing to simulate
+		RoverEventComponent roverEvent = roverEventMapper.getSafe(theEntity);
+		if(roverEvent != null && roverEvent.events.size() == 0 &&
+		   roverEvent.nextEvent <= 0 && !roverEvent.scanInProgress) {
+			return DIVISOR_IDLE;
+		}
+
+		LocationComponent location = locationMapper.get(theEntity);
+		int anDivisor = DIVISOR_OFF_MAP;
+
+		// Find the closest local player camera looking at the same map
+		ImmutableBag<Entity> players = groupManager.getEntities(EntityFactory.LOCAL_PLAYERS_GROUP);
+		for(int i = 0, s = players.size(); s > i; i++) {
+			Entity anPlayer = players.get(i);
+			CameraComponent camera = cameraMapper.getSafe(anPlayer);
+			LocationComponent playerLocation = locationMapper.getSafe(anPlayer);
+			if(camera == null || playerLocation == null ||
+			   location.getMapName() == null ||
+			   !location.getMapName().equals(playerLocation.getMapName())) {
+				continue;
+			}
+
+			// Distance in camera views (half width/height) from the camera center
+			OrthographicCamera worldCamera = camera.getWorldCamera();
+			float halfWidth = Math.max(1.0f, worldCamera.viewportWidth * worldCamera.zoom * 0.5f);
+			float halfHeight = Math.max(1.0f, worldCamera.viewportHeight * worldCamera.zoom * 0.5f);
+			float views = Math.max(
+					Math.abs(location.getLevel().x - worldCamera.position.x) / halfWidth,
+					Math.abs(location.getLevel().y - worldCamera.position.y) / halfHeight);
+
+			if(views <= 1.0f) {
+				return DIVISOR_VISIBLE;
+			} else if(views <= NEAR_VIEWS) {
+				anDivisor = Math.min(anDivisor, DIVISOR_NEAR);
+			} else {
+				anDivisor = Math.min(anDivisor, DIVISOR_FAR);
+			}
+		}
+		return anDivisor;
+	}
+}
@@ -0,0 +1,155 @@
+package com.cosmicrover.core;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.InputProcessor;
+
+/**
+ * Queues input events received on the render thread and replays them to
+ * another InputProcessor when drained, so input handlers can touch state
+ * owned by a SimulationThread without either thread taking a lock. Only
+ * one thread may add events and only one thread may drain them.
+ *
+ * Events are handled later, so none are reported as consumed and other
+ * InputProcessors after this one still see them.
+ */
+public class QueuedInputProcessor implements InputProcessor {
+	// Event types stored in the first slot of each event
+	private static final int KEY_DOWN      = 0;
+	private static final int KEY_UP        = 1;
+	private static final int KEY_TYPED     = 2;
+	private static final int TOUCH_DOWN    = 3;
+	private static final int TOUCH_UP      = 4;
+	private static final int TOUCH_DRAGGED = 5;
+	private static final int MOUSE_MOVED   = 6;
+	private static final int SCROLLED      = 7;
+
+	/// Ints stored per event, type followed by its arguments
+	private static final int EVENT_SIZE = 5;
+
+	/// InputProcessor to replay events to
+	private final InputProcessor processor;
+
+	/// Ring of queued events, EVENT_SIZE ints each
+	private final int[] events;
+
+	/// Number of events the ring holds, a power of two
+	private final int capacity;
+
+	/// Events added so far, only advanced by the adding thread
+	private final AtomicInteger tail;
+
+	/// Events drained so far, only advanced by the draining thread
+	private final AtomicInteger head;
+
+	/**
+	 * @param processor to replay events to when drained
+	 * @param capacity of events queued between drains, rounded up to a
+	 * power of two, events beyond that are dropped
+	 */
+	public QueuedInputProcessor(InputProcessor processor, int capacity) {
+		int anCapacity = 1;
+		while(capacity > anCapacity) {
+			anCapacity <<= 1;
+		}
+		this.processor = processor;
+		this.capacity = anCapacity;
+		this.events = new int[anCapacity * EVENT_SIZE];
+		this.tail = new AtomicInteger();
+		this.head = new AtomicInteger();
+	}
+
+	/**
+	 * Replays every event queued so far to our processor, in the order they
+	 * were received. Only call this from the thread owning the processor.
+	 */
+	public void drain() {
+		int anHead = head.get();
+		int anTail = tail.get();
+		for(; anTail != anHead; anHead++) {
+			int anOffset = (anHead & (capacity - 1)) * EVENT_SIZE;
+			int a = events[anOffset+1];
+			int b = events[anOffset+2];
+			int c = events[anOffset+3];
+			int d = events[anOffset+4];
+			switch(events[anOffset]) {
+			case KEY_DOWN:      processor.keyDown(a); break;
+			case KEY_UP:        processor.keyUp(a); break;
+			case KEY_TYPED:     processor.keyTyped((char)a); break;
+			case TOUCH_DOWN:    processor.touchDown(a, b, c, d); break;
+			case TOUCH_UP:      processor.touchUp(a, b, c, d); break;
+			case TOUCH_DRAGGED: processor.touchDragged(a, b, c); break;
+			case MOUSE_MOVED:   processor.mouseMoved(a, b); break;
+			case SCROLLED:      processor.scrolled(a); break;
+			}
+		}
+		// Hand the drained slots back to the adding thread
+		head.set(anHead);
+	}
+
+	private void add(int theType, int a, int b, int c, int d) {
+		int anTail = tail.get();
+		if(anTail - head.get() == capacity) {
+			// Nobody is draining (paused or loading), keep what we have
+			Gdx.app.debug("QueuedInputProcessor:add", "Input queue full, dropping event type=" + theType);
+			return;
+		}
+		int anOffset = (anTail & (capacity - 1)) * EVENT_SIZE;
+		events[anOffset] = theType;
+		events[anOffset+1] = a;
+		events[anOffset+2] = b;
+		events[anOffset+3] = c;
+		events[anOffset+4] = d;
+		// Publish the event to the draining thread
+		tail.set(anTail + 1);
+	}
+
+	@Override
+	public boolean keyDown(int keycode) {
+		add(KEY_DOWN, keycode, 0, 0, 0);
+		return false;
+	}
+
+	@Override
+	public boolean keyUp(int keycode) {
+		add(KEY_UP, keycode, 0, 0, 0);
+		return false;
+	}
+
+	@Override
+	public boolean keyTyped(char character) {
+		add(KEY_TYPED, character, 0, 0, 0);
+		return false;
+	}
+
+	@Override
+	public boolean touchDown(int screenX, int screenY, int pointer, int button) {
+		add(TOUCH_DOWN, screenX, screenY, pointer, button);
+		return false;
+	}
+
+	@Override
+	public boolean touchUp(int screenX, int screenY, int pointer, int button) {
+		add(TOUCH_UP, screenX, screenY, pointer, button);
+		return false;
+	}
+
+	@Override
+	public boolean touchDragged(int screenX, int screenY, int pointer) {
+		add(TOUCH_DRAGGED, screenX, screenY, pointer, 0);
+		return false;
+	}
+
+	@Override
+	public boolean mouseMoved(int screenX, int screenY) {
+		add(MOUSE_MOVED, screenX, screenY, 0, 0);
+		return false;
+	}
+
+	@Override
+	public boolean scrolled(int amount) {
+		add(SCROLLED, amount, 0, 0, 0);
+		return false;
+	}
+}
@@ -0,0 +1,92 @@
+package com.cosmicrover.core;
+
+import com.badlogic.gdx.Gdx;
+
+/**
+ * Runs a simulation step at a fixed rate on its own thread. Every step runs
+ * while holding the lock object provided, so other threads can safely touch
+ * the simulated state by synchronizing on the same object.
+ */
+public class SimulationThread extends Thread {
+	// Time behind schedule after which we stop trying to catch up
+	private static final long MAX_LAG_NANOS = 250000000L;
+
+	/// Object to synchronize on while running a step
+	private final Object lock;
+
+	/// Simulation step to run
+	private final Runnable step;
+
+	/// Time between steps in nanoseconds
+	private final long stepNanos;
+
+	/// Cleared to ask the thread to finish
+	private volatile boolean running = true;
+
+	/**
+	 * @param name of the thread for debugging purposes
+	 * @param lock object to synchronize on while running a step
+	 * @param step simulation step to run
+	 * @param stepTime in seconds between steps
+	 */
+	public SimulationThread(String name, Object lock, Runnable step, float stepTime) {
+		super(name);
+		this.lock = lock;
+		this.step = step;
+		this.stepNanos = (long)(stepTime * 1000000000.0);
+		setDaemon(true);
+	}
+
+	@Override
+	public void run() {
+		long nextStep = System.nanoTime();
+		while(running) {
+			try {
+				synchronized(lock) {
+					step.run();
+				}
+			} catch(RuntimeException e) {
+				Gdx.app.error("SimulationThread:run", "Simulation step failed", e);
+				running = false;
+				break;
+			}
+
+			// Sleep until the next step is due
+			nextStep += stepNanos;
+			long anNow = System.nanoTime();
+			long anSleep = nextStep - anNow;
+			if(anSleep > 0) {
+				try {
+					Thread.sleep(anSleep / 1000000L, (int)(anSleep % 1000000L));
+				} catch(InterruptedException e) {
+					// Woken up by shutdown, check running again
+				}
+			} else if(-anSleep > MAX_LAG_NANOS) {
+				// Too far behind, don't try to run all the missed steps
+				nextStep = anNow;
+			}
+		}
+	}
+
+	/**
+	 * Returns whether the thread is still running steps.
+	 * @return true until shutdown is called or a step failed
+	 */
+	public boolean isRunning() {
+		return running && isAlive();
+	}
+
+	/**
+	 * Asks the thread to finish and waits until it has. Must not be called
+	 * while holding the lock object.
+	 */
+	public void shutdown() {
+		running = false;
+		interrupt();
+		try {
+			join();
+		} catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -0,0 +1,69 @@
+package com.cosmicrover.core;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Lock free triple buffer for handing state from a single writer thread to a
+ * single reader thread. The writer fills the back buffer and publishes it,
+ * the reader always gets the most recently published buffer. Neither side
+ * ever waits for the other, the writer simply overwrites a published buffer
+ * the reader hasn't picked up yet.
+ *
+ * @param <T> type of the buffered state
+ */
+public class TripleBuffer<T> {
+	// Flag stored with the middle index when it holds a newly published buffer
+	private static final int DIRTY = 4;
+	private static final int INDEX_MASK = 3;
+
+	/// The three buffers being rotated between writer, middle, and reader
+	private final Object[] buffers;
+
+	/// Index of the middle buffer and its DIRTY flag, shared by both threads
+	private final AtomicInteger middle;
+
+	/// Index of the buffer owned by the writer
+	private int back;
+
+	/// Index of the buffer owned by the reader
+	private int front;
+
+	public TripleBuffer(T first, T second, T third) {
+		buffers = new Object[] { first, second, third };
+		back = 0;
+		middle = new AtomicInteger(1);
+		front = 2;
+	}
+
+	/**
+	 * Returns the buffer the writer should fill next, only call this from the
+	 * writer thread.
+	 * @return back buffer owned by the writer
+	 */
+	@SuppressWarnings("unchecked")
+	public T getWriteBuffer() {
+		return (T)buffers[back];
+	}
+
+	/**
+	 * Publishes the back buffer to the reader and hands the writer a new
+	 * buffer to fill, only call this from the writer thread.
+	 */
+	public void publish() {
+		back = middle.getAndSet(back | DIRTY) & INDEX_MASK;
+	}
+
+	/**
+	 * Returns the most recently published buffer, only call this from the
+	 * reader thread. The buffer stays valid until the next call.
+	 * @return front buffer owned by the reader
+	 */
+	@SuppressWarnings("unchecked")
+	public T getReadBuffer() {
+		// Swap in the newly published buffer, if any
+		if((middle.get() & DIRTY) != 0) {
+			front = middle.getAndSet(front) & INDEX_MASK;
+		}
+		return (T)buffers[front];
+	}
+}
@@ -9,6 +9,9 @@ public abstract class AbstractLoadingScreen extends AbstractScreen {
 	/// it possible to change without having an address to AbstractLoadingScreen)
 	private static int nextScreenId = GameData.EXIT_GAME_SCREEN;
 
+	/// Work to carry on with once the assets are loaded, null if none
+	private static LoadingTask loadingTask = null;
+
 	/// Constants used internally for delays (in seconds)
 	/// Minimum 
 	private static final float DEFAULT_LAG_DELAY_S = 0.2f;
@@ -65,6 +68,34 @@ public abstract class AbstractLoadingScreen extends AbstractScreen {
 		nextScreenId = screenId;
 	}
 
+	/**
+	 * Sets work for the Loading screen to carry on with once the assets are
+	 * loaded, before switching to the next screen. The task is forgotten
+	 * once it reports it is done.
+	 * @param task to run a slice of each frame, null for none
+	 */
+	public static final void setLoadingTask(LoadingTask task) {
+		loadingTask = task;
+	}
+
+	/**
+	 * Run the next slice of the loading task, if any.
+	 * @return true if there is no loading task left to run
+	 */
+	protected static final boolean updateLoadingTask() {
+		if(loadingTask != null && loadingTask.update()) {
+			loadingTask = null;
+		}
+		return loadingTask == null;
+	}
+
+	/**
+	 * @return progress of the loading task from 0 to 1, -1 if there is none
+	 */
+	protected static final float getLoadingTaskProgress() {
+		return loadingTask != null ? loadingTask.getProgress() : -1.0f;
+	}
+
 	@Override
 	public final void render(float delta) {
 		// Only add to our lag delay accumulator if we are done
@@ -77,9 +77,9 @@ public class AbstractScreen implements Screen {
 	public void resize(int width, int height) {
 		// TODO: Call classes that need resize information
 
-		// Update our viewports when screen is resized if we have a ViewportManager
+		// Resize our viewports on the next world update if we have a ViewportManager
 		if(viewportManager != null) {
-			viewportManager.updateViewports();
+			viewportManager.resize();
 		}
 	}
 
@@ -53,15 +53,21 @@ public class AssetLoadingScreen extends AbstractLoadingScreen {
         
 		// Update our asset loading progress
 		float percentComplete = gameManager.getAssetManager().getProgress();
+		float taskComplete = getLoadingTaskProgress();
 		
 		// Check our asset loading progress (returns true if assets are done loading)
-		if(gameManager.getAssetManager().update()) {
+		// then carry on with the loading task (returns true if there is none left)
+		if(gameManager.getAssetManager().update() && updateLoadingTask()) {
     		// Report that we are done loading
     		reportDone();
 
     		// Fix our percent to 1.0
 			percentComplete = 1.0f;
 		}
+		// Share the loading bar between the assets and the loading task
+		else if(taskComplete >= 0.0f) {
+			percentComplete = (percentComplete + taskComplete) * 0.5f;
+		}
 		
         // Update positions (and size) to match the percentage
         loadingBarHidden.setX(startX + endX * percentComplete);
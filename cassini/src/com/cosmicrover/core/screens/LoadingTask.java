@@ -0,0 +1,19 @@
+package com.cosmicrover.core.screens;
+
+/**
+ * Work a loading screen carries on with once its assets are loaded, a slice
+ * at a time each frame so the screen keeps drawing its progress (see
+ * AbstractLoadingScreen.setLoadingTask).
+ */
+public interface LoadingTask {
+	/**
+	 * Do the next slice of work, keeping within a frame.
+	 * @return true when all the work is done
+	 */
+	public boolean update();
+
+	/**
+	 * @return how much of the work is done, from 0 to 1
+	 */
+	public float getProgress();
+}
@@ -0,0 +1,187 @@
+package com.artemis;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.artemis.utils.Bag;
+
+public class WorldSnapshotTest {
+	/**
+	 * Position on a grid, copied by snapshots like LocationComponent.
+	 */
+	public static class Position extends Component {
+		public int x;
+		public int y;
+
+		public Position(int x, int y) {
+			this.x = x;
+			this.y = y;
+		}
+
+		@Override
+		public Component copy() {
+			return new Position(x, y);
+		}
+	}
+
+	/**
+	 * Component only registered by snapshotsComponentTypesAddedLater().
+	 */
+	public static class Marker extends Component {
+		public int value;
+
+		public Marker(int value) {
+			this.value = value;
+		}
+
+		@Override
+		public Component copy() {
+			return new Marker(value);
+		}
+	}
+
+	/**
+	 * Component type no world in these tests stores.
+	 */
+	public static class Unused extends Component {
+	}
+
+	/**
+	 * Records the entities it is told about, like SpatialManager keeping
+	 * its grid in step with the positions.
+	 */
+	public static class PositionIndex extends Manager {
+		public final Bag<Entity> changed = new Bag<Entity>();
+
+		@Override
+		protected void initialize() {
+		}
+
+		@Override
+		public void changed(Entity e) {
+			changed.add(e);
+		}
+	}
+
+	private World world;
+	private PositionIndex index;
+	private ComponentMapper<Position> positionMapper;
+
+	@Before
+	public void setUp() {
+		world = new World();
+		index = world.setManager(new PositionIndex());
+		world.initialize();
+		positionMapper = world.getMapper(Position.class);
+	}
+
+	private Entity createRover(int x, int y) {
+		Entity e = world.createEntity();
+		e.addComponent(new Position(x, y));
+		e.addToWorld();
+		return e;
+	}
+
+	@Test
+	public void restoreRollsBackComponentsChangedInPlace() {
+		Entity rover = createRover(1, 2);
+		world.process();
+		WorldSnapshot snapshot = world.snapshot();
+
+		// Drive the rover somewhere else
+		Position position = positionMapper.getForWrite(rover);
+		position.x = 7;
+		position.y = 9;
+
+		assertEquals(0, world.restore(snapshot));
+		Position restored = positionMapper.get(rover);
+		assertNotSame(position, restored);
+		assertEquals(1, restored.x);
+		assertEquals(2, restored.y);
+	}
+
+	@Test
+	public void restoreTellsManagersAboutRestoredEntities() {
+		Entity rover = createRover(1, 2);
+		world.process();
+		WorldSnapshot snapshot = world.snapshot();
+
+		positionMapper.getForWrite(rover).x = 7;
+		world.process();
+		index.changed.clear();
+
+		// The component bits are the same, the position isn't
+		world.restore(snapshot);
+		world.process();
+		assertTrue(index.changed.contains(rover));
+		assertEquals(1, positionMapper.get(rover).x);
+	}
+
+	@Test
+	public void restoreCanBeRepeated() {
+		Entity rover = createRover(1, 2);
+		world.process();
+		WorldSnapshot snapshot = world.snapshot();
+
+		for(int i = 0; 3 > i; i++) {
+			positionMapper.getForWrite(rover).x = 10 + i;
+			world.restore(snapshot);
+			assertEquals(1, positionMapper.get(rover).x);
+		}
+	}
+
+	@Test
+	public void readsDontMarkPagesDirty() {
+		Entity rover = createRover(1, 2);
+		world.process();
+		world.snapshot();
+
+		positionMapper.get(rover);
+		positionMapper.getSafe(rover);
+		rover.getComponent(Position.class);
+		assertFalse(world.getComponentManager().isPageDirty(rover.getId() >>> WorldSnapshot.PAGE_SHIFT));
+
+		positionMapper.markDirty(rover);
+		assertTrue(world.getComponentManager().isPageDirty(rover.getId() >>> WorldSnapshot.PAGE_SHIFT));
+	}
+
+	@Test
+	public void snapshotsComponentTypesAddedLater() {
+		// Leave a type index without storage below the one Marker gets
+		ComponentType.getTypeFor(Unused.class);
+		ComponentMapper<Marker> markerMapper = world.getMapper(Marker.class);
+
+		Entity e = world.createEntity();
+		e.addComponent(new Marker(1));
+		e.addToWorld();
+		world.process();
+		WorldSnapshot first = world.snapshot();
+
+		// Capturing the type without storage mustn't hide Marker from later snapshots
+		markerMapper.getForWrite(e).value = 2;
+		WorldSnapshot second = world.snapshot();
+		markerMapper.getForWrite(e).value = 3;
+		world.restore(second);
+		assertEquals(2, markerMapper.get(e).value);
+		world.restore(first);
+		assertEquals(1, markerMapper.get(e).value);
+	}
+
+	@Test
+	public void restoreDeletesEntitiesCreatedAfterSnapshot() {
+		createRover(1, 2);
+		world.process();
+		WorldSnapshot snapshot = world.snapshot();
+
+		Entity late = createRover(5, 5);
+		world.process();
+		assertEquals(0, world.restore(snapshot));
+		world.process();
+		assertFalse(late.isActive());
+	}
+}
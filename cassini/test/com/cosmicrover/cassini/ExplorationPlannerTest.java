@@ -0,0 +1,65 @@
+package com.cosmicrover.cassini;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class ExplorationPlannerTest {
+	private RevealStencil stencil;
+	private ExplorationPlanner planner;
+	private FogMap fog;
+
+	@Before
+	public void setUp() {
+		stencil = RevealStencil.get(RevealStencil.Shape.DIAMOND, 5);
+		planner = new ExplorationPlanner(stencil, false);
+		fog = new FogMap(FogMap.CHUNK_SIZE, FogMap.CHUNK_SIZE);
+	}
+
+	@Test
+	public void choosingDoesntUseUpACandidate() {
+		// The rover never got there, so it is still the best choice
+		int anFirst = planner.choose(fog, null, 2, 2);
+		assertTrue(anFirst >= 0);
+		assertEquals(anFirst, planner.choose(fog, null, 2, 2));
+	}
+
+	@Test
+	public void scannedCandidateIsNotChosenAgain() {
+		int anFirst = planner.choose(fog, null, 2, 2);
+
+		// A scan that showed nothing, everything around was out of sight
+		planner.scanned(fog, Route.unpackX(anFirst), Route.unpackY(anFirst));
+		int anSecond = planner.choose(fog, null, 2, 2);
+		assertTrue(anSecond >= 0);
+		assertTrue(anSecond != anFirst);
+	}
+
+	@Test
+	public void scanningElsewhereKeepsCandidates() {
+		int anFirst = planner.choose(fog, null, 2, 2);
+		planner.scanned(fog, Route.unpackX(anFirst) + 1, Route.unpackY(anFirst));
+		assertEquals(anFirst, planner.choose(fog, null, 2, 2));
+	}
+
+	@Test
+	public void revealedCandidatesAreSkipped() {
+		int anFirst = planner.choose(fog, null, 2, 2);
+		stencil.reveal(fog, Route.unpackX(anFirst), Route.unpackY(anFirst), null);
+		planner.scanned(fog, Route.unpackX(anFirst), Route.unpackY(anFirst));
+
+		// Scanning from everywhere left leaves nothing to explore
+		for(int i = 0; 16 > i; i++) {
+			int anSquare = planner.choose(fog, null, 2, 2);
+			if(anSquare < 0) {
+				return;
+			}
+			assertTrue(anSquare != anFirst);
+			stencil.reveal(fog, Route.unpackX(anSquare), Route.unpackY(anSquare), null);
+			planner.scanned(fog, Route.unpackX(anSquare), Route.unpackY(anSquare));
+		}
+		assertEquals(-1, planner.choose(fog, null, 2, 2));
+	}
+}
@@ -0,0 +1,156 @@
+package com.cosmicrover.cassini;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import com.badlogic.gdx.utils.IntArray;
+
+public class FogGeometryTest {
+	private static final int SIZE = FogMap.CHUNK_SIZE;
+
+	/// Vertices of a chunk fully hidden, one quad per row
+	private static final int HIDDEN_CHUNK_VERTICES = SIZE * FogGeometry.QUAD_VERTICES;
+
+	private static void revealAll(FogMap theFog) {
+		for(int y = 0; theFog.getHeight() > y; y++) {
+			theFog.revealSpan(y, 0, theFog.getWidth() - 1);
+		}
+	}
+
+	@Test
+	public void hiddenChunkHasOneQuadPerRow() {
+		FogMap fog = new FogMap(SIZE*2, SIZE*2);
+		FogGeometry geometry = new FogGeometry();
+
+		assertEquals(4, geometry.update(fog, 1f, 1f, null));
+		for(int c = 0; 4 > c; c++) {
+			assertEquals(HIDDEN_CHUNK_VERTICES, geometry.getVertexCount(c));
+		}
+	}
+
+	@Test
+	public void revealedChunkHasNoVertices() {
+		FogMap fog = new FogMap(SIZE*2, SIZE);
+		for(int y = 0; SIZE > y; y++) {
+			fog.revealSpan(y, 0, SIZE - 1);
+		}
+		FogGeometry geometry = new FogGeometry();
+		geometry.update(fog, 1f, 1f, null);
+
+		assertEquals(0, geometry.getVertexCount(0));
+		assertEquals(HIDDEN_CHUNK_VERTICES, geometry.getVertexCount(1));
+
+		revealAll(fog);
+		geometry.update(fog, 1f, 1f, null);
+		assertEquals(0, geometry.getVertexCount());
+	}
+
+	@Test
+	public void stripedChunkNeedsMostVertices() {
+		// Every other column revealed leaves a run of one square each
+		FogMap fog = new FogMap(SIZE, SIZE);
+		for(int y = 0; SIZE > y; y++) {
+			for(int x = 1; SIZE > x; x += 2) {
+				fog.reveal(x, y);
+			}
+		}
+		FogGeometry geometry = new FogGeometry();
+		geometry.update(fog, 1f, 1f, null);
+
+		assertEquals(FogGeometry.MAX_CHUNK_VERTICES, geometry.getVertexCount(0));
+	}
+
+	@Test
+	public void quadsAreInLevelCoordinates() {
+		// Only square (2,1) hidden
+		FogMap hidden = new FogMap(SIZE, SIZE);
+		for(int y = 0; SIZE > y; y++) {
+			for(int x = 0; SIZE > x; x++) {
+				if(x != 2 || y != 1) {
+					hidden.reveal(x, y);
+				}
+			}
+		}
+		FogGeometry geometry = new FogGeometry();
+		geometry.update(hidden, 32f, 16f, null);
+
+		assertEquals(FogGeometry.QUAD_VERTICES, geometry.getVertexCount(0));
+		float[] vertices = geometry.getVertices(0);
+		float[] expected = {
+				64f, 16f,  96f, 16f,  96f, 32f,
+				96f, 32f,  64f, 32f,  64f, 16f };
+		for(int i = 0; expected.length > i; i++) {
+			assertEquals(expected[i], vertices[i], 0f);
+		}
+	}
+
+	@Test
+	public void edgeChunksAreClippedToMap() {
+		FogMap fog = new FogMap(SIZE + 3, SIZE + 5);
+		FogGeometry geometry = new FogGeometry();
+		geometry.update(fog, 1f, 1f, null);
+
+		assertEquals(HIDDEN_CHUNK_VERTICES, geometry.getVertexCount(0));
+		assertEquals(SIZE * FogGeometry.QUAD_VERTICES, geometry.getVertexCount(1));
+		assertEquals(5 * FogGeometry.QUAD_VERTICES, geometry.getVertexCount(2));
+		assertEquals(5 * FogGeometry.QUAD_VERTICES, geometry.getVertexCount(3));
+		assertEquals(3f + SIZE, geometry.getVertices(1)[2], 0f);
+	}
+
+	@Test
+	public void revealBumpsOnlyItsChunk() {
+		FogMap fog = new FogMap(SIZE*2, SIZE*2);
+		int[] before = new int[fog.getChunkCount()];
+		for(int c = 0; before.length > c; c++) {
+			before[c] = fog.getChunkVersion(c);
+		}
+
+		// Square (SIZE+1, SIZE+2) is in chunk 3
+		fog.reveal(SIZE + 1, SIZE + 2);
+		for(int c = 0; before.length > c; c++) {
+			assertEquals(c == 3 ? before[c] + 1 : before[c], fog.getChunkVersion(c));
+		}
+
+		// Revealing it again changes nothing
+		fog.reveal(SIZE + 1, SIZE + 2);
+		assertEquals(before[3] + 1, fog.getChunkVersion(3));
+	}
+
+	@Test
+	public void revealSpanBumpsEveryChunkItCrosses() {
+		FogMap fog = new FogMap(SIZE*2, SIZE*2);
+		int chunk0 = fog.getChunkVersion(0);
+		int chunk1 = fog.getChunkVersion(1);
+		int chunk2 = fog.getChunkVersion(2);
+
+		fog.revealSpan(0, SIZE - 2, SIZE + 2);
+		assertTrue(fog.getChunkVersion(0) != chunk0);
+		assertTrue(fog.getChunkVersion(1) != chunk1);
+		assertEquals(chunk2, fog.getChunkVersion(2));
+	}
+
+	@Test
+	public void updateRebuildsOnlyChangedChunks() {
+		FogMap fog = new FogMap(SIZE*2, SIZE*2);
+		FogGeometry geometry = new FogGeometry();
+		IntArray rebuilt = new IntArray();
+		geometry.update(fog, 1f, 1f, rebuilt);
+		assertEquals(4, rebuilt.size);
+
+		// Nothing revealed, nothing rebuilt
+		rebuilt.clear();
+		assertEquals(0, geometry.update(fog, 1f, 1f, rebuilt));
+
+		// Splitting a row of chunk 1 adds a quad to it
+		fog.reveal(SIZE + 4, 3);
+		rebuilt.clear();
+		assertEquals(1, geometry.update(fog, 1f, 1f, rebuilt));
+		assertEquals(1, rebuilt.get(0));
+		assertEquals(HIDDEN_CHUNK_VERTICES + FogGeometry.QUAD_VERTICES, geometry.getVertexCount(1));
+
+		// A new grid size rebuilds everything
+		assertEquals(4, geometry.update(fog, 2f, 2f, null));
+	}
+}
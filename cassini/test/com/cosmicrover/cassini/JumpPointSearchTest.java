@@ -0,0 +1,78 @@
+package com.cosmicrover.cassini;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class JumpPointSearchTest {
+	// Cost of every step of theRoute, checking each is a legal step
+	private static int getRouteCost(NavigationGrid theGrid, Route theRoute) {
+		int anCost = 0;
+		for(int i = 1, s = theRoute.size(); s > i; i++) {
+			int x = theRoute.getX(i-1);
+			int y = theRoute.getY(i-1);
+			int dx = theRoute.getX(i) - x;
+			int dy = theRoute.getY(i) - y;
+			assertTrue("step " + i, Math.abs(dx) <= 1 && Math.abs(dy) <= 1 && (dx != 0 || dy != 0));
+			assertTrue("blocked " + i, theGrid.isWalkable(x+dx, y+dy));
+			if(dx != 0 && dy != 0) {
+				assertTrue("corner cut " + i, theGrid.isWalkable(x+dx, y) && theGrid.isWalkable(x, y+dy));
+				anCost += 14;
+			} else {
+				anCost += 10;
+			}
+		}
+		return anCost;
+	}
+
+	@Test
+	public void pathsCostTheSameAsTheFlowField() {
+		Random anRandom = new Random(43);
+		JumpPointSearch anSearch = new JumpPointSearch();
+		FlowField anField = new FlowField();
+		Route anRoute = new Route();
+		int anFound = 0;
+		for(int g = 0; 40 > g; g++) {
+			// Sizes crossing a word of grid bits, a quarter to a third of squares blocked
+			int anWidth = 8 + anRandom.nextInt(80);
+			int anHeight = 8 + anRandom.nextInt(80);
+			NavigationGrid anGrid = new NavigationGrid(anWidth, anHeight);
+			int anDensity = 3 + anRandom.nextInt(2);
+			for(int y = 0; anHeight > y; y++) {
+				for(int x = 0; anWidth > x; x++) {
+					if(anRandom.nextInt(anDensity) == 0) {
+						anGrid.setBlocked(x, y, true);
+					}
+				}
+			}
+
+			for(int p = 0; 10 > p; p++) {
+				int x0 = anRandom.nextInt(anWidth);
+				int y0 = anRandom.nextInt(anHeight);
+				int x1 = anRandom.nextInt(anWidth);
+				int y1 = anRandom.nextInt(anHeight);
+				anGrid.setBlocked(x0, y0, false);
+				anGrid.setBlocked(x1, y1, false);
+				anField.build(anGrid, x1, y1);
+
+				String anCase = "grid " + g + " from " + x0 + "," + y0 + " to " + x1 + "," + y1;
+				int anExpected = anField.getCost(x0, y0);
+				if(anExpected == FlowField.UNREACHABLE) {
+					assertFalse(anCase, anSearch.findPath(anGrid, x0, y0, x1, y1, anRoute));
+					continue;
+				}
+				assertTrue(anCase, anSearch.findPath(anGrid, x0, y0, x1, y1, anRoute));
+				assertEquals(anCase, Route.pack(x0, y0), anRoute.get(0));
+				assertEquals(anCase, Route.pack(x1, y1), anRoute.get(anRoute.size() - 1));
+				assertEquals(anCase, anExpected, getRouteCost(anGrid, anRoute));
+				anFound++;
+			}
+		}
+		// Most pairs should have had a route to compare
+		assertTrue(anFound > 100);
+	}
+}
@@ -0,0 +1,92 @@
+package com.cosmicrover.cassini;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class NavigationGridTest {
+	// Row bits worked out one square at a time
+	private static long slowRowBits(NavigationGrid theGrid, int y, int x) {
+		long anBits = 0L;
+		for(int i = 0; 64 > i; i++) {
+			if(!theGrid.isWalkable(x+i, y)) {
+				anBits |= 1L << i;
+			}
+		}
+		return anBits;
+	}
+
+	private static long slowColumnBits(NavigationGrid theGrid, int x, int y) {
+		long anBits = 0L;
+		for(int i = 0; 64 > i; i++) {
+			if(!theGrid.isWalkable(x, y+i)) {
+				anBits |= 1L << i;
+			}
+		}
+		return anBits;
+	}
+
+	private static NavigationGrid randomGrid(Random theRandom, int theWidth, int theHeight) {
+		NavigationGrid anGrid = new NavigationGrid(theWidth, theHeight);
+		for(int y = 0; theHeight > y; y++) {
+			for(int x = 0; theWidth > x; x++) {
+				if(theRandom.nextInt(3) == 0) {
+					anGrid.setBlocked(x, y, true);
+				}
+			}
+		}
+		return anGrid;
+	}
+
+	@Test
+	public void bitsMatchSquaresAtEveryOffset() {
+		// Sizes either side of a word, and one exactly a word
+		Random anRandom = new Random(43);
+		int[][] anSizes = { { 70, 37 }, { 64, 65 }, { 5, 130 }, { 129, 3 } };
+		for(int s = 0; anSizes.length > s; s++) {
+			int anWidth = anSizes[s][0];
+			int anHeight = anSizes[s][1];
+			NavigationGrid anGrid = randomGrid(anRandom, anWidth, anHeight);
+			for(int y = -1; anHeight >= y; y++) {
+				for(int x = -70; anWidth + 2 > x; x++) {
+					assertEquals("row " + y + " from " + x + " of " + anWidth + "x" + anHeight,
+							slowRowBits(anGrid, y, x), anGrid.getRowBits(y, x));
+				}
+			}
+			for(int x = -1; anWidth >= x; x++) {
+				for(int y = -70; anHeight + 2 > y; y++) {
+					assertEquals("column " + x + " from " + y + " of " + anWidth + "x" + anHeight,
+							slowColumnBits(anGrid, x, y), anGrid.getColumnBits(x, y));
+				}
+			}
+		}
+	}
+
+	@Test
+	public void squaresOutsideTheMapAreBlocked() {
+		NavigationGrid anGrid = new NavigationGrid(70, 2);
+		assertEquals(-1L, anGrid.getRowBits(-1, 0));
+		assertEquals(-1L, anGrid.getRowBits(2, 0));
+		assertEquals(-1L, anGrid.getRowBits(0, -64));
+		assertEquals(-1L, anGrid.getRowBits(0, 70));
+		// Only the first square is in the map
+		assertEquals(~1L, anGrid.getRowBits(0, 69));
+		// The last square before the map is blocked, the rest are open
+		assertEquals(1L, anGrid.getRowBits(0, -1));
+		assertFalse(anGrid.isWalkable(70, 0));
+	}
+
+	@Test
+	public void unblockingClearsTheBits() {
+		NavigationGrid anGrid = new NavigationGrid(70, 70);
+		anGrid.setBlocked(66, 65, true);
+		assertEquals(1L << 2, anGrid.getRowBits(65, 64) & 0x3f);
+		assertEquals(1L << 1, anGrid.getColumnBits(66, 64) & 0x3f);
+		anGrid.setBlocked(66, 65, false);
+		assertEquals(0L, anGrid.getRowBits(65, 64) & 0x3f);
+		assertEquals(0L, anGrid.getColumnBits(66, 64) & 0x3f);
+	}
+}
@@ -0,0 +1,47 @@
+package com.cosmicrover.cassini;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class RevealStencilTest {
+	@Test
+	public void lineOfSightWithoutBlockerIsTheCircle() {
+		FogMap circle = new FogMap(32, 32);
+		FogMap sight = new FogMap(32, 32);
+		int anCircle = RevealStencil.get(RevealStencil.Shape.CIRCLE, 5).reveal(circle, 10, 10, null);
+		int anSight = RevealStencil.get(RevealStencil.Shape.LINE_OF_SIGHT, 5).reveal(sight, 10, 10, null);
+		assertEquals(anCircle, anSight);
+		for(int y = 0; 32 > y; y++) {
+			for(int x = 0; 32 > x; x++) {
+				assertEquals(circle.isRevealed(x, y), sight.isRevealed(x, y));
+			}
+		}
+	}
+
+	@Test
+	public void blockedSquaresHideWhatIsBehindThem() {
+		// A wall across column 12, two squares east of the center
+		NavigationGrid grid = new NavigationGrid(32, 32);
+		for(int y = 0; 32 > y; y++) {
+			grid.setBlocked(12, y, true);
+		}
+		FogMap fog = new FogMap(32, 32);
+		RevealStencil.get(RevealStencil.Shape.LINE_OF_SIGHT, 5).reveal(fog, 10, 10, grid);
+
+		// The wall itself is seen, nothing past it is
+		assertTrue(fog.isRevealed(11, 10));
+		assertTrue(fog.isRevealed(12, 10));
+		assertFalse(fog.isRevealed(13, 10));
+		assertFalse(fog.isRevealed(15, 10));
+		for(int y = 0; 32 > y; y++) {
+			for(int x = 13; 32 > x; x++) {
+				assertFalse(x + "," + y, fog.isRevealed(x, y));
+			}
+		}
+		// The open side is revealed as far as the radius
+		assertTrue(fog.isRevealed(5, 10));
+	}
+}
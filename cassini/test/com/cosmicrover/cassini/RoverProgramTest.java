@@ -0,0 +1,63 @@
+package com.cosmicrover.cassini;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+public class RoverProgramTest {
+	private static void assertRejected(String theSource, String theMessage) {
+		try {
+			RoverProgram.assemble(theSource);
+			fail("Assembled " + theSource);
+		} catch(IllegalArgumentException e) {
+			assertTrue(e.getMessage(), e.getMessage().startsWith(theMessage));
+		}
+	}
+
+	@Test
+	public void encodesOperands() {
+		int anInstruction = RoverProgram.encode(RoverProgram.OP_JLT, 3, 15, -2);
+		assertEquals(RoverProgram.OP_JLT, RoverProgram.getOpcode(anInstruction));
+		assertEquals(3, RoverProgram.getA(anInstruction));
+		assertEquals(15, RoverProgram.getB(anInstruction));
+		assertEquals(-2, RoverProgram.getImmediate(anInstruction));
+	}
+
+	@Test
+	public void labelsAreInstructionIndices() {
+		int[] code = RoverProgram.assemble(
+				"; comments and blank lines don't count\n" +
+				"\n" +
+				"start: SET r1, 4\n" +
+				"loop:\n" +
+				"       ADDI r1 -1   # label on a line of its own\n" +
+				"       JNZ r1 LOOP\n" +
+				"       JMP end\n" +
+				"end:   jmp start\n");
+		assertEquals(5, code.length);
+		assertEquals(RoverProgram.encode(RoverProgram.OP_SET, 1, 0, 4), code[0]);
+		assertEquals(RoverProgram.encode(RoverProgram.OP_JNZ, 1, 0, 1), code[2]);
+		// Forward and backward references both resolve
+		assertEquals(4, RoverProgram.getImmediate(code[3]));
+		assertEquals(0, RoverProgram.getImmediate(code[4]));
+	}
+
+	@Test
+	public void explorerAssembles() {
+		int[] code = RoverProgram.assemble(RoverProgram.EXPLORER);
+		assertEquals(RoverProgram.OP_EXPLORE, RoverProgram.getOpcode(code[0]));
+	}
+
+	@Test
+	public void mistakesReportTheirLine() {
+		assertRejected("NOP\nFLY r0\n", "Line 2: unknown instruction FLY");
+		assertRejected("MOVE\n", "Line 1: MOVE takes 1 operands");
+		assertRejected("HALT r0\n", "Line 1: HALT takes 0 operands");
+		assertRejected("SET r16 1\n", "Line 1: r16 isn't a register");
+		assertRejected("SET x1 1\n", "Line 1: x1 isn't a register");
+		assertRejected("\nSET r0 40000\n", "Line 2: 40000 isn't a label or a 16 bit number");
+		assertRejected("JMP nowhere\n", "Line 1: nowhere isn't a label");
+	}
+}
@@ -0,0 +1,149 @@
+package com.cosmicrover.cassini.systems;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.artemis.Entity;
+import com.artemis.World;
+import com.cosmicrover.cassini.RoverProgram;
+import com.cosmicrover.cassini.components.LocationComponent;
+import com.cosmicrover.cassini.components.RoverEventComponent;
+import com.cosmicrover.cassini.components.RoverEventComponent.RoverEvent;
+import com.cosmicrover.cassini.components.RoverProgramComponent;
+
+public class RoverProgramSystemTest {
+	private World world;
+	private RoverProgramSystem system;
+
+	@Before
+	public void setUp() {
+		world = new World();
+		system = world.setSystem(new RoverProgramSystem(), true);
+		world.initialize();
+	}
+
+	private Entity createRover(String theSource) {
+		Entity e = world.createEntity();
+		e.addComponent(new LocationComponent());
+		e.addComponent(new RoverEventComponent());
+		e.addComponent(new RoverProgramComponent(RoverProgram.assemble(theSource)));
+		e.addToWorld();
+		world.process();
+		return e;
+	}
+
+	// Run a single tick of every program
+	private void tick() {
+		world.setDelta(RoverEventSystem.EVENT_PROCESSING_INTERVAL);
+		system.process();
+	}
+
+	private static RoverProgramComponent program(Entity e) {
+		return e.getComponent(RoverProgramComponent.class);
+	}
+
+	@Test
+	public void endlessLoopStopsAtBudget() {
+		Entity rover = createRover(
+				"loop: ADDI r0 1\n" +
+				"      JMP loop\n");
+		tick();
+		assertEquals(RoverProgramSystem.INSTRUCTION_BUDGET / 2, program(rover).registers[0]);
+		assertFalse(program(rover).halted);
+
+		// The next tick carries on where the budget ran out
+		tick();
+		assertEquals(RoverProgramSystem.INSTRUCTION_BUDGET, program(rover).registers[0]);
+	}
+
+	@Test
+	public void haltStopsForGood() {
+		Entity rover = createRover(
+				"SET r0 5\n" +
+				"HALT\n" +
+				"SET r0 9\n");
+		tick();
+		tick();
+		assertTrue(program(rover).halted);
+		assertEquals(5, program(rover).registers[0]);
+		assertEquals(2, program(rover).pc);
+	}
+
+	@Test
+	public void runningOffTheEndHalts() {
+		Entity rover = createRover("SET r0 1\n");
+		tick();
+		assertTrue(program(rover).halted);
+	}
+
+	@Test
+	public void yieldEndsTheTurn() {
+		Entity rover = createRover(
+				"loop: ADDI r0 1\n" +
+				"      YIELD\n" +
+				"      JMP loop\n");
+		for(int i = 1; 4 > i; i++) {
+			tick();
+			assertEquals(i, program(rover).registers[0]);
+		}
+	}
+
+	@Test
+	public void conditionalJumps() {
+		Entity rover = createRover(
+				"       SET r0 3\n" +
+				"loop:  ADDI r1 1\n" +    // r1 counts the loops
+				"       ADDI r0 -1\n" +
+				"       JNZ r0 loop\n" +
+				"       JZ r0 zero\n" +
+				"       HALT\n" +
+				"zero:  SET r2 2\n" +
+				"       SET r3 5\n" +
+				"       JLT r3 r2 wrong\n" + // 5 < 2 doesn't jump
+				"       JLT r2 r3 less\n" +
+				"wrong: SET r4 -1\n" +
+				"       HALT\n" +
+				"less:  MOV r5 r2\n" +
+				"       JEQ r5 r2 done\n" +
+				"       SET r4 -1\n" +
+				"done:  SET r4 1\n" +
+				"       HALT\n");
+		tick();
+		RoverProgramComponent anProgram = program(rover);
+		assertTrue(anProgram.halted);
+		assertEquals(0, anProgram.registers[0]);
+		assertEquals(3, anProgram.registers[1]);
+		assertEquals(1, anProgram.registers[4]);
+	}
+
+	@Test
+	public void actionsWaitForTheRover() {
+		Entity rover = createRover(
+				"SET r0 2\n" +
+				"MOVE r0\n" +
+				"SET r1 1\n" +
+				"HALT\n");
+		RoverEventComponent roverEvent = rover.getComponent(RoverEventComponent.class);
+
+		// MOVE queues the event and ends the turn
+		tick();
+		assertEquals(1, roverEvent.events.size());
+		assertEquals(RoverEvent.EVENT_MOVE, RoverEvent.getId(roverEvent.events.get(0)));
+		assertEquals(2, RoverEvent.getTarget(roverEvent.events.get(0)));
+		assertEquals(0, program(rover).registers[1]);
+
+		// Nothing runs while the rover is busy
+		tick();
+		assertEquals(0, program(rover).registers[1]);
+
+		// Once the rover is done the program carries on
+		roverEvent.events.clear();
+		tick();
+		assertEquals(1, program(rover).registers[1]);
+		assertTrue(program(rover).halted);
+	}
+}